@@ -3,8 +3,10 @@ package com.skillhub;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.actuate.autoconfigure.metrics.SystemMetricsAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(exclude = {SystemMetricsAutoConfiguration.class})
+@EnableScheduling
 public class SkillhubBackendApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,34 @@
+package com.skillhub.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Bounded pool used to fetch independent dashboard sections in parallel.
+ * When the queue is full the section is rejected and served as unavailable, rather than run on
+ * the request thread where the section timeout does not apply.
+ */
+@Configuration
+public class DashboardExecutorConfig {
+
+    @Value("${app.dashboard.executor.pool-size:8}")
+    private int poolSize;
+
+    @Value("${app.dashboard.executor.queue-capacity:200}")
+    private int queueCapacity;
+
+    @Bean(name = "dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        return executor;
+    }
+}
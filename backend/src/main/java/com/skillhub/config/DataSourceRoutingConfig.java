@@ -0,0 +1,91 @@
+package com.skillhub.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Enabled when app.datasource.replica.url is set. Writes keep using spring.datasource.*,
+ * while @Transactional(readOnly = true) service methods are served by the replica pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replica.url")
+public class DataSourceRoutingConfig {
+
+    @Value("${app.datasource.replica.url}")
+    private String replicaUrl;
+
+    @Value("${app.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+
+    @Value("${app.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+
+    @Value("${app.datasource.replica.maximum-pool-size:10}")
+    private int replicaPoolSize;
+
+    @Value("${app.datasource.replica.lag-query:SHOW REPLICA STATUS}")
+    private String lagQuery;
+
+    @Value("${app.datasource.replica.lag-column:Seconds_Behind_Source}")
+    private String lagColumn;
+
+    @Value("${app.datasource.replica.max-lag-seconds:5}")
+    private long maxLagSeconds;
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor() {
+        return new ReplicaLagMonitor(replicaDataSource(), lagQuery, lagColumn, maxLagSeconds);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties) {
+        DataSource primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(primary, replicaDataSource(), replicaLagMonitor());
+        routing.afterPropertiesSet();
+
+        // Defer the physical connection until the first statement so the read-only flag is already set
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    /**
+     * With open-in-view, one EntityManager spans the whole request, and Hibernate would otherwise keep
+     * the first physical connection it got. A request that reads in a read-only transaction and then
+     * writes would send the write to the read-only replica. Handing the connection back after every
+     * transaction lets the next one be routed again.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION);
+    }
+
+    @Bean
+    public DataSource replicaDataSource() {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replicaUrl)
+                .username(replicaUsername)
+                .password(replicaPassword)
+                .build();
+        replica.setMaximumPoolSize(replicaPoolSize);
+        replica.setReadOnly(true);
+        replica.setPoolName("replica-pool");
+        return replica;
+    }
+}
@@ -0,0 +1,68 @@
+package com.skillhub.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Periodically samples replication lag on the replica and decides whether read-only traffic may use it.
+ * A missing row, a NULL lag value or a failed probe all count as unusable, so reads fall back to the primary.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final DataSource replica;
+    private final String lagQuery;
+    private final String lagColumn;
+    private final long maxLagSeconds;
+
+    private volatile boolean replicaUsable = false;
+    private volatile long lastLagSeconds = -1;
+
+    public ReplicaLagMonitor(DataSource replica, String lagQuery, String lagColumn, long maxLagSeconds) {
+        this.replica = replica;
+        this.lagQuery = lagQuery;
+        this.lagColumn = lagColumn;
+        this.maxLagSeconds = maxLagSeconds;
+    }
+
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    public long getLastLagSeconds() {
+        return lastLagSeconds;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:5000}")
+    public void refresh() {
+        boolean usable;
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(lagQuery)) {
+            if (rs.next() && rs.getObject(lagColumn) != null) {
+                lastLagSeconds = rs.getLong(lagColumn);
+                usable = lastLagSeconds <= maxLagSeconds;
+            } else {
+                lastLagSeconds = -1;
+                usable = false;
+            }
+        } catch (Exception e) {
+            logger.warn("Replica lag probe failed: {}", e.getMessage());
+            lastLagSeconds = -1;
+            usable = false;
+        }
+
+        if (usable != replicaUsable) {
+            logger.info("Replica {} for read-only traffic (lag: {}s, max: {}s)",
+                    usable ? "enabled" : "disabled", lastLagSeconds, maxLagSeconds);
+        }
+        replicaUsable = usable;
+    }
+}
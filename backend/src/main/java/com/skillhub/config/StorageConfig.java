@@ -0,0 +1,58 @@
+package com.skillhub.config;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.skillhub.service.CachingStorageBackend;
+import com.skillhub.service.LocalStorageBackend;
+import com.skillhub.service.S3StorageBackend;
+import com.skillhub.service.StorageBackend;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Storage for videos uploaded through this server, which the video endpoints also stream from.
+ * "local" (the default) keeps them in the upload directory; "s3" keeps them in the videos bucket
+ * and streams through a disk cache of app.storage.cache.max-bytes, which also serves videos
+ * uploaded straight to the bucket.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Value("${app.storage.videos.backend:local}")
+    private String videosBackend;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    @Value("${app.storage.cache.dir:${app.upload.dir}/cache}")
+    private String cacheDir;
+
+    @Value("${app.storage.cache.max-bytes:10737418240}")
+    private long cacheMaxBytes;
+
+    // Background downloads filling the cache after a miss
+    @Value("${app.storage.cache.fill-threads:4}")
+    private int cacheFillThreads;
+
+    // How long an evicted file stays on disk for responses that were handed its path
+    @Value("${app.storage.cache.evict-grace-ms:60000}")
+    private long cacheEvictGraceMs;
+
+    @Bean
+    public StorageBackend videoStorage(ObjectProvider<AmazonS3> s3Client,
+                                       @Value("${aws.s3.bucket.videos:}") String videosBucket) throws IOException {
+        switch (videosBackend) {
+            case "local":
+                return new LocalStorageBackend(Paths.get(uploadDir));
+            case "s3":
+                return new CachingStorageBackend(new S3StorageBackend(s3Client.getObject(), videosBucket),
+                        Paths.get(cacheDir), cacheMaxBytes, cacheFillThreads, cacheEvictGraceMs);
+            default:
+                throw new IllegalStateException("Unknown app.storage.videos.backend: " + videosBackend);
+        }
+    }
+}
@@ -8,6 +8,10 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+/**
+ * Serves the public images under the upload directory. Videos live in the same directory and are
+ * only served through the token-checked stream endpoints, so nothing else under it is mapped.
+ */
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -16,10 +20,10 @@ public class WebConfig implements WebMvcConfigurer {
 
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
-        Path uploadPath = Paths.get(uploadDir);
-        String uploadPathStr = uploadPath.toFile().getAbsolutePath();
+        Path imagePath = Paths.get(uploadDir, "images");
+        String imagePathStr = imagePath.toFile().getAbsolutePath();
         
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations("file:" + uploadPathStr + "/");
+        registry.addResourceHandler("/uploads/images/**")
+                .addResourceLocations("file:" + imagePathStr + "/");
     }
 }
@@ -5,6 +5,8 @@ import com.skillhub.entity.Course;
 import com.skillhub.service.UserService;
 import com.skillhub.service.CourseService;
 import com.skillhub.service.EnrollmentService;
+import com.skillhub.service.DashboardService;
+import com.skillhub.service.ImageDerivativeService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -27,6 +29,12 @@ public class AdminController {
     @Autowired
     private EnrollmentService enrollmentService;
 
+    @Autowired
+    private DashboardService dashboardService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
     // User Management Endpoints
     @GetMapping("/users")
     public ResponseEntity<?> getAllUsers() {
@@ -121,29 +129,7 @@ public class AdminController {
     @GetMapping("/stats")
     public ResponseEntity<?> getAdminStats() {
         try {
-            Map<String, Object> stats = new HashMap<>();
-            
-            // User statistics
-            List<User> users = userService.getAllUsers();
-            long totalUsers = users.size();
-            long totalStudents = users.stream().filter(u -> u.getRole().getRoleName().equals("STUDENT")).count();
-            long totalInstructors = users.stream().filter(u -> u.getRole().getRoleName().equals("INSTRUCTOR")).count();
-            long totalAdmins = users.stream().filter(u -> u.getRole().getRoleName().equals("ADMIN")).count();
-            
-            // Course statistics
-            List<com.skillhub.dto.CourseResponse> courses = courseService.getAllCourses();
-            long totalCourses = courses.size();
-            
-            // Enrollment statistics
-            long totalEnrollments = enrollmentService.getTotalEnrollments();
-            
-            stats.put("totalUsers", totalUsers);
-            stats.put("totalStudents", totalStudents);
-            stats.put("totalInstructors", totalInstructors);
-            stats.put("totalAdmins", totalAdmins);
-            stats.put("totalCourses", totalCourses);
-            stats.put("totalEnrollments", totalEnrollments);
-            
+            Map<String, Object> stats = dashboardService.getAdminStats();
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -159,4 +145,22 @@ public class AdminController {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
+
+    /**
+     * Make resized copies of course thumbnails that have none, without waiting for the scheduled run
+     */
+    @PostMapping("/thumbnails/backfill")
+    public ResponseEntity<?> backfillThumbnails() {
+        try {
+            User currentUser = userService.getCurrentUser();
+            if (!currentUser.getRole().getRoleName().equals("ADMIN")) {
+                throw new RuntimeException("Access denied. Admin role required.");
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("resizedCourses", imageDerivativeService.backfill());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,81 @@
+package com.skillhub.controller;
+
+import com.skillhub.dto.ActivityBucketResponse;
+import com.skillhub.entity.CourseActivityBucket.Granularity;
+import com.skillhub.entity.User;
+import com.skillhub.service.AnalyticsService;
+import com.skillhub.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/analytics")
+public class AnalyticsController {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * Hourly or daily activity for one course, e.g. ?granularity=DAY&from=2024-01-01T00:00:00
+     */
+    @GetMapping("/courses/{courseId}")
+    public ResponseEntity<?> getCourseActivity(@PathVariable Long courseId,
+                                               @RequestParam(defaultValue = "DAY") Granularity granularity,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                               @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            List<ActivityBucketResponse> buckets = analyticsService.getCourseActivity(courseId, granularity, from, to);
+            return ResponseEntity.ok(buckets);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Platform-wide activity summed over all courses
+     */
+    @GetMapping("/platform")
+    public ResponseEntity<?> getPlatformActivity(@RequestParam(defaultValue = "DAY") Granularity granularity,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        try {
+            User currentUser = userService.getCurrentUser();
+            if (!currentUser.getRole().getRoleName().equals("ADMIN")) {
+                return ResponseEntity.badRequest().body("Access denied. Admin role required.");
+            }
+
+            List<ActivityBucketResponse> buckets = analyticsService.getPlatformActivity(granularity, from, to);
+            return ResponseEntity.ok(buckets);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fill in hourly and daily buckets from before the live rollups started, from enrollments, progress and certificates
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<?> backfill() {
+        try {
+            User currentUser = userService.getCurrentUser();
+            if (!currentUser.getRole().getRoleName().equals("ADMIN")) {
+                return ResponseEntity.badRequest().body("Access denied. Admin role required.");
+            }
+
+            Map<String, Object> result = analyticsService.backfill();
+            return ResponseEntity.ok(result);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+}
@@ -1,24 +1,19 @@
 package com.skillhub.controller;
 
-import com.skillhub.entity.Course;
-import com.skillhub.entity.Enrollment;
 import com.skillhub.entity.User;
-import com.skillhub.service.CourseService;
-import com.skillhub.service.EnrollmentService;
+import com.skillhub.service.DashboardService;
+import com.skillhub.service.DashboardStreamService;
 import com.skillhub.service.UserService;
-import com.skillhub.service.VideoProgressService;
-import com.skillhub.service.CertificateService;
+import com.skillhub.util.DashboardStreamTokenUtil;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
-
-import com.skillhub.entity.Enrollment;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -29,16 +24,13 @@ public class DashboardController {
     private UserService userService;
 
     @Autowired
-    private CourseService courseService;
+    private DashboardService dashboardService;
 
     @Autowired
-    private EnrollmentService enrollmentService;
-    
-    @Autowired
-    private VideoProgressService videoProgressService;
-    
+    private DashboardStreamService dashboardStreamService;
+
     @Autowired
-    private CertificateService certificateService;
+    private DashboardStreamTokenUtil dashboardStreamTokenUtil;
 
     @GetMapping("/admin/dashboard")
     public ResponseEntity<?> getAdminDashboard() {
@@ -48,63 +40,7 @@ public class DashboardController {
                 return ResponseEntity.badRequest().body("Access denied. Admin role required.");
             }
 
-            Map<String, Object> dashboard = new HashMap<>();
-            
-            // Basic statistics
-            List<User> allUsers = userService.getAllUsers();
-            List<Course> allCourses = courseService.getAllCoursesAsEntities();
-            long totalEnrollments = enrollmentService.getTotalEnrollments();
-            
-            dashboard.put("totalUsers", allUsers.size());
-            dashboard.put("totalCourses", allCourses.size());
-            dashboard.put("totalEnrollments", totalEnrollments);
-            
-            // Recent users (last 5 users) - Simplified structure to fix [OBJECT OBJECT] issue
-            List<Map<String, Object>> recentUsers = allUsers.stream()
-                    .sorted((u1, u2) -> Long.compare(u2.getId(), u1.getId())) // Sort by ID desc
-                    .limit(5)
-                    .map(user -> {
-                        Map<String, Object> userData = new HashMap<>();
-                        userData.put("name", user.getName());
-                        userData.put("email", user.getEmail());
-                        userData.put("role", user.getRole().getRoleName());
-                        return userData;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-            dashboard.put("recentUsers", recentUsers);
-            
-            // Top courses - Removed students count as requested
-            List<Map<String, Object>> topCourses = allCourses.stream()
-                    .map(course -> {
-                        Map<String, Object> courseData = new HashMap<>();
-                        courseData.put("title", course.getTitle());
-                        courseData.put("instructor", course.getInstructor().getName());
-                        return courseData;
-                    })
-                    .limit(5)
-                    .collect(java.util.stream.Collectors.toList());
-            dashboard.put("topCourses", topCourses);
-            
-            // User distribution by role
-            Map<String, Object> userDistribution = new HashMap<>();
-            long adminCount = allUsers.stream().filter(u -> u.getRole().getRoleName().equals("ADMIN")).count();
-            long instructorCount = allUsers.stream().filter(u -> u.getRole().getRoleName().equals("INSTRUCTOR")).count();
-            long studentCount = allUsers.stream().filter(u -> u.getRole().getRoleName().equals("STUDENT")).count();
-            
-            userDistribution.put("admin", adminCount);
-            userDistribution.put("instructor", instructorCount);
-            userDistribution.put("student", studentCount);
-            userDistribution.put("total", allUsers.size());
-            dashboard.put("userDistribution", userDistribution);
-            
-            // Platform overview data for charts
-            Map<String, Object> platformOverview = new HashMap<>();
-            platformOverview.put("users", allUsers.size());
-            platformOverview.put("courses", allCourses.size());
-            platformOverview.put("enrollments", totalEnrollments);
-            platformOverview.put("lessons", allCourses.stream().mapToInt(c -> c.getLessons() != null ? c.getLessons().size() : 0).sum());
-            dashboard.put("platformOverview", platformOverview);
-
+            Map<String, Object> dashboard = dashboardService.getAdminDashboard();
             return ResponseEntity.ok(dashboard);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
@@ -120,39 +56,7 @@ public class DashboardController {
                 return ResponseEntity.badRequest().body("Access denied. Instructor role required.");
             }
 
-            List<Course> myCourses = courseService.getCoursesByInstructor(currentUser);
-            long totalEnrollments = enrollmentService.getEnrollmentsByCourses(myCourses);
-
-            // Add enrollment count to each course
-            List<Map<String, Object>> coursesWithEnrollmentCount = myCourses.stream()
-                    .map(course -> {
-                        Map<String, Object> courseData = new HashMap<>();
-                        courseData.put("id", course.getId());
-                        courseData.put("title", course.getTitle());
-                        courseData.put("description", course.getDescription());
-                        courseData.put("thumbnail", course.getThumbnail());
-                        courseData.put("instructor", course.getInstructor());
-                        courseData.put("lessons", course.getLessons());
-                        courseData.put("enrollmentCount", enrollmentService.getEnrollmentCountByCourse(course.getId()));
-                        return courseData;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-
-            // Calculate total unique students across all courses
-            Set<Long> uniqueStudentIds = new HashSet<>();
-            for (Course course : myCourses) {
-                List<Enrollment> enrollments = enrollmentService.getEnrollmentsByCourseId(course.getId());
-                for (Enrollment enrollment : enrollments) {
-                    uniqueStudentIds.add(enrollment.getStudent().getId());
-                }
-            }
-            long totalStudents = uniqueStudentIds.size();
-
-            Map<String, Object> dashboard = new HashMap<>();
-            dashboard.put("myCourses", coursesWithEnrollmentCount);
-            dashboard.put("totalEnrollments", totalEnrollments);
-            dashboard.put("totalStudents", totalStudents);
-
+            Map<String, Object> dashboard = dashboardService.getInstructorDashboard(currentUser);
             return ResponseEntity.ok(dashboard);
         } catch (RuntimeException e) {
             if (e.getMessage().contains("User not found")) {
@@ -164,6 +68,60 @@ public class DashboardController {
         }
     }
 
+    /**
+     * Short-lived token for opening the dashboard stream with EventSource, which cannot send the JWT header
+     */
+    @GetMapping("/dashboard/stream-token")
+    public ResponseEntity<?> getDashboardStreamToken() {
+        try {
+            User currentUser = userService.getCurrentUser();
+            String role = currentUser.getRole().getRoleName();
+            if (!role.equals("ADMIN") && !role.equals("INSTRUCTOR")) {
+                return ResponseEntity.badRequest().body("Access denied. Admin or instructor role required.");
+            }
+            Map<String, Object> response = new HashMap<>();
+            response.put("token", dashboardStreamTokenUtil.issue(currentUser.getId()));
+            response.put("expiresIn", dashboardStreamTokenUtil.getTtlSeconds());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Live counter deltas for the admin or instructor dashboard as server-sent events.
+     * Authenticated by a token from /dashboard/stream-token, or by the usual header.
+     * Declared with the emitter type so Spring streams it; failures are answered with a bare status.
+     */
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard(@RequestParam(required = false) String token) {
+        try {
+            User currentUser;
+            if (token != null) {
+                Long userId = dashboardStreamTokenUtil.verify(token);
+                if (userId == null) {
+                    return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+                }
+                currentUser = userService.getUserById(userId);
+            } else {
+                currentUser = userService.getCurrentUser();
+            }
+            String role = currentUser.getRole().getRoleName();
+            if (role.equals("ADMIN")) {
+                return ResponseEntity.ok(dashboardStreamService.subscribeAdmin());
+            }
+            if (role.equals("INSTRUCTOR")) {
+                return ResponseEntity.ok(dashboardStreamService.subscribeInstructor(currentUser.getId()));
+            }
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        } catch (RuntimeException e) {
+            if (e.getMessage() != null && e.getMessage().contains("User not found")) {
+                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+            }
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/student/dashboard")
     public ResponseEntity<?> getStudentDashboard() {
         try {
@@ -173,33 +131,7 @@ public class DashboardController {
                 return ResponseEntity.badRequest().body("Access denied. Student role required.");
             }
 
-            List<Enrollment> myEnrollments = enrollmentService.getEnrollmentsByStudent(currentUser);
-            
-            // Enhance enrollments with calculated progress
-            List<Map<String, Object>> enhancedEnrollments = myEnrollments.stream()
-                    .map(enrollment -> {
-                        Map<String, Object> enrollmentData = new HashMap<>();
-                        enrollmentData.put("id", enrollment.getId());
-                        enrollmentData.put("course", enrollment.getCourse());
-                        enrollmentData.put("student", enrollment.getStudent());
-                        enrollmentData.put("enrolledAt", enrollment.getEnrolledAt());
-                        
-                        // Calculate actual progress from video progress
-                        Double calculatedProgress = videoProgressService.calculateCourseProgress(
-                            currentUser.getId(), enrollment.getCourse().getId());
-                        enrollmentData.put("progress", calculatedProgress != null ? calculatedProgress.intValue() : 0);
-                        
-                        return enrollmentData;
-                    })
-                    .collect(java.util.stream.Collectors.toList());
-
-            // Get certificates for the student
-            List<com.skillhub.dto.CertificateResponse> certificates = certificateService.getMyCertificates();
-            
-            Map<String, Object> dashboard = new HashMap<>();
-            dashboard.put("myEnrolledCourses", enhancedEnrollments);
-            dashboard.put("certificates", certificates);
-
+            Map<String, Object> dashboard = dashboardService.getStudentDashboard(currentUser);
             return ResponseEntity.ok(dashboard);
         } catch (RuntimeException e) {
             if (e.getMessage().contains("User not found")) {
@@ -215,29 +147,14 @@ public class DashboardController {
     @GetMapping("/stats")
     public ResponseEntity<?> getPublicStats() {
         try {
-            List<User> allUsers = userService.getAllUsers();
-            long totalStudents = allUsers.stream().filter(u -> u.getRole().getRoleName().equals("STUDENT")).count();
-            long totalInstructors = allUsers.stream().filter(u -> u.getRole().getRoleName().equals("INSTRUCTOR")).count();
-            List<Course> allCourses = courseService.getAllCoursesAsEntities();
-
-            Map<String, Object> stats = new HashMap<>();
-            stats.put("totalStudents", (int) totalStudents);
-            stats.put("totalInstructors", (int) totalInstructors);
-            stats.put("totalCourses", allCourses.size());
-
+            Map<String, Object> stats = dashboardService.getPublicStats();
+            if (stats == null) {
+                // Nothing has been read from the database yet; zeros would look like an empty platform
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Error: Stats are not available yet");
+            }
             return ResponseEntity.ok(stats);
         } catch (Exception e) {
-            // If there's an error accessing users (e.g., no auth), just return course count
-            try {
-                List<Course> allCourses = courseService.getAllCoursesAsEntities();
-                Map<String, Object> stats = new HashMap<>();
-                stats.put("totalStudents", 0);
-                stats.put("totalInstructors", 0);
-                stats.put("totalCourses", allCourses.size());
-                return ResponseEntity.ok(stats);
-            } catch (Exception ex) {
-                return ResponseEntity.badRequest().body("Error: " + ex.getMessage());
-            }
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
 }
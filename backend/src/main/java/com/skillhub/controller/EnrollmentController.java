@@ -1,15 +1,26 @@
 package com.skillhub.controller;
 
+import com.skillhub.dto.EnrollmentAttempt;
 import com.skillhub.dto.EnrollmentRequest;
+import com.skillhub.entity.Course;
 import com.skillhub.entity.Enrollment;
 import com.skillhub.entity.User;
+import com.skillhub.service.BulkEnrollmentService;
 import com.skillhub.service.EnrollmentService;
+import com.skillhub.service.SeatAllocationService;
 import com.skillhub.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -22,6 +33,12 @@ public class EnrollmentController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private BulkEnrollmentService bulkEnrollmentService;
+
+    @Autowired
+    private SeatAllocationService seatAllocationService;
+
     @PostMapping("/enroll")
     public ResponseEntity<?> enrollStudent(@RequestBody EnrollmentRequest enrollmentRequest) {
         try {
@@ -31,8 +48,51 @@ public class EnrollmentController {
                 return ResponseEntity.badRequest().body("Only students can enroll in courses");
             }
             
-            Enrollment enrollment = enrollmentService.enrollStudent(enrollmentRequest.getCourseId());
-            return ResponseEntity.ok(enrollment);
+            EnrollmentAttempt attempt = enrollmentService.enrollStudent(enrollmentRequest.getCourseId());
+            if (attempt.isWaitlisted()) {
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Course is full. You have been added to the waitlist.");
+                response.put("courseId", enrollmentRequest.getCourseId());
+                response.put("waitlistPosition", attempt.getWaitlistPosition());
+                return ResponseEntity.accepted().body(response);
+            }
+            return ResponseEntity.ok(attempt.getEnrollment());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{courseId}")
+    public ResponseEntity<?> withdraw(@PathVariable Long courseId) {
+        try {
+            int promoted = enrollmentService.withdrawStudent(courseId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("message", "Withdrawn from course successfully");
+            response.put("promotedFromWaitlist", promoted);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/{courseId}/waitlist")
+    public ResponseEntity<?> leaveWaitlist(@PathVariable Long courseId) {
+        try {
+            if (!enrollmentService.leaveWaitlist(courseId)) {
+                return ResponseEntity.badRequest().body("You are not on the waitlist for this course");
+            }
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Removed from waitlist");
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/{courseId}/seats")
+    public ResponseEntity<?> getSeatStatus(@PathVariable Long courseId) {
+        try {
+            return ResponseEntity.ok(seatAllocationService.getSeatStatus(courseId));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
@@ -53,4 +113,37 @@ public class EnrollmentController {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
+
+    /**
+     * Enroll many students at once. The body is CSV (text/csv or text/plain, one email per row,
+     * optional "email" header) or a JSON array of emails. Responds with one JSON line per row
+     * followed by a summary line.
+     */
+    @PostMapping(value = "/bulk/{courseId}",
+                 consumes = {"text/csv", MediaType.TEXT_PLAIN_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<StreamingResponseBody> bulkEnroll(@PathVariable Long courseId, HttpServletRequest request) {
+        try {
+            User currentUser = userService.getCurrentUser();
+            if (!currentUser.getRole().getRoleName().equals("INSTRUCTOR") &&
+                !currentUser.getRole().getRoleName().equals("ADMIN")) {
+                return errorBody("Access denied. Instructor or admin role required.");
+            }
+
+            Course course = bulkEnrollmentService.authorizeImport(courseId);
+            boolean json = request.getContentType() != null && request.getContentType().contains("json");
+            InputStream input = request.getInputStream();
+            StreamingResponseBody report = output -> bulkEnrollmentService.importEnrollments(course, input, json, output);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(report);
+        } catch (Exception e) {
+            return errorBody("Error: " + e.getMessage());
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> errorBody(String message) {
+        return ResponseEntity.badRequest()
+                .contentType(MediaType.TEXT_PLAIN)
+                .body(output -> output.write(message.getBytes(StandardCharsets.UTF_8)));
+    }
 }
@@ -6,11 +6,17 @@ import com.skillhub.service.LessonService;
 import com.skillhub.service.UserService;
 import com.skillhub.service.EnrollmentService;
 import com.skillhub.service.S3Service;
+import com.skillhub.service.VideoMetadataService;
+import com.skillhub.service.VideoStorageService;
+import com.skillhub.util.VideoAccessTokenUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -29,6 +35,15 @@ public class LessonController {
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private VideoAccessTokenUtil videoAccessTokenUtil;
+
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+
+    @Autowired
+    private VideoStorageService videoStorageService;
+
     @GetMapping("/courses/{courseId}/lessons")
     public ResponseEntity<?> getLessonsByCourse(@PathVariable Long courseId) {
         try {
@@ -47,19 +62,12 @@ public class LessonController {
                 }
             }
             
-            // Generate presigned URLs for S3 videos if user has access
+            // Generate presigned URLs for S3 videos and stream tokens for the ones served here if user has access
             if (canAccess) {
                 for (Lesson lesson : lessons) {
-                    if (lesson.getVideoFilename() != null && 
-                        (lesson.getVideoFilename().startsWith("https://") || lesson.getVideoFilename().startsWith("http://"))) {
-                        String presignedUrl = s3Service.generatePresignedUrl(lesson.getVideoFilename());
-                        lesson.setVideoFilename(presignedUrl);
-                    }
-                    if (lesson.getVideoUrl() != null && 
-                        (lesson.getVideoUrl().startsWith("https://") || lesson.getVideoUrl().startsWith("http://"))) {
-                        String presignedUrl = s3Service.generatePresignedUrl(lesson.getVideoUrl());
-                        lesson.setVideoUrl(presignedUrl);
-                    }
+                    // Before presigning, which replaces S3 URLs
+                    setVideoStreamUrl(lesson, courseId);
+                    s3Service.presignLessonVideos(lesson);
                 }
             }
             
@@ -92,17 +100,12 @@ public class LessonController {
                             }
                         }
                         
-                        if (canAccess && lesson.getVideoFilename() != null && 
-                            (lesson.getVideoFilename().startsWith("https://") || lesson.getVideoFilename().startsWith("http://"))) {
-                            String presignedUrl = s3Service.generatePresignedUrl(lesson.getVideoFilename());
-                            lesson.setVideoFilename(presignedUrl);
-                        }
-                        
-                        // Also handle videoUrl field if it's an S3 URL
-                        if (canAccess && lesson.getVideoUrl() != null && 
-                            (lesson.getVideoUrl().startsWith("https://") || lesson.getVideoUrl().startsWith("http://"))) {
-                            String presignedUrl = s3Service.generatePresignedUrl(lesson.getVideoUrl());
-                            lesson.setVideoUrl(presignedUrl);
+                        if (canAccess) {
+                            Long courseId = lesson.getCourseId();
+                            if (courseId != null) {
+                                setVideoStreamUrl(lesson, courseId);
+                            }
+                            s3Service.presignLessonVideos(lesson);
                         }
                         
                         return ResponseEntity.ok(lesson);
@@ -113,6 +116,36 @@ public class LessonController {
         }
     }
 
+    /**
+     * Keyframe positions of the lesson's video, so players can seek without reading the moov box
+     */
+    @GetMapping("/lessons/{lessonId}/seek-index")
+    public ResponseEntity<?> getLessonSeekIndex(@PathVariable Long lessonId) {
+        try {
+            Lesson lesson = lessonService.getLessonById(lessonId)
+                    .orElseThrow(() -> new RuntimeException("Lesson not found"));
+
+            User currentUser = userService.getCurrentUser();
+            String userRole = currentUser.getRole() != null ? currentUser.getRole().getRoleName() : null;
+            if (!"INSTRUCTOR".equals(userRole) && !"ADMIN".equals(userRole) &&
+                !enrollmentService.isCurrentUserEnrolledInCourse(lesson.getCourseId())) {
+                return ResponseEntity.badRequest().body("Access denied. You must be enrolled in this course.");
+            }
+
+            List<long[]> keyframes = videoMetadataService.getSeekIndex(lesson).stream()
+                    .map(point -> new long[]{point.timeMs(), point.offset()})
+                    .toList();
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("lessonId", lessonId);
+            response.put("duration", lesson.getVideoDuration());
+            response.put("keyframes", keyframes);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
     @PostMapping("/courses/{courseId}/lessons")
     public ResponseEntity<?> createLesson(@PathVariable Long courseId, @RequestBody Lesson lesson) {
         try {
@@ -172,4 +205,16 @@ public class LessonController {
             return ResponseEntity.badRequest().body("Error: " + e.getMessage());
         }
     }
+
+    private void setVideoStreamUrl(Lesson lesson, Long courseId) {
+        String filename = videoStorageService.streamFilename(lesson.getVideoFilename()).orElse(null);
+        if (filename == null) {
+            return;
+        }
+        lesson.setVideoStreamUrl(ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/video/courses/{courseId}/{filename}")
+                .queryParam("token", videoAccessTokenUtil.issue(courseId, filename))
+                .buildAndExpand(courseId, filename)
+                .toUriString());
+    }
 }
@@ -1,5 +1,9 @@
 package com.skillhub.controller;
 
+import com.skillhub.dto.DirectVideoUploadCompletion;
+import com.skillhub.dto.VideoUploadRequest;
+import com.skillhub.entity.Lesson;
+import com.skillhub.service.DirectVideoUploadService;
 import com.skillhub.service.S3Service;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -18,6 +22,9 @@ public class UploadController {
     @Autowired
     private S3Service s3Service;
 
+    @Autowired
+    private DirectVideoUploadService directVideoUploadService;
+
     @PostMapping("/image")
     public ResponseEntity<?> uploadImage(@RequestParam("file") MultipartFile file) {
         try {
@@ -75,4 +82,36 @@ public class UploadController {
             return ResponseEntity.badRequest().body("Error uploading file: " + e.getMessage());
         }
     }
+
+    /**
+     * Presigned URL for uploading a video straight to the bucket
+     */
+    @PostMapping("/video/presign")
+    public ResponseEntity<?> presignVideoUpload(@RequestBody VideoUploadRequest request) {
+        try {
+            return ResponseEntity.ok(directVideoUploadService.presign(request.getFilename(),
+                    request.getContentType(), request.getSize(), request.getSha256()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Attach a video uploaded with a presigned URL to a lesson
+     */
+    @PostMapping("/video/complete")
+    public ResponseEntity<?> completeVideoUpload(@RequestBody DirectVideoUploadCompletion request) {
+        try {
+            Lesson lesson = directVideoUploadService.complete(request.getSha256(), request.getLessonId());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("lessonId", lesson.getId());
+            response.put("videoUrl", lesson.getVideoUrl());
+            response.put("videoDuration", lesson.getVideoDuration());
+
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
 }
@@ -1,115 +1,84 @@
 package com.skillhub.controller;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import com.skillhub.dto.VideoUploadRequest;
+import com.skillhub.entity.VideoMetadata;
+import com.skillhub.entity.VideoUploadSession;
+import com.skillhub.service.ChunkedVideoUploadService;
+import com.skillhub.service.VideoMetadataService;
+import com.skillhub.service.VideoStorageService;
+import com.skillhub.service.VideoStreamService;
+import com.skillhub.util.VideoAccessTokenUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.io.InputStream;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Optional;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/video")
 public class VideoController {
 
-    @Value("${app.upload.dir}")
-    private String uploadDir;
+    @Autowired
+    private VideoAccessTokenUtil videoAccessTokenUtil;
 
-    @GetMapping("/{filename}")
-    public ResponseEntity<Resource> getVideo(@PathVariable String filename) {
-        try {
-            Path videoPath = Paths.get(uploadDir, "videos", filename);
-            File videoFile = videoPath.toFile();
+    @Autowired
+    private VideoStreamService videoStreamService;
 
-            if (!videoFile.exists()) {
-                return ResponseEntity.notFound().build();
-            }
+    @Autowired
+    private VideoMetadataService videoMetadataService;
 
-            Resource resource = new FileSystemResource(videoFile);
+    @Autowired
+    private ChunkedVideoUploadService chunkedUploadService;
 
-            String contentType = Files.probeContentType(videoPath);
-            if (contentType == null) {
-                contentType = "video/mp4";
-            }
+    @Autowired
+    private VideoStorageService videoStorageService;
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(contentType));
-            headers.setContentLength(videoFile.length());
-            headers.set("Accept-Ranges", "bytes");
-            headers.set("Cache-Control", "public, max-age=3600");
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(resource);
-
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    @GetMapping("/{filename}")
+    public void getVideo(@PathVariable String filename, HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        serveVideo(filename, request, response);
     }
 
     @GetMapping("/stream/{filename}")
-    public ResponseEntity<Resource> streamVideo(@PathVariable String filename, 
-                                               @RequestHeader(value = "Range", required = false) String range) {
-        try {
-            Path videoPath = Paths.get(uploadDir, "videos", filename);
-            File videoFile = videoPath.toFile();
-
-            if (!videoFile.exists()) {
-                return ResponseEntity.notFound().build();
-            }
-
-            Resource resource = new FileSystemResource(videoFile);
-            String contentType = Files.probeContentType(videoPath);
-            if (contentType == null) {
-                contentType = "video/mp4";
-            }
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(contentType));
-            headers.set("Accept-Ranges", "bytes");
-
-            if (range != null) {
-                long fileLength = videoFile.length();
-                long start = 0;
-                long end = fileLength - 1;
-
-                if (range.startsWith("bytes=")) {
-                    String[] ranges = range.substring(6).split("-");
-                    if (ranges.length > 0) {
-                        start = Long.parseLong(ranges[0]);
-                    }
-                    if (ranges.length > 1 && !ranges[1].isEmpty()) {
-                        end = Long.parseLong(ranges[1]);
-                    }
-                }
+    public void streamVideo(@PathVariable String filename, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        serveVideo(filename, request, response);
+    }
 
-                long contentLength = end - start + 1;
-                headers.setContentLength(contentLength);
-                headers.set("Content-Range", String.format("bytes %d-%d/%d", start, end, fileLength));
-                
-                return ResponseEntity.status(206)
-                        .headers(headers)
-                        .body(resource);
-            } else {
-                headers.setContentLength(videoFile.length());
-                return ResponseEntity.ok()
-                        .headers(headers)
-                        .body(resource);
-            }
+    /**
+     * Stream a lesson video using the access token handed out with the lesson. The token is
+     * signed for this course and filename and checked here rather than by Spring Security,
+     * so no database lookup is needed.
+     */
+    @GetMapping("/courses/{courseId}/{filename}")
+    public void streamCourseVideo(@PathVariable Long courseId,
+                                  @PathVariable String filename,
+                                  @RequestParam(value = "token", required = false) String token,
+                                  HttpServletRequest request,
+                                  HttpServletResponse response) throws IOException {
+        if (!videoAccessTokenUtil.verify(token, courseId, filename)) {
+            response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        serveVideo(filename, request, response);
+    }
 
-        } catch (IOException e) {
-            return ResponseEntity.internalServerError().build();
+    private void serveVideo(String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path videoPath = videoStreamService.resolveVideo(filename);
+        if (videoPath != null) {
+            videoStreamService.serve(videoPath, request, response);
+        } else if (!videoStreamService.serveRemote(filename, request, response)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
         }
     }
 
@@ -128,19 +97,26 @@ public class VideoController {
             String extension = originalFilename != null && originalFilename.contains(".") 
                 ? originalFilename.substring(originalFilename.lastIndexOf(".")) 
                 : ".mp4";
-            String filename = UUID.randomUUID().toString() + extension;
-
-            Path uploadPath = Paths.get(uploadDir, "videos");
-            Files.createDirectories(uploadPath);
+            VideoStorageService.StoreResult stored;
+            try (InputStream upload = file.getInputStream()) {
+                stored = videoStorageService.storeLocal(upload, extension);
+            }
+            String filename = stored.video().getStorageKey();
 
-            Path filePath = uploadPath.resolve(filename);
-            Files.copy(file.getInputStream(), filePath, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+            Optional<VideoMetadata> metadata = videoMetadataService.find(filename);
+            if (metadata.isEmpty()) {
+                try (InputStream video = videoStorageService.openLocal(filename)) {
+                    metadata = videoMetadataService.extract(filename, video);
+                }
+            }
 
             Map<String, Object> response = new HashMap<>();
             response.put("filename", filename);
             response.put("originalFilename", originalFilename);
             response.put("size", file.getSize());
             response.put("contentType", file.getContentType());
+            response.put("deduplicated", !stored.created());
+            metadata.ifPresent(found -> response.put("duration", VideoMetadataService.toSeconds(found.getDurationMs())));
             
             return ResponseEntity.ok(response);
 
@@ -148,4 +124,86 @@ public class VideoController {
             return ResponseEntity.internalServerError().body("Error uploading file: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    // Resumable uploads: POST /uploads, then PUT /uploads/{id}?offset=N per chunk, then POST /uploads/{id}/complete
+
+    @PostMapping("/uploads")
+    public ResponseEntity<?> startUpload(@RequestBody VideoUploadRequest uploadRequest) {
+        try {
+            VideoUploadSession session = chunkedUploadService.start(uploadRequest.getFilename(),
+                    uploadRequest.getContentType(), uploadRequest.getSize(), uploadRequest.getSha256());
+            return ResponseEntity.ok(uploadStatus(session));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> getUpload(@PathVariable String uploadId) {
+        try {
+            return ResponseEntity.ok(uploadStatus(chunkedUploadService.getSession(uploadId)));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Append the request body at the given offset. The body's SHA-256 goes in X-Chunk-SHA256 as hex.
+     */
+    @PutMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> uploadChunk(@PathVariable String uploadId,
+                                         @RequestParam("offset") long offset,
+                                         @RequestHeader(value = "X-Chunk-SHA256", required = false) String checksum,
+                                         HttpServletRequest request) {
+        try {
+            VideoUploadSession session = chunkedUploadService.appendChunk(uploadId, offset,
+                    request.getContentLengthLong(), checksum, request.getInputStream());
+            return ResponseEntity.ok(uploadStatus(session));
+        } catch (ChunkedVideoUploadService.OffsetMismatchException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("error", e.getMessage());
+            response.put("offset", e.getCurrentOffset());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<?> completeUpload(@PathVariable String uploadId) {
+        try {
+            Optional<VideoMetadata> metadata = chunkedUploadService.complete(uploadId);
+            VideoUploadSession session = chunkedUploadService.getSession(uploadId);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("filename", session.getFilename());
+            response.put("originalFilename", session.getOriginalFilename());
+            response.put("size", session.getTotalSize());
+            response.put("contentType", session.getContentType());
+            metadata.ifPresent(found -> response.put("duration", VideoMetadataService.toSeconds(found.getDurationMs())));
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.abort(uploadId);
+            return ResponseEntity.ok("Upload cancelled");
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Error: " + e.getMessage());
+        }
+    }
+
+    private Map<String, Object> uploadStatus(VideoUploadSession session) {
+        Map<String, Object> status = new HashMap<>();
+        status.put("uploadId", session.getId());
+        status.put("offset", session.getReceivedBytes());
+        status.put("size", session.getTotalSize());
+        status.put("maxChunkSize", chunkedUploadService.getMaxChunkBytes());
+        status.put("completed", session.isCompleted());
+        return status;
+    }
+}
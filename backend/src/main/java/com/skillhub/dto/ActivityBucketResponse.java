@@ -0,0 +1,18 @@
+package com.skillhub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ActivityBucketResponse {
+    private LocalDateTime bucketStart;
+    private long enrollments;
+    private long lessonCompletions;
+    private long watchSeconds;
+    private long certificates;
+}
@@ -0,0 +1,29 @@
+package com.skillhub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One line of the bulk enrollment report
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkEnrollmentResult {
+
+    public enum Status {
+        ENROLLED,
+        WAITLISTED,
+        ALREADY_ENROLLED,
+        DUPLICATE_IN_REQUEST,
+        USER_NOT_FOUND,
+        NOT_A_STUDENT,
+        INVALID_EMAIL,
+        FAILED
+    }
+
+    private int row;
+    private String email;
+    private Status status;
+}
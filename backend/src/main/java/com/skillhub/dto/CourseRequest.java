@@ -11,4 +11,5 @@ public class CourseRequest {
     private String title;
     private String description;
     private String thumbnail;
+    private Integer capacity; // null leaves the current limit unchanged, 0 or less removes it
 }
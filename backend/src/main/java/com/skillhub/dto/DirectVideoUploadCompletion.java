@@ -0,0 +1,14 @@
+package com.skillhub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectVideoUploadCompletion {
+    // SHA-256 the upload was presigned for
+    private String sha256;
+    private Long lessonId;
+}
@@ -0,0 +1,30 @@
+package com.skillhub.dto;
+
+import com.skillhub.entity.Enrollment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of an enrollment request: either the new enrollment, or the student's place in the
+ * waitlist of a full course
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnrollmentAttempt {
+    private Enrollment enrollment;
+    private Long waitlistPosition;
+
+    public static EnrollmentAttempt enrolled(Enrollment enrollment) {
+        return new EnrollmentAttempt(enrollment, null);
+    }
+
+    public static EnrollmentAttempt waitlisted(long position) {
+        return new EnrollmentAttempt(null, position);
+    }
+
+    public boolean isWaitlisted() {
+        return enrollment == null;
+    }
+}
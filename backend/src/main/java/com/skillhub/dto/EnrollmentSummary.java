@@ -0,0 +1,32 @@
+package com.skillhub.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnrollmentSummary {
+    private Long id;
+    private LocalDateTime enrolledAt;
+    private Integer progress = 0; // Course progress calculated from video progress
+    private CourseResponse course;
+    // Lets the dashboard swap in the catalog-sized thumbnail
+    @JsonIgnore
+    private String thumbnailWidths;
+
+    // Used by JPQL constructor expressions, which cannot build nested objects
+    public EnrollmentSummary(Long id, LocalDateTime enrolledAt, Long courseId, String title, String description,
+                             String thumbnail, String thumbnailWidths, Long instructorId, String instructorName,
+                             String instructorEmail) {
+        this.id = id;
+        this.thumbnailWidths = thumbnailWidths;
+        this.enrolledAt = enrolledAt;
+        this.course = new CourseResponse(courseId, title, description, thumbnail, 0L,
+                new CourseResponse.InstructorInfo(instructorId, instructorName, instructorEmail));
+    }
+}
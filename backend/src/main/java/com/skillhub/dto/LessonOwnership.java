@@ -0,0 +1,14 @@
+package com.skillhub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LessonOwnership {
+    private Long lessonId;
+    private Long courseId;
+    private Long instructorId;
+}
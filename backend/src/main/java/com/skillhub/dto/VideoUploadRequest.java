@@ -0,0 +1,16 @@
+package com.skillhub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoUploadRequest {
+    private String filename;
+    private String contentType;
+    private long size;
+    // Optional SHA-256 of the whole file, to skip uploading content that is already stored
+    private String sha256;
+}
@@ -30,11 +30,21 @@ public class Course {
     @Column(columnDefinition = "TEXT")
     private String thumbnail;
     
+    // Widths of the resized copies stored next to the thumbnail, comma separated; null until they
+    // have been generated, empty if the thumbnail is not ours to resize
+    @Column(name = "thumbnail_widths")
+    @JsonIgnore
+    private String thumbnailWidths;
+    
     @ManyToOne(fetch = FetchType.EAGER)
     @JoinColumn(name = "instructor_id", nullable = false)
     @JsonIgnoreProperties({"password", "hibernateLazyInitializer", "handler"})
     private User instructor;
     
+    // Maximum number of enrolled students; null means unlimited
+    @Column(name = "capacity")
+    private Integer capacity;
+    
     @OneToMany(mappedBy = "course", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JsonManagedReference
     private List<Lesson> lessons;
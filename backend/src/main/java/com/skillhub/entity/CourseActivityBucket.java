@@ -0,0 +1,55 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-aggregated activity counters for one course over one hour or one day.
+ * The unique key doubles as the index used for range scans by course and time.
+ */
+@Entity
+@Table(name = "course_activity_buckets", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_activity_bucket", columnNames = {"course_id", "granularity", "bucket_start"})
+}, indexes = {
+    @Index(name = "idx_activity_bucket_time", columnList = "granularity, bucket_start")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseActivityBucket {
+
+    public enum Granularity {
+        HOUR,
+        DAY
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Granularity granularity;
+
+    @Column(name = "bucket_start", nullable = false)
+    private LocalDateTime bucketStart;
+
+    @Column(nullable = false)
+    private long enrollments = 0;
+
+    @Column(name = "lesson_completions", nullable = false)
+    private long lessonCompletions = 0;
+
+    @Column(name = "watch_seconds", nullable = false)
+    private long watchSeconds = 0;
+
+    @Column(nullable = false)
+    private long certificates = 0;
+}
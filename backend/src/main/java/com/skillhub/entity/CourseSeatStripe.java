@@ -0,0 +1,36 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One slice of a seat-limited course's capacity. A course's seats are split over a fixed number
+ * of stripes so concurrent enrollments update different rows instead of queueing on one.
+ */
+@Entity
+@Table(name = "course_seat_stripes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_seat_stripe", columnNames = {"course_id", "stripe"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CourseSeatStripe {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(nullable = false)
+    private int stripe;
+
+    @Column(nullable = false)
+    private int capacity;
+
+    @Column(nullable = false)
+    private int taken;
+}
@@ -0,0 +1,41 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A direct upload URL issued to a user for one content hash. Completing an upload needs one of
+ * these, since the hash alone is part of every S3 video URL. verified is set once the user's own
+ * upload has been seen in the bucket; from then on the user may reuse the content without uploading it.
+ */
+@Entity
+@Table(name = "direct_video_uploads", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_direct_upload_user_hash", columnNames = {"content_hash", "user_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DirectVideoUpload {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Lower-case hex
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // When the last upload URL was issued; the object has to be written after this
+    @Column(name = "issued_at", nullable = false)
+    private LocalDateTime issuedAt;
+
+    @Column(nullable = false)
+    private boolean verified;
+}
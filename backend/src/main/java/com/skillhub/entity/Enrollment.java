@@ -8,7 +8,9 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "enrollments")
+@Table(name = "enrollments", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_enrollment_student", columnNames = {"course_id", "student_id"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
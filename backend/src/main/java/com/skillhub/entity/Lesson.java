@@ -1,10 +1,14 @@
 package com.skillhub.entity;
 
 import com.fasterxml.jackson.annotation.JsonBackReference;
+import com.fasterxml.jackson.annotation.JsonGetter;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSetter;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 @Entity
 @Table(name = "lessons")
@@ -33,9 +37,26 @@ public class Lesson {
     @Column(name = "video_filename")
     private String videoFilename;
 
+    // Signed streaming URL for locally stored videos, filled in for users who may watch the lesson
+    @Transient
+    private String videoStreamUrl;
+
     @Column(name = "video_duration")
     private Integer videoDuration = 0;
 
+    // Keyframe time -> byte offset pairs from the uploaded MP4, see Mp4BoxParser.encodeSeekIndex
+    @Lob
+    @Column(name = "video_seek_index", length = 16777215)
+    @JsonIgnore
+    private byte[] videoSeekIndex;
+
+    // Video references as loaded, so saving can tell which stored video lost a lesson
+    @Transient
+    private String loadedVideoFilename;
+
+    @Transient
+    private String loadedVideoUrl;
+
     @Column(name = "lesson_order")
     private Integer lessonOrder = 0;
 
@@ -46,6 +67,12 @@ public class Lesson {
     @JsonIgnore
     private List<com.skillhub.entity.VideoProgress> videoProgressRecords;
 
+    @PostLoad
+    private void rememberLoadedVideo() {
+        this.loadedVideoFilename = videoFilename;
+        this.loadedVideoUrl = videoUrl;
+    }
+
     public Lesson() {
         this.createdAt = LocalDateTime.now();
     }
@@ -91,10 +118,24 @@ public class Lesson {
         this.videoUrl = videoUrl;
     }
 
+    @JsonIgnore
     public String getVideoFilename() {
         return videoFilename;
     }
 
+    /**
+     * The video filename as serialized: a local file's name only goes to users who were given a
+     * stream URL for it, since for anyone else it would be a way to look for the file
+     */
+    @JsonGetter("videoFilename")
+    public String getVisibleVideoFilename() {
+        if (videoFilename == null || videoFilename.startsWith("http") || videoStreamUrl != null) {
+            return videoFilename;
+        }
+        return null;
+    }
+
+    @JsonSetter("videoFilename")
     public void setVideoFilename(String videoFilename) {
         this.videoFilename = videoFilename;
     }
@@ -147,4 +188,34 @@ public class Lesson {
     public void setCourseId(Long courseId) {
         this.courseId = courseId;
     }
+
+    public String getVideoStreamUrl() {
+        return videoStreamUrl;
+    }
+
+    public void setVideoStreamUrl(String videoStreamUrl) {
+        this.videoStreamUrl = videoStreamUrl;
+    }
+
+    public byte[] getVideoSeekIndex() {
+        return videoSeekIndex;
+    }
+
+    public void setVideoSeekIndex(byte[] videoSeekIndex) {
+        this.videoSeekIndex = videoSeekIndex;
+    }
+
+    /**
+     * Storage keys this lesson points at now and when it was loaded
+     */
+    @JsonIgnore
+    public Set<String> getVideoReferences() {
+        Set<String> references = new HashSet<>();
+        for (String key : new String[]{videoFilename, videoUrl, loadedVideoFilename, loadedVideoUrl}) {
+            if (key != null && !key.isBlank()) {
+                references.add(key);
+            }
+        }
+        return references;
+    }
 }
@@ -0,0 +1,60 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A video stored once under its SHA-256. refCount is the number of lessons pointing at
+ * storageKey; videos left unreferenced for a grace period are deleted.
+ */
+@Entity
+@Table(name = "stored_videos", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stored_video_hash", columnNames = {"content_hash", "location"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredVideo {
+
+    public enum Location {
+        LOCAL,
+        S3
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Lower-case hex
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 8)
+    private Location location;
+
+    // What lessons store: the local filename or the S3 object URL
+    @Column(name = "storage_key", nullable = false, unique = true, length = 500)
+    private String storageKey;
+
+    // S3 object key, null for local files
+    @Column(name = "object_key", length = 500)
+    private String objectKey;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    // When refCount last dropped to zero, or the video was last reused while unreferenced
+    @Column(name = "released_at")
+    private LocalDateTime releasedAt;
+}
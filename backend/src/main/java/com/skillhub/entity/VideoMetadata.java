@@ -0,0 +1,41 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Duration and seek index read from an uploaded video, keyed by where it is stored: the local
+ * filename, or the object URL for S3 uploads. Copied onto lessons that use the video.
+ */
+@Entity
+@Table(name = "video_metadata")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoMetadata {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "storage_key", nullable = false, unique = true, length = 500)
+    private String storageKey;
+
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+
+    @Column(name = "keyframe_count", nullable = false)
+    private int keyframeCount;
+
+    // Mp4BoxParser.encodeSeekIndex format
+    @Lob
+    @Column(name = "seek_index", length = 16777215)
+    private byte[] seekIndex;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
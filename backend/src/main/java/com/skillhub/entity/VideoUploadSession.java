@@ -0,0 +1,52 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A resumable video upload in progress. Chunks are appended to a ".part" file next to the final
+ * destination; receivedBytes is the offset the client resumes from.
+ */
+@Entity
+@Table(name = "video_upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VideoUploadSession {
+
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Name the video gets once the upload completes
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(name = "original_filename")
+    private String originalFilename;
+
+    @Column(name = "content_type")
+    private String contentType;
+
+    @Column(name = "total_size", nullable = false)
+    private long totalSize;
+
+    @Column(name = "received_bytes", nullable = false)
+    private long receivedBytes;
+
+    @Column(nullable = false)
+    private boolean completed;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,36 @@
+package com.skillhub.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A student waiting for a seat in a full course. Entries are served in id order.
+ */
+@Entity
+@Table(name = "course_waitlist", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_waitlist_student", columnNames = {"course_id", "student_id"})
+}, indexes = {
+    @Index(name = "idx_waitlist_queue", columnList = "course_id, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WaitlistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "course_id", nullable = false)
+    private Long courseId;
+
+    @Column(name = "student_id", nullable = false)
+    private Long studentId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
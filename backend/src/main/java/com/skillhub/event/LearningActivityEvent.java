@@ -0,0 +1,54 @@
+package com.skillhub.event;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * In-process event published by the write paths (enrollments, video progress, certificates)
+ * so dashboards and analytics can update incrementally instead of re-querying.
+ */
+@Getter
+public class LearningActivityEvent {
+
+    public enum Type {
+        ENROLLMENT,
+        LESSON_PROGRESS,
+        LESSON_COMPLETED,
+        CERTIFICATE_ISSUED
+    }
+
+    private final Type type;
+    private final Long studentId;
+    private final Long courseId;
+    private final Long instructorId;
+    private final Long lessonId;
+    private final long watchSeconds;
+    private final LocalDateTime occurredAt;
+
+    private LearningActivityEvent(Type type, Long studentId, Long courseId, Long instructorId, Long lessonId, long watchSeconds) {
+        this.type = type;
+        this.studentId = studentId;
+        this.courseId = courseId;
+        this.instructorId = instructorId;
+        this.lessonId = lessonId;
+        this.watchSeconds = watchSeconds;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public static LearningActivityEvent enrollment(Long studentId, Long courseId, Long instructorId) {
+        return new LearningActivityEvent(Type.ENROLLMENT, studentId, courseId, instructorId, null, 0);
+    }
+
+    public static LearningActivityEvent lessonProgress(Long studentId, Long courseId, Long instructorId, Long lessonId, long watchSeconds) {
+        return new LearningActivityEvent(Type.LESSON_PROGRESS, studentId, courseId, instructorId, lessonId, watchSeconds);
+    }
+
+    public static LearningActivityEvent lessonCompleted(Long studentId, Long courseId, Long instructorId, Long lessonId) {
+        return new LearningActivityEvent(Type.LESSON_COMPLETED, studentId, courseId, instructorId, lessonId, 0);
+    }
+
+    public static LearningActivityEvent certificateIssued(Long studentId, Long courseId, Long instructorId) {
+        return new LearningActivityEvent(Type.CERTIFICATE_ISSUED, studentId, courseId, instructorId, null, 0);
+    }
+}
@@ -1,7 +1,10 @@
 package com.skillhub.repository;
 
+import com.skillhub.dto.CertificateResponse;
 import com.skillhub.entity.Certificate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -21,6 +24,11 @@ public interface CertificateRepository extends JpaRepository<Certificate, Long>
     boolean existsByStudentIdAndCourseId(Long studentId, Long courseId);
     
     void deleteByCourseId(Long courseId);
+    
+    @Query("SELECT new com.skillhub.dto.CertificateResponse(c.id, s.id, s.name, s.email, co.id, co.title, " +
+           "c.issuedDate, c.certificateNumber, c.certificateUrl, c.completionPercentage) " +
+           "FROM Certificate c JOIN c.student s JOIN c.course co WHERE s.id = :studentId")
+    List<CertificateResponse> findResponsesByStudentId(@Param("studentId") Long studentId);
 }
 
 
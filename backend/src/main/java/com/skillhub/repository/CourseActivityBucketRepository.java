@@ -0,0 +1,67 @@
+package com.skillhub.repository;
+
+import com.skillhub.dto.ActivityBucketResponse;
+import com.skillhub.entity.CourseActivityBucket;
+import com.skillhub.entity.CourseActivityBucket.Granularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CourseActivityBucketRepository extends JpaRepository<CourseActivityBucket, Long> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE CourseActivityBucket b SET b.enrollments = b.enrollments + :enrollments, " +
+           "b.lessonCompletions = b.lessonCompletions + :completions, b.watchSeconds = b.watchSeconds + :watchSeconds, " +
+           "b.certificates = b.certificates + :certificates " +
+           "WHERE b.courseId = :courseId AND b.granularity = :granularity AND b.bucketStart = :bucketStart")
+    int increment(@Param("courseId") Long courseId, @Param("granularity") Granularity granularity,
+                  @Param("bucketStart") LocalDateTime bucketStart, @Param("enrollments") long enrollments,
+                  @Param("completions") long completions, @Param("watchSeconds") long watchSeconds,
+                  @Param("certificates") long certificates);
+
+    @Query("SELECT new com.skillhub.dto.ActivityBucketResponse(b.bucketStart, b.enrollments, b.lessonCompletions, b.watchSeconds, b.certificates) " +
+           "FROM CourseActivityBucket b WHERE b.courseId = :courseId AND b.granularity = :granularity " +
+           "AND b.bucketStart >= :from AND b.bucketStart < :to ORDER BY b.bucketStart ASC")
+    List<ActivityBucketResponse> findCourseRange(@Param("courseId") Long courseId, @Param("granularity") Granularity granularity,
+                                                 @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT new com.skillhub.dto.ActivityBucketResponse(b.bucketStart, SUM(b.enrollments), SUM(b.lessonCompletions), " +
+           "SUM(b.watchSeconds), SUM(b.certificates)) FROM CourseActivityBucket b WHERE b.granularity = :granularity " +
+           "AND b.bucketStart >= :from AND b.bucketStart < :to GROUP BY b.bucketStart ORDER BY b.bucketStart ASC")
+    List<ActivityBucketResponse> findPlatformRange(@Param("granularity") Granularity granularity,
+                                                   @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("SELECT MIN(b.bucketStart) FROM CourseActivityBucket b WHERE b.granularity = :granularity")
+    LocalDateTime findEarliestBucketStart(@Param("granularity") Granularity granularity);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CourseActivityBucket b WHERE b.courseId = :courseId")
+    int deleteByCourseId(@Param("courseId") Long courseId);
+
+    // Backfill sources, grouped by course, date and hour of day
+
+    @Query("SELECT e.course.id, extract(date from e.enrolledAt), extract(hour from e.enrolledAt), COUNT(e) " +
+           "FROM Enrollment e WHERE e.enrolledAt < :cutoff " +
+           "GROUP BY e.course.id, extract(date from e.enrolledAt), extract(hour from e.enrolledAt)")
+    List<Object[]> countHourlyEnrollments(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT l.course.id, extract(date from vp.lastWatchedAt), extract(hour from vp.lastWatchedAt), " +
+           "SUM(CASE WHEN vp.isCompleted = true THEN 1 ELSE 0 END), SUM(vp.watchedDuration) " +
+           "FROM VideoProgress vp JOIN vp.lesson l WHERE vp.lastWatchedAt < :cutoff " +
+           "GROUP BY l.course.id, extract(date from vp.lastWatchedAt), extract(hour from vp.lastWatchedAt)")
+    List<Object[]> sumHourlyLessonActivity(@Param("cutoff") LocalDateTime cutoff);
+
+    @Query("SELECT c.course.id, extract(date from c.issuedDate), extract(hour from c.issuedDate), COUNT(c) " +
+           "FROM Certificate c WHERE c.issuedDate < :cutoff " +
+           "GROUP BY c.course.id, extract(date from c.issuedDate), extract(hour from c.issuedDate)")
+    List<Object[]> countHourlyCertificates(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -2,7 +2,10 @@ package com.skillhub.repository;
 
 import com.skillhub.entity.Course;
 import com.skillhub.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +13,13 @@ import java.util.List;
 @Repository
 public interface CourseRepository extends JpaRepository<Course, Long> {
     List<Course> findByInstructor(User instructor);
+
+    @Query("SELECT c.title, i.name FROM Course c JOIN c.instructor i ORDER BY c.id ASC")
+    List<Object[]> findCourseTitlesWithInstructor(Pageable pageable);
+
+    @Query("SELECT c.id, c.title, c.description, c.thumbnail, c.thumbnailWidths FROM Course c WHERE c.instructor.id = :instructorId ORDER BY c.id ASC")
+    List<Object[]> findCourseSummariesByInstructorId(@Param("instructorId") Long instructorId);
+
+    // Thumbnails still waiting for resized copies, in id order so a backfill can page past failures
+    List<Course> findTop50ByIdGreaterThanAndThumbnailIsNotNullAndThumbnailWidthsIsNullOrderByIdAsc(Long id);
 }
@@ -0,0 +1,45 @@
+package com.skillhub.repository;
+
+import com.skillhub.entity.CourseSeatStripe;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface CourseSeatStripeRepository extends JpaRepository<CourseSeatStripe, Long> {
+
+    @Modifying
+    @Query("UPDATE CourseSeatStripe s SET s.taken = s.taken + 1 " +
+           "WHERE s.courseId = :courseId AND s.stripe = :stripe AND s.taken < s.capacity")
+    int takeSeat(@Param("courseId") Long courseId, @Param("stripe") int stripe);
+
+    @Modifying
+    @Query("UPDATE CourseSeatStripe s SET s.taken = s.taken - 1 " +
+           "WHERE s.courseId = :courseId AND s.stripe = :stripe AND s.taken > 0")
+    int returnSeat(@Param("courseId") Long courseId, @Param("stripe") int stripe);
+
+    @Query("SELECT s.stripe FROM CourseSeatStripe s WHERE s.courseId = :courseId AND s.taken < s.capacity")
+    List<Integer> findStripesWithFreeSeats(@Param("courseId") Long courseId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM CourseSeatStripe s WHERE s.courseId = :courseId ORDER BY s.stripe ASC")
+    List<CourseSeatStripe> lockByCourseId(@Param("courseId") Long courseId);
+
+    @Query("SELECT s.courseId, SUM(s.taken), COUNT(s) FROM CourseSeatStripe s GROUP BY s.courseId")
+    List<Object[]> sumTakenPerCourse();
+
+    @Query("SELECT COALESCE(SUM(s.taken), 0) FROM CourseSeatStripe s WHERE s.courseId = :courseId")
+    long sumTakenByCourseId(@Param("courseId") Long courseId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CourseSeatStripe s WHERE s.courseId = :courseId")
+    int deleteByCourseId(@Param("courseId") Long courseId);
+}
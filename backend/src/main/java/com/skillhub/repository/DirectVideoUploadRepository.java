@@ -0,0 +1,27 @@
+package com.skillhub.repository;
+
+import com.skillhub.entity.DirectVideoUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface DirectVideoUploadRepository extends JpaRepository<DirectVideoUpload, Long> {
+
+    Optional<DirectVideoUpload> findByContentHashAndUserId(String contentHash, Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DirectVideoUpload u WHERE u.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM DirectVideoUpload u WHERE u.contentHash = :contentHash")
+    int deleteByContentHash(@Param("contentHash") String contentHash);
+}
@@ -1,11 +1,15 @@
 package com.skillhub.repository;
 
+import com.skillhub.dto.EnrollmentSummary;
 import com.skillhub.entity.Course;
 import com.skillhub.entity.Enrollment;
 import com.skillhub.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,4 +24,20 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Long> {
     List<Enrollment> findByStudentId(Long studentId);
     boolean existsByCourseIdAndStudentId(Long courseId, Long studentId);
     void deleteByCourseId(Long courseId);
+
+    @Query("SELECT e.student.id FROM Enrollment e WHERE e.course.id = :courseId")
+    List<Long> findStudentIdsByCourseId(@Param("courseId") Long courseId);
+
+    @Query("SELECT e.student.id FROM Enrollment e WHERE e.course.id = :courseId AND e.student.id IN :studentIds")
+    List<Long> findEnrolledStudentIds(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    @Query("SELECT e.course.id, COUNT(e) FROM Enrollment e WHERE e.course.instructor.id = :instructorId GROUP BY e.course.id")
+    List<Object[]> countEnrollmentsPerCourseByInstructorId(@Param("instructorId") Long instructorId);
+
+    @Query("SELECT COUNT(DISTINCT e.student.id) FROM Enrollment e WHERE e.course.instructor.id = :instructorId")
+    long countDistinctStudentsByInstructorId(@Param("instructorId") Long instructorId);
+
+    @Query("SELECT new com.skillhub.dto.EnrollmentSummary(e.id, e.enrolledAt, c.id, c.title, c.description, c.thumbnail, c.thumbnailWidths, i.id, i.name, i.email) " +
+           "FROM Enrollment e JOIN e.course c JOIN c.instructor i WHERE e.student.id = :studentId ORDER BY e.enrolledAt ASC")
+    List<EnrollmentSummary> findSummariesByStudentId(@Param("studentId") Long studentId);
 }
@@ -1,5 +1,6 @@
 package com.skillhub.repository;
 
+import com.skillhub.dto.LessonOwnership;
 import com.skillhub.entity.Lesson;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -7,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface LessonRepository extends JpaRepository<Lesson, Long> {
@@ -19,4 +21,17 @@ public interface LessonRepository extends JpaRepository<Lesson, Long> {
     
     @Query("SELECT COUNT(l) FROM Lesson l WHERE l.course.id = :courseId")
     Long countByCourseId(@Param("courseId") Long courseId);
+    
+    @Query("SELECT l.course.id, COUNT(l) FROM Lesson l WHERE l.course.instructor.id = :instructorId GROUP BY l.course.id")
+    List<Object[]> countLessonsPerCourseByInstructorId(@Param("instructorId") Long instructorId);
+    
+    @Query("SELECT l.course.id, COUNT(l) FROM Lesson l WHERE l.course.id IN " +
+           "(SELECT e.course.id FROM Enrollment e WHERE e.student.id = :studentId) GROUP BY l.course.id")
+    List<Object[]> countLessonsPerEnrolledCourseByStudentId(@Param("studentId") Long studentId);
+    
+    @Query("SELECT new com.skillhub.dto.LessonOwnership(l.id, c.id, c.instructor.id) FROM Lesson l JOIN l.course c WHERE l.id = :lessonId")
+    Optional<LessonOwnership> findOwnershipByLessonId(@Param("lessonId") Long lessonId);
+    
+    @Query("SELECT COUNT(l) FROM Lesson l WHERE l.videoFilename = :storageKey OR l.videoUrl = :storageKey")
+    long countVideoReferences(@Param("storageKey") String storageKey);
 }
@@ -0,0 +1,16 @@
+package com.skillhub.repository;
+
+import com.skillhub.entity.StoredVideo;
+import com.skillhub.entity.StoredVideo.Location;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredVideoRepository extends JpaRepository<StoredVideo, Long> {
+
+    Optional<StoredVideo> findByContentHashAndLocation(String contentHash, Location location);
+
+    Optional<StoredVideo> findByStorageKey(String storageKey);
+}
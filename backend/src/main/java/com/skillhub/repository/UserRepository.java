@@ -1,12 +1,26 @@
 package com.skillhub.repository;
 
 import com.skillhub.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    @Query("SELECT r.roleName, COUNT(u) FROM User u JOIN u.role r GROUP BY r.roleName")
+    List<Object[]> countUsersByRole();
+
+    @Query("SELECT u.name, u.email, r.roleName FROM User u JOIN u.role r ORDER BY u.id DESC")
+    List<Object[]> findRecentUserSummaries(Pageable pageable);
+
+    @Query("SELECT u.id, u.email, r.roleName FROM User u JOIN u.role r WHERE u.email IN :emails")
+    List<Object[]> findIdAndRoleByEmailIn(@Param("emails") Collection<String> emails);
 }
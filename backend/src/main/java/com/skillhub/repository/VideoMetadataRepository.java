@@ -0,0 +1,13 @@
+package com.skillhub.repository;
+
+import com.skillhub.entity.VideoMetadata;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface VideoMetadataRepository extends JpaRepository<VideoMetadata, Long> {
+
+    Optional<VideoMetadata> findByStorageKey(String storageKey);
+}
@@ -29,4 +29,7 @@ public interface VideoProgressRepository extends JpaRepository<VideoProgress, Lo
     
     @Query("SELECT AVG(vp.completionPercentage) FROM VideoProgress vp JOIN vp.lesson l WHERE vp.student.id = :studentId AND l.course.id = :courseId")
     Double calculateCourseProgress(@Param("studentId") Long studentId, @Param("courseId") Long courseId);
+    
+    @Query("SELECT l.course.id, AVG(vp.completionPercentage) FROM VideoProgress vp JOIN vp.lesson l WHERE vp.student.id = :studentId GROUP BY l.course.id")
+    List<Object[]> calculateProgressPerCourse(@Param("studentId") Long studentId);
 }
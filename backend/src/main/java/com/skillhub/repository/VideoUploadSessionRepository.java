@@ -0,0 +1,14 @@
+package com.skillhub.repository;
+
+import com.skillhub.entity.VideoUploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface VideoUploadSessionRepository extends JpaRepository<VideoUploadSession, String> {
+
+    List<VideoUploadSession> findByUpdatedAtBefore(LocalDateTime cutoff);
+}
@@ -0,0 +1,51 @@
+package com.skillhub.repository;
+
+import com.skillhub.entity.WaitlistEntry;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WaitlistEntryRepository extends JpaRepository<WaitlistEntry, Long> {
+
+    boolean existsByCourseIdAndStudentId(Long courseId, Long studentId);
+
+    long countByCourseId(Long courseId);
+
+    boolean existsByCourseId(Long courseId);
+
+    long countByCourseIdAndIdLessThanEqual(Long courseId, Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<WaitlistEntry> findFirstByCourseIdOrderByIdAsc(Long courseId);
+
+    @Query("SELECT w.studentId FROM WaitlistEntry w WHERE w.courseId = :courseId AND w.studentId IN :studentIds")
+    List<Long> findWaitlistedStudentIds(@Param("courseId") Long courseId, @Param("studentIds") Collection<Long> studentIds);
+
+    @Query("SELECT DISTINCT w.courseId FROM WaitlistEntry w")
+    List<Long> findCourseIdsWithWaitlist();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.courseId = :courseId AND w.studentId = :studentId")
+    int deleteByCourseIdAndStudentId(@Param("courseId") Long courseId, @Param("studentId") Long studentId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.courseId = :courseId")
+    int deleteByCourseId(@Param("courseId") Long courseId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM WaitlistEntry w WHERE w.studentId = :studentId")
+    int deleteByStudentId(@Param("studentId") Long studentId);
+}
@@ -1,9 +1,11 @@
 package com.skillhub.security;
 
 import com.skillhub.service.UserDetailsServiceImpl;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
@@ -75,12 +77,14 @@ public class WebSecurityConfig {
                 .exceptionHandling(exception -> exception.authenticationEntryPoint(unauthorizedHandler))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(authz -> authz
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()  // Async dispatches of already-authorized streams
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/courses/**").permitAll()  // Allow public access to all course endpoints
                         .requestMatchers("/api/stats").permitAll()  // Allow public access to stats
                         .requestMatchers("/api/upload/**").permitAll()  // Allow public access to upload endpoints
-                        .requestMatchers("/uploads/**").permitAll()
-                        .requestMatchers("/api/video/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/uploads/images/**").permitAll()  // Videos are only served through /api/video
+                        .requestMatchers(HttpMethod.GET, "/api/video/courses/**").permitAll()  // Checked against the signed course token in VideoController
+                        .requestMatchers(HttpMethod.GET, "/api/dashboard/stream").permitAll()  // Checked against the stream token in DashboardController
                         .requestMatchers("/api/test/**").permitAll()  // Allow test endpoints (remove in production)
                         .requestMatchers("/actuator/**").permitAll()  // Allow public access to actuator endpoints for Prometheus
                         .anyRequest().authenticated()
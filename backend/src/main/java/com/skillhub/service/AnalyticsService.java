@@ -0,0 +1,275 @@
+package com.skillhub.service;
+
+import com.skillhub.dto.ActivityBucketResponse;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.CourseActivityBucket;
+import com.skillhub.entity.CourseActivityBucket.Granularity;
+import com.skillhub.entity.User;
+import com.skillhub.event.LearningActivityEvent;
+import com.skillhub.repository.CourseActivityBucketRepository;
+import com.skillhub.repository.CourseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Hourly and daily activity rollups per course.
+ *
+ * Write paths publish LearningActivityEvents; deltas are merged in memory per bucket and flushed
+ * periodically as in-place increments, so a heartbeat never costs a write of its own.
+ */
+@Service
+public class AnalyticsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
+
+    private static final long MAX_HOURLY_RANGE_DAYS = 31;
+    private static final long MAX_DAILY_RANGE_DAYS = 731;
+
+    @Autowired
+    private CourseActivityBucketRepository bucketRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final Map<BucketKey, Delta> pending = new ConcurrentHashMap<>();
+
+    // Held by flushes and the backfill, so a flush never lands between the backfill's read and its commit
+    private final Object flushLock = new Object();
+
+    /**
+     * Counted once the write commits, so rolled-back activity never reaches the rollups
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLearningActivity(LearningActivityEvent event) {
+        if (event.getCourseId() == null) {
+            return;
+        }
+        LocalDateTime at = event.getOccurredAt();
+        for (Granularity granularity : Granularity.values()) {
+            BucketKey key = new BucketKey(event.getCourseId(), granularity, bucketStart(at, granularity));
+            // compute() holds the bin lock, so an increment can never race with the flush removing the entry
+            pending.compute(key, (k, delta) -> {
+                Delta updated = delta != null ? delta : new Delta();
+                updated.add(event);
+                return updated;
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.flush-interval-ms:10000}")
+    public void flush() {
+        synchronized (flushLock) {
+            for (BucketKey key : new ArrayList<>(pending.keySet())) {
+                Delta delta = pending.remove(key);
+                if (delta == null || delta.isEmpty()) {
+                    continue;
+                }
+                try {
+                    applyDelta(key, delta);
+                } catch (Exception e) {
+                    logger.warn("Could not flush analytics bucket {}: {}", key, e.getMessage());
+                    // Put it back so the next flush retries it
+                    pending.merge(key, delta, Delta::merge);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Activity buckets for one course. Instructors may only read their own courses
+     */
+    public List<ActivityBucketResponse> getCourseActivity(Long courseId, Granularity granularity,
+                                                          LocalDateTime from, LocalDateTime to) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        User currentUser = userService.getCurrentUser();
+        if (!course.getInstructor().getId().equals(currentUser.getId()) &&
+            !currentUser.getRole().getRoleName().equals("ADMIN")) {
+            throw new RuntimeException("You can only view analytics for your own courses");
+        }
+
+        LocalDateTime[] range = resolveRange(granularity, from, to);
+        return bucketRepository.findCourseRange(courseId, granularity, range[0], range[1]);
+    }
+
+    /**
+     * Activity buckets summed across all courses
+     */
+    public List<ActivityBucketResponse> getPlatformActivity(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime[] range = resolveRange(granularity, from, to);
+        return bucketRepository.findPlatformRange(granularity, range[0], range[1]);
+    }
+
+    /**
+     * Fill in the history from before the live rollups started, from existing enrollments, video
+     * progress and certificates. Only buckets before the earliest one already written are filled,
+     * so live buckets are never touched and running it again adds nothing. Watch time and
+     * completions are attributed to the hour of the last heartbeat, since that is all
+     * video_progress records.
+     */
+    public Map<String, Object> backfill() {
+        synchronized (flushLock) {
+            // Live deltas go to the table first, so the cutoffs below are after everything counted live
+            flush();
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime hourCutoff = backfillCutoff(Granularity.HOUR, now);
+            LocalDateTime dayCutoff = backfillCutoff(Granularity.DAY, now);
+            LocalDateTime sourceCutoff = hourCutoff.isAfter(dayCutoff) ? hourCutoff : dayCutoff;
+
+            // Committed before the lock is released, so no flush can touch these buckets first
+            List<CourseActivityBucket> buckets = new TransactionTemplate(transactionManager).execute(status -> {
+                Map<BucketKey, Delta> rebuilt = new HashMap<>();
+                for (Object[] row : bucketRepository.countHourlyEnrollments(sourceCutoff)) {
+                    hourlyDelta(rebuilt, row, hourCutoff, dayCutoff, delta -> delta.enrollments += toLong(row[3]));
+                }
+                for (Object[] row : bucketRepository.sumHourlyLessonActivity(sourceCutoff)) {
+                    hourlyDelta(rebuilt, row, hourCutoff, dayCutoff, delta -> {
+                        delta.completions += toLong(row[3]);
+                        delta.watchSeconds += toLong(row[4]);
+                    });
+                }
+                for (Object[] row : bucketRepository.countHourlyCertificates(sourceCutoff)) {
+                    hourlyDelta(rebuilt, row, hourCutoff, dayCutoff, delta -> delta.certificates += toLong(row[3]));
+                }
+
+                List<CourseActivityBucket> written = new ArrayList<>(rebuilt.size());
+                rebuilt.forEach((key, delta) -> written.add(new CourseActivityBucket(null, key.courseId(), key.granularity(),
+                        key.bucketStart(), delta.enrollments, delta.completions, delta.watchSeconds, delta.certificates)));
+                return bucketRepository.saveAll(written);
+            });
+
+            logger.info("Analytics backfill wrote {} buckets before {} (hourly) and {} (daily)",
+                    buckets.size(), hourCutoff, dayCutoff);
+
+            Map<String, Object> result = new HashMap<>();
+            result.put("bucketsWritten", buckets.size());
+            result.put("hourlyCutoff", hourCutoff);
+            result.put("dailyCutoff", dayCutoff);
+            return result;
+        }
+    }
+
+    /**
+     * @return the start of the earliest bucket written so far, or of the open bucket if that is earlier
+     */
+    private LocalDateTime backfillCutoff(Granularity granularity, LocalDateTime now) {
+        LocalDateTime open = bucketStart(now, granularity);
+        LocalDateTime earliest = bucketRepository.findEarliestBucketStart(granularity);
+        return earliest != null && earliest.isBefore(open) ? earliest : open;
+    }
+
+    private void applyDelta(BucketKey key, Delta delta) {
+        if (increment(key, delta) > 0) {
+            return;
+        }
+        try {
+            bucketRepository.save(new CourseActivityBucket(null, key.courseId(), key.granularity(), key.bucketStart(),
+                    delta.enrollments, delta.completions, delta.watchSeconds, delta.certificates));
+        } catch (DataIntegrityViolationException e) {
+            // Another node created the bucket first
+            increment(key, delta);
+        }
+    }
+
+    private int increment(BucketKey key, Delta delta) {
+        return bucketRepository.increment(key.courseId(), key.granularity(), key.bucketStart(),
+                delta.enrollments, delta.completions, delta.watchSeconds, delta.certificates);
+    }
+
+    private void hourlyDelta(Map<BucketKey, Delta> rebuilt, Object[] row, LocalDateTime hourCutoff,
+                             LocalDateTime dayCutoff, Consumer<Delta> update) {
+        Long courseId = (Long) row[0];
+        LocalDateTime hour = ((LocalDate) row[1]).atTime(((Number) row[2]).intValue(), 0);
+        if (hour.isBefore(hourCutoff)) {
+            update.accept(rebuilt.computeIfAbsent(new BucketKey(courseId, Granularity.HOUR, hour), k -> new Delta()));
+        }
+        if (hour.isBefore(dayCutoff)) {
+            LocalDateTime day = bucketStart(hour, Granularity.DAY);
+            update.accept(rebuilt.computeIfAbsent(new BucketKey(courseId, Granularity.DAY, day), k -> new Delta()));
+        }
+    }
+
+    private LocalDateTime[] resolveRange(Granularity granularity, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from
+                : granularity == Granularity.HOUR ? end.minusHours(48) : end.minusDays(30);
+        if (!start.isBefore(end)) {
+            throw new RuntimeException("'from' must be before 'to'");
+        }
+        long maxDays = granularity == Granularity.HOUR ? MAX_HOURLY_RANGE_DAYS : MAX_DAILY_RANGE_DAYS;
+        if (ChronoUnit.DAYS.between(start, end) > maxDays) {
+            throw new RuntimeException("Range too large for " + granularity + " buckets (max " + maxDays + " days)");
+        }
+        return new LocalDateTime[]{start, end};
+    }
+
+    private static LocalDateTime bucketStart(LocalDateTime at, Granularity granularity) {
+        return at.truncatedTo(granularity == Granularity.HOUR ? ChronoUnit.HOURS : ChronoUnit.DAYS);
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    private record BucketKey(Long courseId, Granularity granularity, LocalDateTime bucketStart) {
+    }
+
+    private static class Delta {
+        private long enrollments;
+        private long completions;
+        private long watchSeconds;
+        private long certificates;
+
+        void add(LearningActivityEvent event) {
+            switch (event.getType()) {
+                case ENROLLMENT -> enrollments++;
+                case LESSON_COMPLETED -> completions++;
+                case CERTIFICATE_ISSUED -> certificates++;
+                case LESSON_PROGRESS -> watchSeconds += event.getWatchSeconds();
+            }
+        }
+
+        boolean isEmpty() {
+            return enrollments == 0 && completions == 0 && watchSeconds == 0 && certificates == 0;
+        }
+
+        Delta merge(Delta other) {
+            enrollments += other.enrollments;
+            completions += other.completions;
+            watchSeconds += other.watchSeconds;
+            certificates += other.certificates;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.skillhub.service;
+
+import com.skillhub.service.VideoStreamService.Piece;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes video response bodies with non-blocking servlet I/O.
+ *
+ * A stream only occupies a container thread while the socket can take more data: each time it
+ * can, up to app.video.stream.buffer-bytes are written, and once the socket is full the thread goes
+ * back to the pool until the container calls again. File regions are read into one buffer per
+ * stream; mapped segments are handed to Tomcat as they are, without that copy. Paced streams that
+ * are over their bandwidth budget wait on a timer rather than a sleeping thread. Memory per stream
+ * is the one buffer plus what the container holds for the socket.
+ */
+@Component
+public class AsyncVideoWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncVideoWriter.class);
+
+    private final int bufferBytes;
+    private final long timeoutMs;
+
+    private final ScheduledExecutorService pacer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "video-pacer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public AsyncVideoWriter(@Value("${app.video.stream.buffer-bytes:65536}") int bufferBytes,
+                            @Value("${app.video.stream.async-timeout-ms:600000}") long timeoutMs) {
+        this.bufferBytes = bufferBytes;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Start writing the pieces and return; the transfer closes the stream when it ends
+     *
+     * @param pacing the stream to take bandwidth from before each buffer, or null to write at full speed
+     */
+    void start(Path file, List<Piece> pieces, BandwidthShaper.Stream pacing, BandwidthShaper.Stream stream,
+               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            AsyncContext async = request.startAsync(request, response);
+            async.setTimeout(timeoutMs);
+            Transfer transfer = new Transfer(async, response.getOutputStream(), channel, pieces, pacing, stream);
+            async.addListener(transfer);
+            // The container calls onWritePossible as soon as the socket can take data
+            transfer.out.setWriteListener(transfer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pacer.shutdownNow();
+    }
+
+    private final class Transfer implements WriteListener, AsyncListener {
+        private final AsyncContext async;
+        private final ServletOutputStream out;
+        private final FileChannel channel;
+        private final List<Piece> pieces;
+        private final BandwidthShaper.Stream pacing;
+        private final BandwidthShaper.Stream stream;
+        private final ByteBuffer buffer = ByteBuffer.allocate(bufferBytes);
+
+        private int index;
+        private long done;
+        // Bandwidth for the next buffer has been taken already
+        private boolean reserved;
+        private boolean finished;
+
+        private Transfer(AsyncContext async, ServletOutputStream out, FileChannel channel, List<Piece> pieces,
+                         BandwidthShaper.Stream pacing, BandwidthShaper.Stream stream) {
+            this.async = async;
+            this.out = out;
+            this.channel = channel;
+            this.pieces = pieces;
+            this.pacing = pacing;
+            this.stream = stream;
+        }
+
+        @Override
+        public synchronized void onWritePossible() throws IOException {
+            while (!finished && out.isReady()) {
+                if (index == pieces.size()) {
+                    cleanup();
+                    async.complete();
+                    return;
+                }
+                Piece piece = pieces.get(index);
+                int count = (int) Math.min(buffer.capacity(), piece.length() - done);
+                if (pacing != null && !reserved) {
+                    reserved = true;
+                    long wait = pacing.reserve(count);
+                    if (wait > 0) {
+                        pacer.schedule(this::resume, wait, TimeUnit.NANOSECONDS);
+                        return;
+                    }
+                }
+
+                if (piece.buffer() != null && out instanceof CoyoteOutputStream coyote) {
+                    // Tomcat copies straight from the mapping into its socket buffer
+                    coyote.write(piece.slice(done, count));
+                    advance(count);
+                    continue;
+                }
+                buffer.clear().limit(count);
+                if (piece.buffer() != null) {
+                    buffer.put(piece.slice(done, count));
+                } else {
+                    long position = piece.start() + done;
+                    while (buffer.hasRemaining()) {
+                        int read = channel.read(buffer, position + buffer.position());
+                        if (read < 0) {
+                            throw new IOException("Video file shrank while it was being sent");
+                        }
+                    }
+                }
+                out.write(buffer.array(), 0, count);
+                advance(count);
+            }
+        }
+
+        private void advance(int count) {
+            reserved = false;
+            done += count;
+            if (done == pieces.get(index).length()) {
+                index++;
+                done = 0;
+            }
+        }
+
+        /**
+         * Continue after a pacing pause, back on a container thread
+         */
+        private void resume() {
+            try {
+                async.start(() -> {
+                    try {
+                        onWritePossible();
+                    } catch (Throwable e) {
+                        onError(e);
+                    }
+                });
+            } catch (IllegalStateException e) {
+                // Completed or timed out while waiting
+                cleanup();
+            }
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            // Mostly viewers closing the player or seeking elsewhere
+            logger.debug("Video stream ended early: {}", t.getMessage());
+            cleanup();
+            try {
+                async.complete();
+            } catch (IllegalStateException e) {
+                // Already completed
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            logger.debug("Video stream timed out after {} ms", timeoutMs);
+            cleanup();
+            async.complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            cleanup();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            cleanup();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+        private synchronized void cleanup() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            stream.close();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Could not close video file: {}", e.getMessage());
+            }
+        }
+    }
+}
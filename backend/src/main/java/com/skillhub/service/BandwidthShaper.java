@@ -0,0 +1,235 @@
+package com.skillhub.service;
+
+import com.skillhub.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.InterruptedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bandwidth budgets for video streams: one token bucket per client, shared by all of its
+ * concurrent streams, and one for the whole server.
+ *
+ * While the global budget is set, each client's rate is its fair share of it, so a handful of
+ * clients pulling whole files cannot starve everyone else's playback. The burst allowance lets a
+ * player fetch its first segments at full speed; clients that stay within it are not paced at all.
+ * Both rates default to 0, which means unlimited.
+ *
+ * Tomcat sends sendfile regions after the request has been handled and does not report when they
+ * finish, so those responses are counted by video.stream.sendfile rather than in the active gauges.
+ */
+@Component
+public class BandwidthShaper {
+
+    private final long perClientBytesPerSecond;
+    private final long globalBytesPerSecond;
+    private final long burstBytes;
+
+    private final TokenBucket globalBucket;
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
+    private final AtomicInteger activeClients = new AtomicInteger();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    private final Counter sentBytes;
+    private final Counter throttledBytes;
+    private final Counter sendfileResponses;
+    private final Counter sendfileBytes;
+
+    public BandwidthShaper(@Value("${app.video.bandwidth.per-client-bytes-per-second:0}") long perClientBytesPerSecond,
+                           @Value("${app.video.bandwidth.global-bytes-per-second:0}") long globalBytesPerSecond,
+                           @Value("${app.video.bandwidth.burst-bytes:4194304}") long burstBytes,
+                           MeterRegistry meterRegistry) {
+        this.perClientBytesPerSecond = perClientBytesPerSecond;
+        this.globalBytesPerSecond = globalBytesPerSecond;
+        this.burstBytes = burstBytes;
+        this.globalBucket = new TokenBucket(globalBytesPerSecond, burstBytes, System.nanoTime());
+
+        Gauge.builder("video.streams.active", activeStreams, AtomicInteger::get)
+                .description("Video responses being written by the application, not counting sendfile")
+                .register(meterRegistry);
+        Gauge.builder("video.stream.clients.active", activeClients, AtomicInteger::get)
+                .description("Clients with at least one video response being written")
+                .register(meterRegistry);
+        this.sentBytes = Counter.builder("video.stream.sent.bytes")
+                .description("Video bytes passed through the bandwidth shaper")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.throttledBytes = Counter.builder("video.stream.throttled.bytes")
+                .description("Video bytes that had to wait for bandwidth")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.sendfileResponses = Counter.builder("video.stream.sendfile")
+                .description("Video responses handed to the container's sendfile")
+                .register(meterRegistry);
+        this.sendfileBytes = Counter.builder("video.stream.sendfile.bytes")
+                .description("Video bytes handed to the container's sendfile")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return perClientBytesPerSecond > 0 || globalBytesPerSecond > 0;
+    }
+
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+
+    public double getSendfileResponses() {
+        return sendfileResponses.count();
+    }
+
+    public double getThrottledBytes() {
+        return throttledBytes.count();
+    }
+
+    /**
+     * Start a response to the given client. Close the stream when the response is done.
+     */
+    public Stream open(String clientKey) {
+        activeStreams.incrementAndGet();
+        Client client = clients.compute(clientKey, (key, current) -> {
+            Client result = current != null ? current : new Client(new TokenBucket(
+                    perClientBytesPerSecond, burstBytes, System.nanoTime()));
+            if (result.streams++ == 0) {
+                activeClients.incrementAndGet();
+            }
+            return result;
+        });
+        return new Stream(clientKey, client);
+    }
+
+    /**
+     * Drop the buckets of idle clients once they have refilled, which is when forgetting them
+     * changes nothing
+     */
+    @Scheduled(fixedDelayString = "${app.video.bandwidth.sweep-interval-ms:60000}")
+    public void removeIdleClients() {
+        long now = System.nanoTime();
+        for (String key : clients.keySet()) {
+            clients.computeIfPresent(key, (k, client) ->
+                    client.streams == 0 && client.bucket.isFull(now) ? null : client);
+        }
+    }
+
+    /**
+     * The client's current rate: its own limit, or its share of the global one if that is lower
+     */
+    private long clientRate() {
+        if (globalBytesPerSecond <= 0) {
+            return perClientBytesPerSecond;
+        }
+        long share = Math.max(1, globalBytesPerSecond / Math.max(1, activeClients.get()));
+        return perClientBytesPerSecond > 0 ? Math.min(perClientBytesPerSecond, share) : share;
+    }
+
+    private static final class Client {
+        private final TokenBucket bucket;
+        // Guarded by the clients map's compute calls
+        private int streams;
+
+        private Client(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    public final class Stream implements AutoCloseable {
+        private final String clientKey;
+        private final Client client;
+        private boolean closed;
+
+        private Stream(String clientKey, Client client) {
+            this.clientKey = clientKey;
+            this.client = client;
+        }
+
+        /**
+         * Take bandwidth for bytes that are about to be sent in one go, if the budgets cover them now
+         *
+         * @return false if the bytes have to be paced with {@link #acquire}
+         */
+        public boolean tryAcquire(long bytes) {
+            if (!isEnabled()) {
+                sentBytes.increment(bytes);
+                return true;
+            }
+            long now = System.nanoTime();
+            client.bucket.setRate(clientRate(), now);
+            if (!client.bucket.tryTake(bytes, now)) {
+                return false;
+            }
+            if (!globalBucket.tryTake(bytes, now)) {
+                client.bucket.refund(bytes);
+                return false;
+            }
+            sentBytes.increment(bytes);
+            return true;
+        }
+
+        /**
+         * Wait until the budgets allow these bytes to be sent
+         */
+        public void acquire(long bytes) throws InterruptedIOException {
+            long wait = reserve(bytes);
+            if (wait <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while pacing video stream");
+            }
+        }
+
+        /**
+         * Take bandwidth for these bytes without waiting
+         *
+         * @return nanoseconds the caller has to hold them back
+         */
+        public long reserve(long bytes) {
+            sentBytes.increment(bytes);
+            if (!isEnabled()) {
+                return 0;
+            }
+            long now = System.nanoTime();
+            client.bucket.setRate(clientRate(), now);
+            long wait = Math.max(client.bucket.reserve(bytes, now), globalBucket.reserve(bytes, now));
+            if (wait > 0) {
+                throttledBytes.increment(bytes);
+            }
+            return wait;
+        }
+
+        /**
+         * Record that the container sends these bytes itself after the request has been handled
+         */
+        public void handedToSendfile(long bytes) {
+            sendfileResponses.increment();
+            sendfileBytes.increment(bytes);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            activeStreams.decrementAndGet();
+            clients.computeIfPresent(clientKey, (key, current) -> {
+                if (--current.streams == 0) {
+                    activeClients.decrementAndGet();
+                }
+                return current;
+            });
+        }
+    }
+}
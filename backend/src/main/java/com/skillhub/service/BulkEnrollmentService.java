@@ -0,0 +1,378 @@
+package com.skillhub.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillhub.dto.BulkEnrollmentResult;
+import com.skillhub.dto.BulkEnrollmentResult.Status;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.User;
+import com.skillhub.event.LearningActivityEvent;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Enrolls a list of students into one course from a CSV or JSON upload.
+ *
+ * Rows are read incrementally and handled in batches: one query resolves the batch's emails,
+ * one query finds who is already enrolled, and the new rows go in as a single JDBC batch.
+ * For a course with a capacity, each new row takes a seat first, and rows past the last free
+ * seat go to the waitlist in upload order.
+ * A result line per row is written back as newline-delimited JSON as each batch completes.
+ */
+@Service
+public class BulkEnrollmentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkEnrollmentService.class);
+
+    private static final String INSERT_ENROLLMENT =
+            "INSERT INTO enrollments (course_id, student_id, enrolled_at, progress) VALUES (?, ?, ?, 0)";
+
+    @Autowired
+    private CourseService courseService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private SeatAllocationService seatAllocationService;
+
+    @Autowired
+    private EnrollmentMembershipIndex membershipIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.enrollment.bulk.batch-size:500}")
+    private int batchSize;
+
+    @Value("${app.enrollment.bulk.max-rows:20000}")
+    private int maxRows;
+
+    /**
+     * Check the current user may bulk enroll into the course. Must run on the request thread,
+     * before the import itself moves to the async response.
+     */
+    public Course authorizeImport(Long courseId) {
+        Course course = courseService.getCourseById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        User currentUser = userService.getCurrentUser();
+        if (!course.getInstructor().getId().equals(currentUser.getId()) &&
+            !currentUser.getRole().getRoleName().equals("ADMIN")) {
+            throw new RuntimeException("You can only enroll students into your own courses");
+        }
+        return course;
+    }
+
+    public void importEnrollments(Course course, InputStream input, boolean json, OutputStream output) throws IOException {
+        EmailReader reader = json ? new JsonEmailReader(objectMapper.getFactory().createParser(input))
+                                  : new CsvEmailReader(input);
+        Map<Status, Integer> counts = new EnumMap<>(Status.class);
+        Set<String> seen = new HashSet<>();
+        List<BulkEnrollmentResult> batch = new ArrayList<>(batchSize);
+        int rows = 0;
+        boolean truncated = false;
+
+        String email;
+        while ((email = reader.next()) != null) {
+            if (rows == maxRows) {
+                truncated = true;
+                break;
+            }
+            batch.add(new BulkEnrollmentResult(++rows, email.trim(), null));
+            if (batch.size() == batchSize) {
+                processBatch(course, batch, seen, counts);
+                writeRows(batch, output);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            processBatch(course, batch, seen, counts);
+            writeRows(batch, output);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("courseId", course.getId());
+        summary.put("rows", rows);
+        summary.put("counts", counts);
+        if (truncated) {
+            summary.put("error", "Import stopped after " + maxRows + " rows");
+        }
+        output.write(objectMapper.writeValueAsBytes(Map.of("summary", summary)));
+        output.write('\n');
+        output.flush();
+
+        logger.info("Bulk enrollment into course {}: {} rows, {}", course.getId(), rows, counts);
+    }
+
+    private void processBatch(Course course, List<BulkEnrollmentResult> batch, Set<String> seen, Map<Status, Integer> counts) {
+        Map<String, BulkEnrollmentResult> candidates = new LinkedHashMap<>();
+        for (BulkEnrollmentResult row : batch) {
+            String key = row.getEmail().toLowerCase(Locale.ROOT);
+            if (!isPlausibleEmail(key)) {
+                row.setStatus(Status.INVALID_EMAIL);
+            } else if (!seen.add(key)) {
+                row.setStatus(Status.DUPLICATE_IN_REQUEST);
+            } else {
+                candidates.put(key, row);
+            }
+        }
+
+        List<Long> enrolled = new ArrayList<>();
+        // Seats are taken in their own transactions, so they must be handed back if the batch fails
+        int[] seats = new int[1];
+        if (!candidates.isEmpty()) {
+            try {
+                // Reads run in the write transaction so they hit the primary, not a lagging replica
+                new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                        enrolled.addAll(enrollCandidates(course, candidates, seats)));
+            } catch (Exception e) {
+                logger.warn("Bulk enrollment batch into course {} failed: {}", course.getId(), e.getMessage());
+                for (int i = 0; i < seats[0]; i++) {
+                    seatAllocationService.release(course.getId());
+                }
+                enrolled.clear();
+                candidates.values().stream()
+                        .filter(row -> row.getStatus() == null || row.getStatus() == Status.ENROLLED
+                                || row.getStatus() == Status.WAITLISTED)
+                        .forEach(row -> row.setStatus(Status.FAILED));
+            }
+        }
+
+        for (Long studentId : enrolled) {
+            membershipIndex.added(course.getId(), studentId);
+            eventPublisher.publishEvent(LearningActivityEvent.enrollment(
+                    studentId, course.getId(), course.getInstructor().getId()));
+        }
+        for (BulkEnrollmentResult row : batch) {
+            counts.merge(row.getStatus(), 1, Integer::sum);
+        }
+    }
+
+    /**
+     * @param seats incremented for every seat taken
+     * @return ids of the students actually inserted
+     */
+    private List<Long> enrollCandidates(Course course, Map<String, BulkEnrollmentResult> candidates, int[] seats) {
+        Long courseId = course.getId();
+        Map<Long, BulkEnrollmentResult> students = new HashMap<>();
+        // Look up both the email as given and lower-cased; MySQL's default collation already ignores
+        // case, and on case-sensitive databases this still matches the common all-lower-case rows
+        Set<String> lookup = new HashSet<>(candidates.keySet());
+        candidates.values().forEach(row -> lookup.add(row.getEmail()));
+        for (Object[] user : userRepository.findIdAndRoleByEmailIn(lookup)) {
+            BulkEnrollmentResult row = candidates.get(((String) user[1]).toLowerCase(Locale.ROOT));
+            if (row == null) {
+                continue;
+            }
+            if ("STUDENT".equals(user[2])) {
+                row.setStatus(Status.ENROLLED);
+                students.put((Long) user[0], row);
+            } else {
+                row.setStatus(Status.NOT_A_STUDENT);
+            }
+        }
+        candidates.values().stream()
+                .filter(row -> row.getStatus() == null)
+                .forEach(row -> row.setStatus(Status.USER_NOT_FOUND));
+
+        if (!students.isEmpty()) {
+            for (Long studentId : enrollmentRepository.findEnrolledStudentIds(courseId, students.keySet())) {
+                students.remove(studentId).setStatus(Status.ALREADY_ENROLLED);
+            }
+        }
+
+        List<Long> studentIds = new ArrayList<>(students.keySet());
+        if (course.getCapacity() != null) {
+            studentIds = takeSeats(courseId, students, seats);
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ENROLLMENT, studentIds, batchSize, (ps, studentId) -> {
+            ps.setLong(1, courseId);
+            ps.setLong(2, studentId);
+            ps.setTimestamp(3, now);
+        });
+        return studentIds;
+    }
+
+    /**
+     * Take a seat for each student in upload order; once the course is full, the rest are waitlisted
+     *
+     * @return the students that got a seat
+     */
+    private List<Long> takeSeats(Long courseId, Map<Long, BulkEnrollmentResult> students, int[] seats) {
+        List<Long> inOrder = new ArrayList<>(students.keySet());
+        inOrder.sort(Comparator.comparingInt(studentId -> students.get(studentId).getRow()));
+
+        List<Long> seated = new ArrayList<>();
+        List<Long> overflow = new ArrayList<>();
+        for (Long studentId : inOrder) {
+            if (overflow.isEmpty() && seatAllocationService.tryAcquire(courseId)) {
+                seats[0]++;
+                seated.add(studentId);
+            } else {
+                overflow.add(studentId);
+            }
+        }
+        if (!overflow.isEmpty()) {
+            seatAllocationService.joinWaitlist(courseId, overflow);
+            overflow.forEach(studentId -> students.get(studentId).setStatus(Status.WAITLISTED));
+        }
+        return seated;
+    }
+
+    private void writeRows(List<BulkEnrollmentResult> rows, OutputStream output) throws IOException {
+        for (BulkEnrollmentResult row : rows) {
+            output.write(objectMapper.writeValueAsBytes(row));
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    private static boolean isPlausibleEmail(String email) {
+        int at = email.indexOf('@');
+        return at > 0 && at == email.lastIndexOf('@') && at < email.length() - 1 && email.length() <= 255;
+    }
+
+    private interface EmailReader {
+        /**
+         * @return the next email, an empty string for a row without one, or null at the end
+         */
+        String next() throws IOException;
+    }
+
+    /**
+     * One email per line. A header row is optional; if present, the "email" column is used,
+     * otherwise the first column.
+     */
+    private static class CsvEmailReader implements EmailReader {
+        private final BufferedReader reader;
+        private int column = -1;
+
+        CsvEmailReader(InputStream input) {
+            this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] cells = line.split(",", -1);
+                if (column < 0) {
+                    column = 0;
+                    for (int i = 0; i < cells.length; i++) {
+                        if (unquote(cells[i]).equalsIgnoreCase("email")) {
+                            column = i;
+                            line = null;
+                            break;
+                        }
+                    }
+                    if (line == null) {
+                        continue;
+                    }
+                }
+                return column < cells.length ? unquote(cells[column]) : "";
+            }
+            return null;
+        }
+
+        private static String unquote(String cell) {
+            String value = cell.trim();
+            if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                value = value.substring(1, value.length() - 1).trim();
+            }
+            return value;
+        }
+    }
+
+    /**
+     * A JSON array of email strings or of objects with an "email" field
+     */
+    private static class JsonEmailReader implements EmailReader {
+        private final JsonParser parser;
+        private boolean started;
+
+        JsonEmailReader(JsonParser parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public String next() throws IOException {
+            if (!started) {
+                started = true;
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected a JSON array of emails");
+                }
+            }
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.END_ARRAY) {
+                return null;
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return parser.getText();
+            }
+            if (token == JsonToken.START_OBJECT) {
+                String email = "";
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.getCurrentName();
+                    JsonToken value = parser.nextToken();
+                    if ("email".equals(field) && value == JsonToken.VALUE_STRING) {
+                        email = parser.getText();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return email;
+            }
+            parser.skipChildren();
+            return "";
+        }
+    }
+}
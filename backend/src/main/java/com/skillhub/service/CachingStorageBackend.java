@@ -0,0 +1,322 @@
+package com.skillhub.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A read-through disk cache in front of remote storage.
+ *
+ * A miss starts a download of the whole object into the cache directory in the background and
+ * reports the object as not local, so the caller reads the range it needs from the remote store
+ * meanwhile; once the file is in place, reads are served from it, so hot videos go out with
+ * sendfile. Concurrent misses for one object share a single download. Once the cached files exceed
+ * the byte budget, the least recently read ones leave the index, and their files are deleted after
+ * app.storage.cache.evict-grace-ms, so a path handed out just before the eviction can still be
+ * opened. The directory can hold that much more than the budget for a while. Files already in the
+ * directory are picked up again after a restart. Writes and deletes go to the remote store and drop
+ * the cached copy.
+ */
+public class CachingStorageBackend implements StorageBackend, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingStorageBackend.class);
+
+    private final StorageBackend remote;
+    private final LocalStorageBackend files;
+    private final long maxBytes;
+    private final long evictGraceMs;
+
+    // Key -> size; both guarded by "this"; access-ordered so iteration starts at the least recently read
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+
+    private final Executor fills;
+    private final ExecutorService ownedFills;
+    private final ScheduledExecutorService deletions;
+    private final Map<String, Boolean> downloads = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachingStorageBackend(StorageBackend remote, Path cacheDir, long maxBytes, int fillThreads,
+                                 long evictGraceMs) throws IOException {
+        this(remote, cacheDir, maxBytes, Executors.newFixedThreadPool(fillThreads, daemon("storage-cache-fill")),
+                evictGraceMs, true);
+    }
+
+    /**
+     * @param fills runs the background downloads
+     */
+    CachingStorageBackend(StorageBackend remote, Path cacheDir, long maxBytes, Executor fills,
+                          long evictGraceMs) throws IOException {
+        this(remote, cacheDir, maxBytes, fills, evictGraceMs, false);
+    }
+
+    private CachingStorageBackend(StorageBackend remote, Path cacheDir, long maxBytes, Executor fills,
+                                  long evictGraceMs, boolean ownsFills) throws IOException {
+        this.remote = remote;
+        this.files = new LocalStorageBackend(cacheDir);
+        this.maxBytes = maxBytes;
+        this.evictGraceMs = evictGraceMs;
+        this.fills = fills;
+        this.ownedFills = ownsFills ? (ExecutorService) fills : null;
+        this.deletions = evictGraceMs > 0
+                ? Executors.newSingleThreadScheduledExecutor(daemon("storage-cache-evict"))
+                : null;
+        Files.createDirectories(files.getRoot());
+        loadExisting();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized long getCachedBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return cached(key) != null || remote.exists(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        synchronized (this) {
+            Long size = entries.get(StorageBackend.checkKey(key));
+            if (size != null) {
+                return size;
+            }
+        }
+        return remote.size(key);
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        Path file = cached(key);
+        return file != null ? Files.newInputStream(file) : remote.open(key);
+    }
+
+    @Override
+    public InputStream open(String key, long start, long length) throws IOException {
+        Path file = cached(key);
+        return file != null ? files.open(key, start, length) : remote.open(key, start, length);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        remote.put(key, content, size, contentType);
+        evict(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        remote.delete(key);
+        evict(key);
+    }
+
+    /**
+     * The cached file, or empty while the object is being fetched in the background
+     */
+    @Override
+    public Optional<Path> localPath(String key) throws IOException {
+        Path file = cached(key);
+        if (file != null) {
+            hits.incrementAndGet();
+            return Optional.of(file);
+        }
+        misses.incrementAndGet();
+        if (downloads.putIfAbsent(key, Boolean.TRUE) == null) {
+            try {
+                fills.execute(() -> fill(key));
+            } catch (RejectedExecutionException e) {
+                downloads.remove(key);
+                logger.debug("Not caching {}: {}", key, e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        if (ownedFills != null) {
+            ownedFills.shutdownNow();
+        }
+        if (deletions != null) {
+            deletions.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the cached file, or null if the object is not in the cache
+     */
+    private Path cached(String key) {
+        Long size;
+        synchronized (this) {
+            size = entries.get(StorageBackend.checkKey(key));
+        }
+        if (size == null) {
+            return null;
+        }
+        Path file = files.resolve(key);
+        // Outside the lock, so a slow disk does not hold up reads of other keys
+        if (!Files.isRegularFile(file)) {
+            // Removed behind our back
+            synchronized (this) {
+                if (entries.remove(key, size)) {
+                    totalBytes -= size;
+                }
+            }
+            return null;
+        }
+        return file;
+    }
+
+    private void fill(String key) {
+        try {
+            Path target = files.resolve(key);
+            Files.createDirectories(target.getParent());
+            Path temp = target.resolveSibling(target.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                try (InputStream in = remote.open(key)) {
+                    Files.copy(in, temp);
+                }
+                long size = Files.size(temp);
+                synchronized (this) {
+                    // Together with the admission, so a pending deletion of an evicted copy cannot remove it
+                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    admit(key, size);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (NoSuchFileException e) {
+            logger.debug("Not caching {}: gone from remote storage", key);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not cache {}: {}", key, e.getMessage());
+        } finally {
+            downloads.remove(key);
+        }
+    }
+
+    private synchronized void admit(String key, long size) {
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous != null ? previous : 0);
+        // The newest file stays even when it alone is over the budget, since it is about to be read
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(key)) {
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            deleteLater(entry.getKey());
+        }
+    }
+
+    private synchronized void evict(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+            deleteLater(key);
+        }
+    }
+
+    /**
+     * Delete an evicted file once paths handed out before the eviction have had time to be opened
+     */
+    private void deleteLater(String key) {
+        if (deletions != null) {
+            try {
+                deletions.schedule(() -> deleteIfEvicted(key), evictGraceMs, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }
+        deleteIfEvicted(key);
+    }
+
+    private synchronized void deleteIfEvicted(String key) {
+        // Fetched again in the meantime, into the same file
+        if (entries.containsKey(key)) {
+            return;
+        }
+        try {
+            files.delete(key);
+        } catch (IOException e) {
+            logger.warn("Could not delete cached {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Index what an earlier run left in the cache directory, oldest first, and drop unfinished downloads
+     */
+    private void loadExisting() throws IOException {
+        Path root = files.getRoot();
+        List<Path> existing;
+        try (Stream<Path> walk = Files.walk(root)) {
+            existing = walk.filter(Files::isRegularFile).toList();
+        }
+        List<Path> ordered = new ArrayList<>();
+        for (Path file : existing) {
+            if (file.getFileName().toString().endsWith(".tmp")) {
+                Files.deleteIfExists(file);
+            } else {
+                ordered.add(file);
+            }
+        }
+        ordered.sort(Comparator.comparingLong(CachingStorageBackend::lastModified));
+        for (Path file : ordered) {
+            String key = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            admit(key, Files.size(file));
+        }
+        if (!ordered.isEmpty()) {
+            logger.info("Storage cache {} holds {} objects, {} bytes", root, ordered.size(), getCachedBytes());
+        }
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
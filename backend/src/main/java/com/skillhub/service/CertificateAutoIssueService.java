@@ -3,12 +3,14 @@ package com.skillhub.service;
 import com.skillhub.entity.Certificate;
 import com.skillhub.entity.Course;
 import com.skillhub.entity.User;
+import com.skillhub.event.LearningActivityEvent;
 import com.skillhub.repository.CertificateRepository;
 import com.skillhub.repository.CourseRepository;
 import com.skillhub.repository.EnrollmentRepository;
 import com.skillhub.repository.VideoProgressRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -39,6 +41,9 @@ public class CertificateAutoIssueService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Value("${app.base.url:}")
     private String configuredBaseUrl;
 
@@ -140,6 +145,8 @@ public class CertificateAutoIssueService {
             certificate.setCertificateUrl(certificateUrl);
 
             certificateRepository.save(certificate);
+            eventPublisher.publishEvent(LearningActivityEvent.certificateIssued(
+                    studentId, courseId, course.getInstructor().getId()));
             System.out.println("Certificate issued for student: " + studentId + ", course: " + courseId);
             
             // Send certificate email notification
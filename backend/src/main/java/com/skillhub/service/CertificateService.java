@@ -4,11 +4,13 @@ import com.skillhub.dto.CertificateResponse;
 import com.skillhub.entity.Certificate;
 import com.skillhub.entity.Course;
 import com.skillhub.entity.User;
+import com.skillhub.event.LearningActivityEvent;
 import com.skillhub.repository.CertificateRepository;
 import com.skillhub.repository.CourseRepository;
 import com.skillhub.repository.VideoProgressRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
@@ -38,6 +40,9 @@ public class CertificateService {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Value("${app.base.url:}")
     private String configuredBaseUrl;
 
@@ -125,6 +130,8 @@ public class CertificateService {
         certificate.setCertificateUrl(certificateUrl);
         
         certificate = certificateRepository.save(certificate);
+        eventPublisher.publishEvent(LearningActivityEvent.certificateIssued(
+                student.getId(), course.getId(), course.getInstructor().getId()));
         
         // Send certificate email notification
         try {
@@ -146,6 +153,7 @@ public class CertificateService {
     /**
      * Get all certificates for the current student
      */
+    @Transactional(readOnly = true)
     public List<CertificateResponse> getMyCertificates() {
         User student = userService.getCurrentUser();
         List<Certificate> certificates = certificateRepository.findByStudentId(student.getId());
@@ -0,0 +1,366 @@
+package com.skillhub.service;
+
+import com.skillhub.entity.StoredVideo;
+import com.skillhub.entity.StoredVideo.Location;
+import com.skillhub.entity.User;
+import com.skillhub.entity.VideoMetadata;
+import com.skillhub.entity.VideoUploadSession;
+import com.skillhub.repository.VideoUploadSessionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resumable video uploads: start a session with the file's size, PUT chunks at increasing offsets,
+ * then complete it.
+ *
+ * Chunks are read straight from the request body into a ".part" file in the videos directory, so
+ * nothing is buffered to a temp file first, and completing the upload is a rename. Each chunk
+ * carries a SHA-256 checksum; a chunk that fails it is cut off again and the client retries it
+ * from the last acknowledged offset.
+ *
+ * The whole file is hashed as the chunks arrive, so completing an upload can file it under its
+ * content hash without reading it again. A client that sends the file's SHA-256 up front skips
+ * the upload entirely when that content is already stored.
+ */
+@Service
+public class ChunkedVideoUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedVideoUploadService.class);
+
+    @Autowired
+    private VideoUploadSessionRepository sessionRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+
+    @Autowired
+    private VideoStorageService videoStorageService;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    @Value("${app.upload.video.max-bytes:524288000}")
+    private long maxVideoBytes;
+
+    @Value("${app.upload.video.max-chunk-bytes:16777216}")
+    private long maxChunkBytes;
+
+    @Value("${app.upload.session.ttl-ms:86400000}")
+    private long sessionTtlMs;
+
+    // One chunk at a time per upload
+    private final Map<String, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    // Hash of each upload's bytes so far; lost on restart, in which case complete() reads the file again
+    private final Map<String, RunningDigest> digests = new ConcurrentHashMap<>();
+
+    private record RunningDigest(MessageDigest digest, long offset) {
+    }
+
+    /**
+     * Thrown when a chunk does not start where the upload currently ends
+     */
+    public static class OffsetMismatchException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final long currentOffset;
+
+        public OffsetMismatchException(String message, long currentOffset) {
+            super(message);
+            this.currentOffset = currentOffset;
+        }
+
+        public long getCurrentOffset() {
+            return currentOffset;
+        }
+    }
+
+    public long getMaxChunkBytes() {
+        return maxChunkBytes;
+    }
+
+    /**
+     * @param sha256Hex the whole file's hash, if the client knows it; known content completes at once
+     */
+    public VideoUploadSession start(String originalFilename, String contentType, long size,
+                                    String sha256Hex) throws IOException {
+        User currentUser = userService.getCurrentUser();
+        String role = currentUser.getRole().getRoleName();
+        if (!role.equals("INSTRUCTOR") && !role.equals("ADMIN")) {
+            throw new RuntimeException("Access denied. Instructor role required.");
+        }
+        if (size <= 0) {
+            throw new RuntimeException("File is empty");
+        }
+        if (size > maxVideoBytes) {
+            throw new RuntimeException("File size exceeds " + maxVideoBytes / (1024 * 1024) + "MB");
+        }
+        if (contentType != null && !contentType.startsWith("video/")) {
+            throw new RuntimeException("File must be a video");
+        }
+
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                : ".mp4";
+        LocalDateTime now = LocalDateTime.now();
+        Optional<StoredVideo> stored = videoStorageService.findStored(sha256Hex, Location.LOCAL);
+        if (stored.isPresent() && stored.get().getSize() == size) {
+            logger.info("Upload of {} matches stored video {}", originalFilename, stored.get().getStorageKey());
+            return sessionRepository.save(new VideoUploadSession(UUID.randomUUID().toString(), currentUser.getId(),
+                    stored.get().getStorageKey(), originalFilename, contentType, size, size, true, now, now));
+        }
+
+        VideoUploadSession session = new VideoUploadSession(UUID.randomUUID().toString(), currentUser.getId(),
+                UUID.randomUUID() + extension, originalFilename, contentType, size, 0, false, now, now);
+
+        Files.createDirectories(videosDir());
+        Files.deleteIfExists(partPath(session));
+        Files.createFile(partPath(session));
+        return sessionRepository.save(session);
+    }
+
+    /**
+     * Look up an upload of the current user
+     */
+    public VideoUploadSession getSession(String uploadId) {
+        VideoUploadSession session = sessionRepository.findById(uploadId)
+                .orElseThrow(() -> new RuntimeException("Upload not found"));
+        User currentUser = userService.getCurrentUser();
+        if (!session.getUserId().equals(currentUser.getId()) &&
+            !currentUser.getRole().getRoleName().equals("ADMIN")) {
+            throw new RuntimeException("Upload not found");
+        }
+        return session;
+    }
+
+    /**
+     * Write one chunk at the given offset
+     *
+     * @param length the request's Content-Length, or -1 if it did not send one
+     */
+    public VideoUploadSession appendChunk(String uploadId, long offset, long length, String sha256Hex,
+                                          InputStream body) throws IOException {
+        // Everything that can be checked from the headers is checked before reading the body
+        if (length < 0) {
+            throw new RuntimeException("Content-Length header is required");
+        }
+        if (length == 0) {
+            throw new RuntimeException("Chunk is empty");
+        }
+        if (length > maxChunkBytes) {
+            throw new RuntimeException("Chunk exceeds " + maxChunkBytes + " bytes");
+        }
+        byte[] expectedDigest;
+        try {
+            expectedDigest = HexFormat.of().parseHex(sha256Hex != null ? sha256Hex.trim() : "");
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Invalid chunk checksum");
+        }
+        if (expectedDigest.length != 32) {
+            throw new RuntimeException("A hex SHA-256 checksum of the chunk is required");
+        }
+
+        ReentrantLock lock = locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            throw new OffsetMismatchException("Another chunk of this upload is still being written",
+                    getSession(uploadId).getReceivedBytes());
+        }
+        try {
+            VideoUploadSession session = getSession(uploadId);
+            if (session.isCompleted()) {
+                throw new RuntimeException("Upload is already complete");
+            }
+            if (offset != session.getReceivedBytes()) {
+                throw new OffsetMismatchException("Upload continues at offset " + session.getReceivedBytes(),
+                        session.getReceivedBytes());
+            }
+            if (offset + length > session.getTotalSize()) {
+                throw new RuntimeException("Chunk runs past the declared file size");
+            }
+
+            try (FileChannel channel = FileChannel.open(partPath(session), StandardOpenOption.WRITE)) {
+                // Drop anything an interrupted chunk left behind
+                channel.truncate(offset);
+                MessageDigest digest = VideoStorageService.sha256();
+                MessageDigest fileDigest = continueDigest(uploadId, offset);
+                long written = copy(body, channel, offset, length, digest, fileDigest);
+                if (written < length) {
+                    channel.truncate(offset);
+                    throw new RuntimeException("Chunk ended after " + written + " of " + length + " bytes");
+                }
+                if (!MessageDigest.isEqual(digest.digest(), expectedDigest)) {
+                    channel.truncate(offset);
+                    throw new RuntimeException("Chunk checksum does not match");
+                }
+                // The offset is acknowledged below, so the bytes must survive a crash
+                channel.force(false);
+                if (fileDigest != null) {
+                    digests.put(uploadId, new RunningDigest(fileDigest, offset + length));
+                }
+            }
+
+            session.setReceivedBytes(offset + length);
+            session.setUpdatedAt(LocalDateTime.now());
+            return sessionRepository.save(session);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * File the finished upload under its content hash and read its MP4 metadata. Completing twice
+     * is harmless.
+     */
+    public Optional<VideoMetadata> complete(String uploadId) throws IOException {
+        ReentrantLock lock = locks.computeIfAbsent(uploadId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            VideoUploadSession session = getSession(uploadId);
+            if (!session.isCompleted()) {
+                if (session.getReceivedBytes() != session.getTotalSize()) {
+                    throw new RuntimeException("Upload incomplete: " + session.getReceivedBytes() +
+                            " of " + session.getTotalSize() + " bytes received");
+                }
+                Path part = partPath(session);
+                RunningDigest running = digests.get(uploadId);
+                String hash;
+                if (running != null && running.offset() == session.getTotalSize()) {
+                    hash = HexFormat.of().formatHex(running.digest().digest());
+                } else {
+                    try (InputStream uploaded = Files.newInputStream(part)) {
+                        hash = VideoStorageService.sha256Hex(uploaded);
+                    }
+                }
+                String filename = session.getFilename();
+                StoredVideo stored = videoStorageService.adoptLocal(part, hash,
+                        filename.substring(filename.lastIndexOf(".")), session.getTotalSize()).video();
+                session.setFilename(stored.getStorageKey());
+                session.setCompleted(true);
+                session.setUpdatedAt(LocalDateTime.now());
+                sessionRepository.save(session);
+                logger.info("Chunked upload {} completed as {} ({} bytes)", uploadId, session.getFilename(),
+                        session.getTotalSize());
+            }
+            Optional<VideoMetadata> metadata = videoMetadataService.find(session.getFilename());
+            if (metadata.isPresent()) {
+                return metadata;
+            }
+            try (InputStream stored = videoStorageService.openLocal(session.getFilename())) {
+                return videoMetadataService.extract(session.getFilename(), stored);
+            }
+        } finally {
+            lock.unlock();
+            locks.remove(uploadId);
+            digests.remove(uploadId);
+        }
+    }
+
+    public void abort(String uploadId) throws IOException {
+        VideoUploadSession session = getSession(uploadId);
+        if (session.isCompleted()) {
+            throw new RuntimeException("Upload is already complete");
+        }
+        Files.deleteIfExists(partPath(session));
+        sessionRepository.delete(session);
+        locks.remove(uploadId);
+        digests.remove(uploadId);
+    }
+
+    /**
+     * Forget uploads that have not moved for the TTL, deleting their partial files
+     */
+    @Scheduled(fixedDelayString = "${app.upload.session.cleanup-interval-ms:3600000}")
+    public void removeStaleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(sessionTtlMs));
+        for (VideoUploadSession session : sessionRepository.findByUpdatedAtBefore(cutoff)) {
+            try {
+                if (!session.isCompleted()) {
+                    Files.deleteIfExists(partPath(session));
+                    logger.info("Removed abandoned upload {} at {} of {} bytes", session.getId(),
+                            session.getReceivedBytes(), session.getTotalSize());
+                }
+                sessionRepository.delete(session);
+                locks.remove(session.getId());
+                digests.remove(session.getId());
+            } catch (Exception e) {
+                logger.warn("Could not remove upload {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the upload's running hash if it covers exactly the bytes before offset, else null
+     */
+    private MessageDigest continueDigest(String uploadId, long offset) {
+        if (offset == 0) {
+            return VideoStorageService.sha256();
+        }
+        RunningDigest running = digests.get(uploadId);
+        if (running == null || running.offset() != offset) {
+            digests.remove(uploadId);
+            return null;
+        }
+        try {
+            // A chunk that fails must not leave its bytes in the running hash
+            return (MessageDigest) running.digest().clone();
+        } catch (CloneNotSupportedException e) {
+            digests.remove(uploadId);
+            return null;
+        }
+    }
+
+    private static long copy(InputStream body, FileChannel channel, long position, long length,
+                             MessageDigest digest, MessageDigest fileDigest) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(64 * 1024, length)];
+        long written = 0;
+        while (written < length) {
+            int read = body.read(buffer, 0, (int) Math.min(buffer.length, length - written));
+            if (read < 0) {
+                break;
+            }
+            digest.update(buffer, 0, read);
+            if (fileDigest != null) {
+                fileDigest.update(buffer, 0, read);
+            }
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+            while (chunk.hasRemaining()) {
+                channel.write(chunk, position + written + chunk.position());
+            }
+            written += read;
+        }
+        return written;
+    }
+
+    private Path videosDir() {
+        return Paths.get(uploadDir, "videos");
+    }
+
+    private Path partPath(VideoUploadSession session) {
+        return videosDir().resolve(session.getFilename() + ".part");
+    }
+}
@@ -6,6 +6,7 @@ import com.skillhub.entity.Course;
 import com.skillhub.entity.User;
 import com.skillhub.repository.CourseRepository;
 import com.skillhub.repository.CertificateRepository;
+import com.skillhub.repository.CourseActivityBucketRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -13,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -33,6 +35,19 @@ public class CourseService {
     @Autowired
     private CertificateRepository certificateRepository;
 
+    @Autowired
+    private CourseActivityBucketRepository courseActivityBucketRepository;
+
+    @Autowired
+    private EnrollmentMembershipIndex enrollmentMembershipIndex;
+
+    @Autowired
+    private SeatAllocationService seatAllocationService;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Transactional(readOnly = true)
     public List<CourseResponse> getAllCourses() {
         logger.info("Starting getAllCourses method");
         try {
@@ -58,7 +73,7 @@ public class CourseService {
                                     course.getId(),
                                     course.getTitle(),
                                     course.getDescription(),
-                                    course.getThumbnail(),
+                                    imageDerivativeService.catalogThumbnail(course.getThumbnail(), course.getThumbnailWidths()),
                                     lessonCount,
                                     instructor != null ? new CourseResponse.InstructorInfo(
                                             instructor.getId(),
@@ -77,7 +92,7 @@ public class CourseService {
                                     course.getId(),
                                     course.getTitle(),
                                     course.getDescription(),
-                                    course.getThumbnail(),
+                                    imageDerivativeService.catalogThumbnail(course.getThumbnail(), course.getThumbnailWidths()),
                                     0L,
                                     new CourseResponse.InstructorInfo(
                                             null,
@@ -95,6 +110,7 @@ public class CourseService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<Course> getAllCoursesAsEntities() {
         return courseRepository.findAll();
     }
@@ -106,9 +122,15 @@ public class CourseService {
         course.setTitle(courseRequest.getTitle());
         course.setDescription(courseRequest.getDescription());
         course.setThumbnail(courseRequest.getThumbnail());
+        course.setThumbnailWidths(imageDerivativeService.availableWidths(courseRequest.getThumbnail()));
         course.setInstructor(instructor);
+        course.setCapacity(normalizeCapacity(courseRequest.getCapacity()));
         
-        return courseRepository.save(course);
+        Course saved = courseRepository.save(course);
+        if (saved.getCapacity() != null) {
+            seatAllocationService.configure(saved.getId(), saved.getCapacity());
+        }
+        return saved;
     }
 
     public Optional<Course> getCourseById(Long id) {
@@ -122,6 +144,7 @@ public class CourseService {
         return courseOpt;
     }
     
+    @Transactional(readOnly = true)
     public Optional<Course> getCourseByIdPublic(Long id) {
         // Public version that doesn't require authentication
         try {
@@ -141,6 +164,7 @@ public class CourseService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<Course> getCoursesByInstructor(User instructor) {
         return courseRepository.findByInstructor(instructor);
     }
@@ -157,9 +181,12 @@ public class CourseService {
         
         course.setTitle(courseRequest.getTitle());
         course.setDescription(courseRequest.getDescription());
-        course.setThumbnail(courseRequest.getThumbnail());
+        if (!Objects.equals(course.getThumbnail(), courseRequest.getThumbnail())) {
+            course.setThumbnail(courseRequest.getThumbnail());
+            course.setThumbnailWidths(imageDerivativeService.availableWidths(courseRequest.getThumbnail()));
+        }
         
-        return courseRepository.save(course);
+        return saveWithCapacity(course, courseRequest.getCapacity());
     }
 
     @Transactional
@@ -177,12 +204,15 @@ public class CourseService {
         try {
             // Delete certificates manually (not cascaded as requested)
             certificateRepository.deleteByCourseId(id);
+            courseActivityBucketRepository.deleteByCourseId(id);
+            seatAllocationService.deleteCourse(id);
             
             // Delete the course - this will cascade delete:
             // 1. Lessons (via CascadeType.ALL on @OneToMany)
             // 2. Enrollments (via CascadeType.ALL + orphanRemoval on @OneToMany)
             // 3. VideoProgress (via Lesson -> VideoProgress cascade)
             courseRepository.delete(course);
+            enrollmentMembershipIndex.evictCourse(id);
             
             logger.info("Course {} deleted successfully with cascade delete", id);
         } catch (Exception e) {
@@ -204,8 +234,27 @@ public class CourseService {
         }
         if (courseDetails.getInstructor() != null) {
             course.setInstructor(courseDetails.getInstructor());
+            lessonService.clearOwnershipCache();
+        }
+
+        return saveWithCapacity(course, courseDetails.getCapacity());
+    }
+
+    private Course saveWithCapacity(Course course, Integer requestedCapacity) {
+        if (requestedCapacity == null) {
+            return courseRepository.save(course);
         }
+        Integer capacity = normalizeCapacity(requestedCapacity);
+        boolean changed = !Objects.equals(course.getCapacity(), capacity);
+        course.setCapacity(capacity);
+        Course saved = courseRepository.save(course);
+        if (changed) {
+            seatAllocationService.configure(saved.getId(), capacity);
+        }
+        return saved;
+    }
 
-        return courseRepository.save(course);
+    private static Integer normalizeCapacity(Integer capacity) {
+        return capacity != null && capacity > 0 ? capacity : null;
     }
 }
@@ -0,0 +1,379 @@
+package com.skillhub.service;
+
+import com.skillhub.dto.CertificateResponse;
+import com.skillhub.dto.EnrollmentSummary;
+import com.skillhub.entity.User;
+import com.skillhub.repository.CertificateRepository;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.LessonRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.repository.VideoProgressRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Builds dashboard payloads from aggregate queries instead of loading whole tables.
+ * Independent sections are fetched concurrently; a section that fails, times out or finds the
+ * pool full falls back to an empty value and is listed under "unavailableSections". Each section's
+ * queries carry the same timeout, so the database stops working on a section nobody waits for.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private VideoProgressRepository videoProgressRepository;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    @Qualifier("dashboardExecutor")
+    private Executor dashboardExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.dashboard.admin.cache-ttl-ms:30000}")
+    private long adminDashboardTtlMs;
+
+    @Value("${app.dashboard.section-timeout-ms:2000}")
+    private long sectionTimeoutMs;
+
+    private volatile CachedPayload adminDashboard;
+
+    private final AtomicReference<Map<String, Object>> publicStats = new AtomicReference<>();
+
+    /**
+     * Admin dashboard, served from a short-lived cache so repeated polling costs no queries
+     */
+    public Map<String, Object> getAdminDashboard() {
+        CachedPayload cached = adminDashboard;
+        if (cached != null && !cached.isExpired()) {
+            return cached.payload();
+        }
+        synchronized (this) {
+            cached = adminDashboard;
+            if (cached != null && !cached.isExpired()) {
+                return cached.payload();
+            }
+            Map<String, Object> dashboard = buildAdminDashboard();
+            // Partial payloads are served but not cached, so the next poll retries the failed sections
+            if (!dashboard.containsKey("unavailableSections")) {
+                adminDashboard = new CachedPayload(dashboard, System.currentTimeMillis() + adminDashboardTtlMs);
+            }
+            return dashboard;
+        }
+    }
+
+    /**
+     * Platform-wide counters for the admin stats endpoint
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> getAdminStats() {
+        Map<String, Long> roleCounts = countUsersByRole();
+        long totalUsers = roleCounts.values().stream().mapToLong(Long::longValue).sum();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("totalUsers", totalUsers);
+        stats.put("totalStudents", roleCounts.getOrDefault("STUDENT", 0L));
+        stats.put("totalInstructors", roleCounts.getOrDefault("INSTRUCTOR", 0L));
+        stats.put("totalAdmins", roleCounts.getOrDefault("ADMIN", 0L));
+        stats.put("totalCourses", courseRepository.count());
+        stats.put("totalEnrollments", enrollmentRepository.count());
+        return stats;
+    }
+
+    /**
+     * Public landing-page stats. Served from the last snapshot; only computed inline before the first refresh
+     *
+     * @return null until one refresh has succeeded
+     */
+    public Map<String, Object> getPublicStats() {
+        Map<String, Object> snapshot = publicStats.get();
+        if (snapshot == null) {
+            refreshPublicStats();
+            snapshot = publicStats.get();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Recompute the public stats snapshot and swap it in. A failed refresh keeps serving the previous
+     * snapshot, or none at all if there has never been one
+     */
+    @Scheduled(fixedDelayString = "${app.stats.public.refresh-interval-ms:60000}")
+    public void refreshPublicStats() {
+        try {
+            Map<String, Long> roleCounts = countUsersByRole();
+
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("totalStudents", roleCounts.getOrDefault("STUDENT", 0L).intValue());
+            stats.put("totalInstructors", roleCounts.getOrDefault("INSTRUCTOR", 0L).intValue());
+            stats.put("totalCourses", (int) courseRepository.count());
+            publicStats.set(stats);
+        } catch (Exception e) {
+            logger.warn("Could not refresh public stats: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Instructor dashboard built from per-course grouped counts, independent of the number of enrolled students
+     */
+    public Map<String, Object> getInstructorDashboard(User instructor) {
+        Long instructorId = instructor.getId();
+        Set<String> failedSections = ConcurrentHashMap.newKeySet();
+
+        CompletableFuture<List<Object[]>> courses = section("myCourses",
+                () -> courseRepository.findCourseSummariesByInstructorId(instructorId), List.of(), failedSections);
+        CompletableFuture<Map<Long, Long>> lessonCountsFuture = section("lessonCounts",
+                () -> toCountMap(lessonRepository.countLessonsPerCourseByInstructorId(instructorId)), Map.of(), failedSections);
+        CompletableFuture<Map<Long, Long>> enrollmentCountsFuture = section("enrollmentCounts",
+                () -> toCountMap(enrollmentRepository.countEnrollmentsPerCourseByInstructorId(instructorId)), Map.of(), failedSections);
+        CompletableFuture<Long> totalStudents = section("totalStudents",
+                () -> enrollmentRepository.countDistinctStudentsByInstructorId(instructorId), 0L, failedSections);
+
+        Map<Long, Long> lessonCounts = lessonCountsFuture.join();
+        Map<Long, Long> enrollmentCounts = enrollmentCountsFuture.join();
+
+        Map<String, Object> instructorInfo = new HashMap<>();
+        instructorInfo.put("id", instructor.getId());
+        instructorInfo.put("name", instructor.getName());
+        instructorInfo.put("email", instructor.getEmail());
+
+        List<Map<String, Object>> myCourses = courses.join().stream()
+                .map(row -> {
+                    Long courseId = (Long) row[0];
+                    Map<String, Object> courseData = new HashMap<>();
+                    courseData.put("id", courseId);
+                    courseData.put("title", row[1]);
+                    courseData.put("description", row[2]);
+                    courseData.put("thumbnail", imageDerivativeService.catalogThumbnail((String) row[3], (String) row[4]));
+                    courseData.put("instructor", instructorInfo);
+                    courseData.put("lessonCount", lessonCounts.getOrDefault(courseId, 0L));
+                    courseData.put("enrollmentCount", enrollmentCounts.getOrDefault(courseId, 0L));
+                    return courseData;
+                })
+                .collect(Collectors.toList());
+
+        long totalEnrollments = enrollmentCounts.values().stream().mapToLong(Long::longValue).sum();
+
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("myCourses", myCourses);
+        dashboard.put("totalEnrollments", totalEnrollments);
+        dashboard.put("totalStudents", totalStudents.join());
+        markUnavailable(dashboard, failedSections);
+        return dashboard;
+    }
+
+    /**
+     * Student dashboard with a fixed number of queries: enrollments, lesson counts, progress and certificates
+     */
+    public Map<String, Object> getStudentDashboard(User student) {
+        Long studentId = student.getId();
+        Set<String> failedSections = ConcurrentHashMap.newKeySet();
+
+        CompletableFuture<List<EnrollmentSummary>> enrollmentsFuture = section("myEnrolledCourses",
+                () -> enrollmentRepository.findSummariesByStudentId(studentId), List.of(), failedSections);
+        CompletableFuture<Map<Long, Long>> lessonCountsFuture = section("lessonCounts",
+                () -> toCountMap(lessonRepository.countLessonsPerEnrolledCourseByStudentId(studentId)), Map.of(), failedSections);
+        CompletableFuture<Map<Long, Double>> progressFuture = section("progress",
+                () -> toProgressMap(videoProgressRepository.calculateProgressPerCourse(studentId)), Map.of(), failedSections);
+        CompletableFuture<List<CertificateResponse>> certificates = section("certificates",
+                () -> certificateRepository.findResponsesByStudentId(studentId), List.of(), failedSections);
+
+        List<EnrollmentSummary> enrollments = enrollmentsFuture.join();
+        Map<Long, Long> lessonCounts = lessonCountsFuture.join();
+        Map<Long, Double> progressByCourse = progressFuture.join();
+
+        for (EnrollmentSummary enrollment : enrollments) {
+            Long courseId = enrollment.getCourse().getId();
+            enrollment.getCourse().setLessonCount(lessonCounts.getOrDefault(courseId, 0L));
+            enrollment.getCourse().setThumbnail(imageDerivativeService.catalogThumbnail(
+                    enrollment.getCourse().getThumbnail(), enrollment.getThumbnailWidths()));
+            // Cap progress at 100%
+            double progress = Math.min(Math.max(progressByCourse.getOrDefault(courseId, 0.0), 0.0), 100.0);
+            enrollment.setProgress((int) progress);
+        }
+
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("myEnrolledCourses", enrollments);
+        dashboard.put("certificates", certificates.join());
+        markUnavailable(dashboard, failedSections);
+        return dashboard;
+    }
+
+    private Map<String, Object> buildAdminDashboard() {
+        Set<String> failedSections = ConcurrentHashMap.newKeySet();
+
+        CompletableFuture<Map<String, Long>> roleCountsFuture = section("userDistribution",
+                this::countUsersByRole, Map.of(), failedSections);
+        CompletableFuture<Long> coursesFuture = section("totalCourses", courseRepository::count, 0L, failedSections);
+        CompletableFuture<Long> enrollmentsFuture = section("totalEnrollments", enrollmentRepository::count, 0L, failedSections);
+        CompletableFuture<Long> lessonsFuture = section("totalLessons", lessonRepository::count, 0L, failedSections);
+        CompletableFuture<List<Object[]>> recentUsersFuture = section("recentUsers",
+                () -> userRepository.findRecentUserSummaries(PageRequest.of(0, 5)), List.of(), failedSections);
+        CompletableFuture<List<Object[]>> topCoursesFuture = section("topCourses",
+                () -> courseRepository.findCourseTitlesWithInstructor(PageRequest.of(0, 5)), List.of(), failedSections);
+
+        Map<String, Long> roleCounts = roleCountsFuture.join();
+        long totalUsers = roleCounts.values().stream().mapToLong(Long::longValue).sum();
+        long totalCourses = coursesFuture.join();
+        long totalEnrollments = enrollmentsFuture.join();
+
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("totalUsers", totalUsers);
+        dashboard.put("totalCourses", totalCourses);
+        dashboard.put("totalEnrollments", totalEnrollments);
+
+        // Recent users (last 5 users)
+        List<Map<String, Object>> recentUsers = recentUsersFuture.join().stream()
+                .map(row -> {
+                    Map<String, Object> userData = new HashMap<>();
+                    userData.put("name", row[0]);
+                    userData.put("email", row[1]);
+                    userData.put("role", row[2]);
+                    return userData;
+                })
+                .collect(Collectors.toList());
+        dashboard.put("recentUsers", recentUsers);
+
+        List<Map<String, Object>> topCourses = topCoursesFuture.join().stream()
+                .map(row -> {
+                    Map<String, Object> courseData = new HashMap<>();
+                    courseData.put("title", row[0]);
+                    courseData.put("instructor", row[1]);
+                    return courseData;
+                })
+                .collect(Collectors.toList());
+        dashboard.put("topCourses", topCourses);
+
+        // User distribution by role
+        Map<String, Object> userDistribution = new HashMap<>();
+        userDistribution.put("admin", roleCounts.getOrDefault("ADMIN", 0L));
+        userDistribution.put("instructor", roleCounts.getOrDefault("INSTRUCTOR", 0L));
+        userDistribution.put("student", roleCounts.getOrDefault("STUDENT", 0L));
+        userDistribution.put("total", totalUsers);
+        dashboard.put("userDistribution", userDistribution);
+
+        // Platform overview data for charts
+        Map<String, Object> platformOverview = new HashMap<>();
+        platformOverview.put("users", totalUsers);
+        platformOverview.put("courses", totalCourses);
+        platformOverview.put("enrollments", totalEnrollments);
+        platformOverview.put("lessons", lessonsFuture.join());
+        dashboard.put("platformOverview", platformOverview);
+
+        markUnavailable(dashboard, failedSections);
+        return dashboard;
+    }
+
+    /**
+     * Run one dashboard section on the dashboard pool, bounded by the section timeout
+     */
+    private <T> CompletableFuture<T> section(String name, Supplier<T> loader, T fallback, Set<String> failedSections) {
+        CompletableFuture<T> future;
+        try {
+            TransactionTemplate tx = sectionTransaction();
+            future = CompletableFuture.supplyAsync(() -> tx.execute(status -> loader.get()), dashboardExecutor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Dashboard section {} unavailable: pool is full", name);
+            failedSections.add(name);
+            return CompletableFuture.completedFuture(fallback);
+        }
+        return future
+                .orTimeout(sectionTimeoutMs, TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    logger.warn("Dashboard section {} unavailable: {}", name, ex.toString());
+                    failedSections.add(name);
+                    return fallback;
+                });
+    }
+
+    /**
+     * Read-only transaction whose timeout Hibernate passes on as the JDBC query timeout
+     */
+    private TransactionTemplate sectionTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setTimeout((int) Math.max(1, (sectionTimeoutMs + 999) / 1000));
+        return template;
+    }
+
+    private void markUnavailable(Map<String, Object> dashboard, Set<String> failedSections) {
+        if (!failedSections.isEmpty()) {
+            dashboard.put("unavailableSections", List.copyOf(failedSections));
+        }
+    }
+
+    private Map<String, Long> countUsersByRole() {
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : userRepository.countUsersByRole()) {
+            counts.put((String) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    private Map<Long, Double> toProgressMap(List<Object[]> rows) {
+        Map<Long, Double> progress = new HashMap<>();
+        for (Object[] row : rows) {
+            if (row[1] != null) {
+                progress.put((Long) row[0], ((Number) row[1]).doubleValue());
+            }
+        }
+        return progress;
+    }
+
+    private record CachedPayload(Map<String, Object> payload, long expiresAt) {
+        boolean isExpired() {
+            return System.currentTimeMillis() >= expiresAt;
+        }
+    }
+}
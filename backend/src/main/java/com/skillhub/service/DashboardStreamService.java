@@ -0,0 +1,188 @@
+package com.skillhub.service;
+
+import com.skillhub.event.LearningActivityEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes live counter deltas to admin and instructor dashboards over server-sent events.
+ *
+ * Events from the write paths only bump in-memory counters; a scheduled flush drains them once per
+ * interval and sends one message per scope. Emitters are async servlet responses, so an idle
+ * connection holds no request thread.
+ */
+@Service
+public class DashboardStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardStreamService.class);
+
+    private static final Long ADMIN_SCOPE = 0L;
+
+    @Value("${app.dashboard.stream.timeout-ms:1800000}")
+    private long emitterTimeoutMs;
+
+    @Value("${app.dashboard.stream.active-window-ms:300000}")
+    private long activeWindowMs;
+
+    // scope (0 = admin, otherwise instructor id) -> connected emitters
+    private final Map<Long, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    // scope -> counters accumulated since the last flush
+    private final Map<Long, Counters> pending = new ConcurrentHashMap<>();
+
+    // scope -> studentId -> last activity timestamp
+    private final Map<Long, Map<Long, Long>> activeLearners = new ConcurrentHashMap<>();
+
+    // scope -> active learner count last sent, so unchanged gauges are not re-sent
+    private final Map<Long, Integer> lastActiveSent = new ConcurrentHashMap<>();
+
+    public SseEmitter subscribeAdmin() {
+        return subscribe(ADMIN_SCOPE);
+    }
+
+    public SseEmitter subscribeInstructor(Long instructorId) {
+        return subscribe(instructorId);
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Counted once the write commits, so rolled-back enrollments and completions never reach a dashboard
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onLearningActivity(LearningActivityEvent event) {
+        record(ADMIN_SCOPE, event);
+        if (event.getInstructorId() != null) {
+            record(event.getInstructorId(), event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.stream.flush-interval-ms:2000}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Set<SseEmitter>> entry : subscribers.entrySet()) {
+            Long scope = entry.getKey();
+            Set<SseEmitter> emitters = entry.getValue();
+            if (emitters.isEmpty()) {
+                continue;
+            }
+
+            Counters counters = pending.get(scope);
+            long enrollments = counters != null ? counters.enrollments.getAndSet(0) : 0L;
+            long completions = counters != null ? counters.completions.getAndSet(0) : 0L;
+            long certificates = counters != null ? counters.certificates.getAndSet(0) : 0L;
+            int active = countActive(scope, now);
+            Integer previousActive = lastActiveSent.get(scope);
+            if (enrollments == 0 && completions == 0 && certificates == 0
+                    && previousActive != null && previousActive == active) {
+                continue;
+            }
+            lastActiveSent.put(scope, active);
+
+            Map<String, Object> delta = new HashMap<>();
+            delta.put("newEnrollments", enrollments);
+            delta.put("completions", completions);
+            delta.put("certificatesIssued", certificates);
+            delta.put("activeLearners", active);
+
+            for (SseEmitter emitter : emitters) {
+                send(scope, emitter, SseEmitter.event().name("counters").data(delta));
+            }
+        }
+        // Scopes nobody is listening to should not accumulate counters forever
+        pending.keySet().retainAll(subscribers.keySet());
+        activeLearners.keySet().retainAll(subscribers.keySet());
+    }
+
+    /**
+     * Comment line every so often so proxies and load balancers keep idle streams open
+     */
+    @Scheduled(fixedDelayString = "${app.dashboard.stream.keepalive-interval-ms:30000}")
+    public void keepAlive() {
+        subscribers.forEach((scope, emitters) -> {
+            for (SseEmitter emitter : emitters) {
+                send(scope, emitter, SseEmitter.event().comment("keepalive"));
+            }
+        });
+    }
+
+    private SseEmitter subscribe(Long scope) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        subscribers.compute(scope, (k, emitters) -> {
+            Set<SseEmitter> updated = emitters != null ? emitters : ConcurrentHashMap.newKeySet();
+            updated.add(emitter);
+            return updated;
+        });
+        emitter.onCompletion(() -> unsubscribe(scope, emitter));
+        emitter.onTimeout(() -> unsubscribe(scope, emitter));
+        emitter.onError(e -> unsubscribe(scope, emitter));
+        // Force the first gauge to be sent on the next flush
+        lastActiveSent.remove(scope);
+        return emitter;
+    }
+
+    private void unsubscribe(Long scope, SseEmitter emitter) {
+        subscribers.computeIfPresent(scope, (k, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private void send(Long scope, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping dashboard stream subscriber: {}", e.getMessage());
+            unsubscribe(scope, emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    private void record(Long scope, LearningActivityEvent event) {
+        if (!subscribers.containsKey(scope)) {
+            return;
+        }
+        switch (event.getType()) {
+            case ENROLLMENT -> counters(scope).enrollments.incrementAndGet();
+            case LESSON_COMPLETED -> counters(scope).completions.incrementAndGet();
+            case CERTIFICATE_ISSUED -> counters(scope).certificates.incrementAndGet();
+            case LESSON_PROGRESS -> activeLearners
+                    .computeIfAbsent(scope, k -> new ConcurrentHashMap<>())
+                    .put(event.getStudentId(), System.currentTimeMillis());
+        }
+    }
+
+    private Counters counters(Long scope) {
+        return pending.computeIfAbsent(scope, k -> new Counters());
+    }
+
+    private int countActive(Long scope, long now) {
+        Map<Long, Long> learners = activeLearners.get(scope);
+        if (learners == null) {
+            return 0;
+        }
+        learners.values().removeIf(lastSeen -> now - lastSeen > activeWindowMs);
+        return learners.size();
+    }
+
+    private static class Counters {
+        private final AtomicLong enrollments = new AtomicLong();
+        private final AtomicLong completions = new AtomicLong();
+        private final AtomicLong certificates = new AtomicLong();
+    }
+}
@@ -0,0 +1,282 @@
+package com.skillhub.service;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.skillhub.dto.LessonOwnership;
+import com.skillhub.entity.DirectVideoUpload;
+import com.skillhub.entity.Lesson;
+import com.skillhub.entity.StoredVideo;
+import com.skillhub.entity.StoredVideo.Location;
+import com.skillhub.entity.User;
+import com.skillhub.repository.DirectVideoUploadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Video uploads that go from the browser straight to the videos bucket.
+ *
+ * The client asks for a presigned PUT for the file's SHA-256, uploads to it, and then reports the
+ * upload as done for a lesson. The object key is the content hash, and the signature includes the
+ * x-amz-checksum-sha256 header, so S3 itself rejects a body that does not match the hash. The
+ * completion only checks the object with a HEAD and reads the MP4 header boxes with ranged GETs;
+ * the video data never passes through the backend.
+ *
+ * Objects are registered when the URL is issued, without references, so uploads that are never
+ * completed are collected like any other unused video.
+ *
+ * The hash is part of every S3 video URL, so it proves nothing by itself. Each URL is recorded
+ * for the user it was issued to, and a completion is only accepted from that user, for an object
+ * written after the URL was issued. Content already in the bucket is only reused without an upload
+ * for users who have uploaded it themselves before.
+ */
+@Service
+public class DirectVideoUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirectVideoUploadService.class);
+
+    private static final String CHECKSUM_HEADER = "x-amz-checksum-sha256";
+
+    @Autowired
+    private AmazonS3 s3Client;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private LessonService lessonService;
+
+    @Autowired
+    private VideoStorageService videoStorageService;
+
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+
+    @Autowired
+    private DirectVideoUploadRepository directVideoUploadRepository;
+
+    @Value("${aws.s3.bucket.videos}")
+    private String videosBucket;
+
+    @Value("${app.upload.video.max-bytes:524288000}")
+    private long maxVideoBytes;
+
+    @Value("${aws.s3.presigned.upload.expiration:3600}")
+    private long uploadUrlExpiration;
+
+    // Allowed difference between this server's clock and S3's when checking when an object was written
+    @Value("${app.upload.direct.clock-skew-ms:30000}")
+    private long clockSkewMs;
+
+    /**
+     * Issue a presigned PUT for a video with the given content hash
+     *
+     * @return uploadUrl, method and headers for the upload and the videoUrl to record, or just the
+     * videoUrl with deduplicated=true when the content is in the bucket already
+     */
+    public Map<String, Object> presign(String originalFilename, String contentType, long size, String sha256Hex) {
+        User currentUser = userService.getCurrentUser();
+        requireInstructor(currentUser);
+        if (sha256Hex == null || !sha256Hex.matches("[0-9a-fA-F]{64}")) {
+            throw new RuntimeException("The file's SHA-256 is required");
+        }
+        if (size <= 0) {
+            throw new RuntimeException("File is empty");
+        }
+        if (size > maxVideoBytes) {
+            throw new RuntimeException("File size exceeds " + maxVideoBytes / (1024 * 1024) + "MB");
+        }
+        if (contentType == null || !contentType.startsWith("video/")) {
+            throw new RuntimeException("File must be a video");
+        }
+        String hash = sha256Hex.toLowerCase();
+
+        Map<String, Object> response = new HashMap<>();
+        Optional<DirectVideoUpload> upload = directVideoUploadRepository.findByContentHashAndUserId(hash, currentUser.getId());
+        Optional<StoredVideo> stored = videoStorageService.findStored(hash, Location.S3);
+        if (stored.isPresent() && stored.get().getSize() == size && upload.map(DirectVideoUpload::isVerified).orElse(false)) {
+            logger.info("Direct upload of {} matches stored video {}", originalFilename, stored.get().getObjectKey());
+            response.put("videoUrl", stored.get().getStorageKey());
+            response.put("deduplicated", true);
+            return response;
+        }
+
+        String key;
+        String videoUrl;
+        if (stored.isPresent()) {
+            // In the bucket, but not uploaded by this user: the upload rewrites the same bytes
+            key = stored.get().getObjectKey();
+            videoUrl = stored.get().getStorageKey();
+        } else {
+            String extension = originalFilename != null && originalFilename.contains(".")
+                    ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                    : null;
+            key = "videos/" + hash + VideoStorageService.normalizeExtension(extension);
+            videoUrl = videoStorageService.register(hash, Location.S3, s3Client.getUrl(videosBucket, key).toString(),
+                    key, size).video().getStorageKey();
+        }
+
+        DirectVideoUpload issued = upload.orElseGet(() -> new DirectVideoUpload(null, hash, currentUser.getId(), null, false));
+        issued.setIssuedAt(LocalDateTime.now());
+        issued.setVerified(false);
+        directVideoUploadRepository.save(issued);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Content-Type", contentType);
+        headers.put(CHECKSUM_HEADER, Base64.getEncoder().encodeToString(HexFormat.of().parseHex(hash)));
+
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(videosBucket, key, HttpMethod.PUT);
+        request.setExpiration(new Date(System.currentTimeMillis() + uploadUrlExpiration * 1000));
+        request.setContentType(contentType);
+        request.putCustomRequestHeader(CHECKSUM_HEADER, headers.get(CHECKSUM_HEADER));
+
+        response.put("uploadUrl", s3Client.generatePresignedUrl(request).toString());
+        response.put("method", "PUT");
+        response.put("headers", headers);
+        response.put("videoUrl", videoUrl);
+        response.put("deduplicated", false);
+        return response;
+    }
+
+    /**
+     * Record an uploaded video on a lesson of the current instructor, once it is in the bucket
+     */
+    public Lesson complete(String sha256Hex, Long lessonId) {
+        User currentUser = userService.getCurrentUser();
+        requireInstructor(currentUser);
+        if (sha256Hex == null || lessonId == null) {
+            throw new RuntimeException("sha256 and lessonId are required");
+        }
+        LessonOwnership ownership = lessonService.getLessonOwnership(lessonId)
+                .orElseThrow(() -> new RuntimeException("Lesson not found"));
+        if (!ownership.getInstructorId().equals(currentUser.getId()) &&
+            !currentUser.getRole().getRoleName().equals("ADMIN")) {
+            throw new RuntimeException("You can only update your own lessons");
+        }
+
+        String hash = sha256Hex.toLowerCase();
+        DirectVideoUpload upload = directVideoUploadRepository.findByContentHashAndUserId(hash, currentUser.getId())
+                .orElseThrow(() -> new RuntimeException("No upload of this video was started by you"));
+        StoredVideo video = videoStorageService.findStored(hash, Location.S3)
+                .orElseThrow(() -> new RuntimeException("Video has not been uploaded"));
+        ObjectMetadata metadata = s3Client.getObjectMetadata(videosBucket, video.getObjectKey());
+        if (metadata.getContentLength() != video.getSize()) {
+            throw new RuntimeException("Uploaded video has " + metadata.getContentLength() + " bytes, expected " + video.getSize());
+        }
+        if (!upload.isVerified()) {
+            // An object that was there before the URL was issued is someone else's upload
+            long issuedAt = upload.getIssuedAt().truncatedTo(ChronoUnit.SECONDS).atZone(ZoneId.systemDefault())
+                    .toInstant().toEpochMilli();
+            if (metadata.getLastModified() == null || metadata.getLastModified().getTime() < issuedAt - clockSkewMs) {
+                throw new RuntimeException("Video has not been uploaded");
+            }
+            upload.setVerified(true);
+            directVideoUploadRepository.save(upload);
+        }
+
+        if (videoMetadataService.find(video.getStorageKey()).isEmpty()) {
+            try (InputStream in = new RangedObjectStream(video.getObjectKey(), video.getSize())) {
+                videoMetadataService.extract(video.getStorageKey(), in);
+            } catch (IOException e) {
+                logger.warn("Could not read {} from S3: {}", video.getObjectKey(), e.getMessage());
+            }
+        }
+
+        Lesson lesson = lessonService.getLessonById(lessonId)
+                .orElseThrow(() -> new RuntimeException("Lesson not found"));
+        lesson.setVideoUrl(video.getStorageKey());
+        // The uploaded video replaces a locally stored one
+        lesson.setVideoFilename(null);
+        return lessonService.updateLesson(lesson);
+    }
+
+    private static void requireInstructor(User user) {
+        String role = user.getRole().getRoleName();
+        if (!role.equals("INSTRUCTOR") && !role.equals("ADMIN")) {
+            throw new RuntimeException("Access denied. Instructor role required.");
+        }
+    }
+
+    /**
+     * Reads an S3 object with ranged GETs. Skipping ahead closes the current request and opens a
+     * new one at the target offset, so the MP4 parser only downloads the boxes it reads, not the
+     * media data between them.
+     */
+    private class RangedObjectStream extends InputStream {
+        private final String key;
+        private final long size;
+        private long position;
+        private S3Object object;
+        private InputStream in;
+
+        private RangedObjectStream(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (position >= size) {
+                return -1;
+            }
+            if (in == null) {
+                object = s3Client.getObject(new GetObjectRequest(videosBucket, key).withRange(position, size - 1));
+                in = object.getObjectContent();
+            }
+            int read = in.read(buffer, offset, length);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            long skipped = Math.max(0, Math.min(count, size - position));
+            if (skipped > 0) {
+                closeObject();
+                position += skipped;
+            }
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeObject();
+        }
+
+        private void closeObject() throws IOException {
+            if (object != null) {
+                // Without abort the client would drain the rest of the range to reuse the connection
+                object.getObjectContent().abort();
+                object.close();
+                object = null;
+                in = null;
+            }
+        }
+    }
+}
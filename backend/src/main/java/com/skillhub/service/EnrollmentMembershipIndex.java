@@ -0,0 +1,224 @@
+package com.skillhub.service;
+
+import com.skillhub.repository.EnrollmentRepository;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory set of enrolled student ids per course, kept as compressed bitmaps.
+ *
+ * A course is loaded with one query the first time it is checked and then kept in step by
+ * {@link #added} and {@link #removed}, so repeated lesson access checks never touch the database.
+ * Courses are evicted least-recently-used once the bitmaps exceed the byte budget, and reloaded
+ * after a TTL so enrollments made on other nodes are eventually picked up. Loads read from the
+ * primary: a replica that has not caught up with a new enrollment would otherwise have its
+ * "not enrolled" answer cached for the whole TTL.
+ */
+@Component
+public class EnrollmentMembershipIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(EnrollmentMembershipIndex.class);
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final TransactionTemplate readWriteTransaction;
+    private final long maxBytes;
+    private final long ttlMs;
+
+    private final Map<Long, Membership> courses = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong accessClock = new AtomicLong();
+
+    // Bumped on every change to a course's enrollments. A load that raced with a change is not
+    // installed, otherwise the bitmap read before the change would hide it.
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    public EnrollmentMembershipIndex(EnrollmentRepository enrollmentRepository,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${app.enrollment.index.max-bytes:67108864}") long maxBytes,
+                                     @Value("${app.enrollment.index.ttl-ms:600000}") long ttlMs) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.readWriteTransaction = new TransactionTemplate(transactionManager);
+        this.maxBytes = maxBytes;
+        this.ttlMs = ttlMs;
+    }
+
+    public boolean isEnrolled(Long courseId, Long studentId) {
+        Membership membership = courses.get(courseId);
+        if (membership == null || membership.isExpired(ttlMs)) {
+            membership = load(courseId);
+        }
+        membership.lastAccess = accessClock.incrementAndGet();
+        return membership.contains(studentId);
+    }
+
+    public void added(Long courseId, Long studentId) {
+        generations.incrementAndGet(stripe(courseId));
+        Membership membership = courses.get(courseId);
+        if (membership != null) {
+            totalBytes.addAndGet(membership.add(studentId));
+            evictIfOverBudget();
+        }
+    }
+
+    public void removed(Long courseId, Long studentId) {
+        generations.incrementAndGet(stripe(courseId));
+        Membership membership = courses.get(courseId);
+        if (membership != null) {
+            totalBytes.addAndGet(membership.remove(studentId));
+        }
+    }
+
+    public void evictCourse(Long courseId) {
+        generations.incrementAndGet(stripe(courseId));
+        Membership membership = courses.remove(courseId);
+        if (membership != null) {
+            totalBytes.addAndGet(-membership.sizeBytes);
+        }
+    }
+
+    /**
+     * Take a student out of every course, e.g. after the account was deleted
+     */
+    public void removedEverywhere(Long studentId) {
+        // Loads of courses not in memory yet may already have read the student
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        for (Membership membership : courses.values()) {
+            if (membership.contains(studentId)) {
+                totalBytes.addAndGet(membership.remove(studentId));
+            }
+        }
+    }
+
+    public int getLoadedCourseCount() {
+        return courses.size();
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    private Membership load(Long courseId) {
+        long generation = generations.get(stripe(courseId));
+        Roaring64Bitmap bitmap = new Roaring64Bitmap();
+        // The query is read-only; running it in a read-write transaction keeps it on the primary
+        List<Long> studentIds = readWriteTransaction.execute(status -> enrollmentRepository.findStudentIdsByCourseId(courseId));
+        for (Long studentId : studentIds) {
+            bitmap.addLong(studentId);
+        }
+        bitmap.runOptimize();
+        Membership loaded = new Membership(bitmap);
+        loaded.lastAccess = accessClock.incrementAndGet();
+
+        if (generations.get(stripe(courseId)) != generation) {
+            // Enrollments changed while loading; answer from this snapshot but try again next time
+            return loaded;
+        }
+        Membership previous = courses.put(courseId, loaded);
+        totalBytes.addAndGet(loaded.sizeBytes - (previous != null ? previous.sizeBytes : 0));
+        if (generations.get(stripe(courseId)) != generation && courses.remove(courseId, loaded)) {
+            // A change slipped in between the check and the put
+            totalBytes.addAndGet(-loaded.sizeBytes);
+        }
+        evictIfOverBudget();
+        return loaded;
+    }
+
+    private void evictIfOverBudget() {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            // Resync first; concurrent evictions and updates can leave the running total slightly off
+            totalBytes.set(courses.values().stream().mapToLong(membership -> membership.sizeBytes).sum());
+            List<Map.Entry<Long, Membership>> byAge = new ArrayList<>(courses.entrySet());
+            byAge.sort(Comparator.comparingLong(entry -> entry.getValue().lastAccess));
+            for (Map.Entry<Long, Membership> entry : byAge) {
+                if (totalBytes.get() <= maxBytes) {
+                    break;
+                }
+                if (courses.remove(entry.getKey(), entry.getValue())) {
+                    totalBytes.addAndGet(-entry.getValue().sizeBytes);
+                }
+            }
+            logger.debug("Enrollment index trimmed to {} courses ({} bytes)", courses.size(), totalBytes.get());
+        }
+    }
+
+    private static int stripe(Long courseId) {
+        return (int) (courseId & (GENERATION_STRIPES - 1));
+    }
+
+    private static class Membership {
+        private final Roaring64Bitmap bitmap;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final long loadedAt = System.currentTimeMillis();
+        private volatile long sizeBytes;
+        private volatile long lastAccess;
+
+        Membership(Roaring64Bitmap bitmap) {
+            this.bitmap = bitmap;
+            this.sizeBytes = bitmap.getLongSizeInBytes();
+        }
+
+        boolean isExpired(long ttlMs) {
+            return System.currentTimeMillis() - loadedAt > ttlMs;
+        }
+
+        boolean contains(Long studentId) {
+            lock.readLock().lock();
+            try {
+                return bitmap.contains(studentId);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * @return change in size, in bytes
+         */
+        long add(Long studentId) {
+            lock.writeLock().lock();
+            try {
+                bitmap.addLong(studentId);
+                return resize();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        long remove(Long studentId) {
+            lock.writeLock().lock();
+            try {
+                bitmap.removeLong(studentId);
+                return resize();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private long resize() {
+            long before = sizeBytes;
+            sizeBytes = bitmap.getLongSizeInBytes();
+            return sizeBytes - before;
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package com.skillhub.service;
 
+import com.skillhub.dto.EnrollmentAttempt;
 import com.skillhub.entity.Course;
 import com.skillhub.entity.Enrollment;
 import com.skillhub.entity.User;
+import com.skillhub.event.LearningActivityEvent;
 import com.skillhub.repository.EnrollmentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -22,7 +27,20 @@ public class EnrollmentService {
     @Autowired
     private UserService userService;
 
-    public Enrollment enrollStudent(Long courseId) {
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private EnrollmentMembershipIndex membershipIndex;
+
+    @Autowired
+    private SeatAllocationService seatAllocationService;
+
+    /**
+     * Enroll the current user. For a course with a capacity this takes a seat first, and puts the
+     * student on the course's waitlist when none is left or others are waiting already.
+     */
+    public EnrollmentAttempt enrollStudent(Long courseId) {
         Course course = courseService.getCourseById(courseId)
                 .orElseThrow(() -> new RuntimeException("Course not found"));
         
@@ -32,13 +50,68 @@ public class EnrollmentService {
             throw new RuntimeException("You are already enrolled in this course");
         }
         
+        if (course.getCapacity() == null) {
+            return EnrollmentAttempt.enrolled(saveEnrollment(course, student));
+        }
+        
+        if (seatAllocationService.isWaitlisted(course.getId(), student.getId())) {
+            throw new RuntimeException("You are already on the waitlist for this course");
+        }
+        // Seats freed while students wait go to them, not to newcomers
+        if (seatAllocationService.hasWaitlist(course.getId()) || !seatAllocationService.tryAcquire(course.getId())) {
+            return EnrollmentAttempt.waitlisted(seatAllocationService.joinWaitlist(course.getId(), student.getId()));
+        }
+        try {
+            return EnrollmentAttempt.enrolled(saveEnrollment(course, student));
+        } catch (RuntimeException e) {
+            seatAllocationService.release(course.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Withdraw the current user from a course. The freed seat goes straight to the head of the
+     * waitlist, and only back to the course when nobody is waiting.
+     *
+     * @return number of waitlisted students enrolled as a result
+     */
+    public int withdrawStudent(Long courseId) {
+        User student = userService.getCurrentUser();
+        Enrollment enrollment = enrollmentRepository.findByStudentIdAndCourseId(student.getId(), courseId)
+                .orElseThrow(() -> new RuntimeException("You are not enrolled in this course"));
+        
+        enrollmentRepository.delete(enrollment);
+        membershipIndex.removed(courseId, student.getId());
+        
+        if (enrollment.getCourse().getCapacity() == null) {
+            return 0;
+        }
+        return seatAllocationService.handOverSeat(courseId);
+    }
+
+    public boolean leaveWaitlist(Long courseId) {
+        User student = userService.getCurrentUser();
+        return seatAllocationService.leaveWaitlist(courseId, student.getId());
+    }
+
+    private Enrollment saveEnrollment(Course course, User student) {
         Enrollment enrollment = new Enrollment();
         enrollment.setCourse(course);
         enrollment.setStudent(student);
         enrollment.setEnrolledAt(LocalDateTime.now());
         enrollment.setProgress(0);
         
-        return enrollmentRepository.save(enrollment);
+        Enrollment saved;
+        try {
+            saved = enrollmentRepository.save(enrollment);
+        } catch (DataIntegrityViolationException e) {
+            // A second request of the same student got there first
+            throw new RuntimeException("You are already enrolled in this course");
+        }
+        membershipIndex.added(course.getId(), student.getId());
+        eventPublisher.publishEvent(LearningActivityEvent.enrollment(
+                student.getId(), course.getId(), course.getInstructor().getId()));
+        return saved;
     }
 
     public List<Enrollment> getEnrollmentsByStudent(User student) {
@@ -50,14 +123,17 @@ public class EnrollmentService {
         return enrollmentRepository.findByStudent(student);
     }
 
+    @Transactional(readOnly = true)
     public long getTotalEnrollments() {
         return enrollmentRepository.count();
     }
 
+    @Transactional(readOnly = true)
     public long getEnrollmentsByCourses(List<Course> courses) {
         return enrollmentRepository.countByCourseIn(courses);
     }
 
+    @Transactional(readOnly = true)
     public long getEnrollmentCountByCourse(Long courseId) {
         return enrollmentRepository.countByCourseId(courseId);
     }
@@ -69,13 +145,13 @@ public class EnrollmentService {
     }
 
     public boolean isUserEnrolledInCourse(Long courseId, Long userId) {
-        return enrollmentRepository.existsByCourseIdAndStudentId(courseId, userId);
+        return membershipIndex.isEnrolled(courseId, userId);
     }
 
     public boolean isCurrentUserEnrolledInCourse(Long courseId) {
         try {
             User currentUser = userService.getCurrentUser();
-            return enrollmentRepository.existsByCourseIdAndStudentId(courseId, currentUser.getId());
+            return membershipIndex.isEnrolled(courseId, currentUser.getId());
         } catch (Exception e) {
             return false;
         }
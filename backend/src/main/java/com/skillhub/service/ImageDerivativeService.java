@@ -0,0 +1,364 @@
+package com.skillhub.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.skillhub.entity.Course;
+import com.skillhub.repository.CourseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Resized JPEG copies of course thumbnails, so catalog cards do not download the original.
+ *
+ * Each upload is decoded once and re-encoded at every width in app.image.thumbnail.widths. The
+ * copies are stored next to the original as "name-640w.jpg", and the course records which widths
+ * exist. Decoding is the expensive part, so it runs on a small fixed pool with a short queue;
+ * large originals are subsampled while they are read, so a 5 MB photo never becomes a full-size
+ * bitmap. Uploads the pool cannot take, and thumbnails from before this existed, are picked up
+ * by the backfill.
+ */
+@Service
+public class ImageDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDerivativeService.class);
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final int BACKFILL_BATCH = 50;
+
+    @Autowired
+    private AmazonS3 s3Client;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Value("${aws.s3.bucket.thumbnails}")
+    private String thumbnailsBucket;
+
+    @Value("${app.image.thumbnail.widths:320,640,1280}")
+    private int[] widths;
+
+    // Width of the copy catalog cards get
+    @Value("${app.image.catalog-width:640}")
+    private int catalogWidth;
+
+    @Value("${app.image.jpeg-quality:0.82}")
+    private float jpegQuality;
+
+    @Value("${app.image.derivatives.timeout-ms:30000}")
+    private long timeoutMs;
+
+    private final ThreadPoolExecutor pool;
+    private final AtomicBoolean backfilling = new AtomicBoolean();
+
+    public ImageDerivativeService(@Value("${app.image.derivatives.threads:2}") int threads,
+                                  @Value("${app.image.derivatives.queue-capacity:16}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "image-resize-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * URL of the copy of a thumbnail at the given width
+     */
+    public static String derivativeUrl(String original, int width) {
+        int slash = original.lastIndexOf('/');
+        int dot = original.lastIndexOf('.');
+        String base = dot > slash ? original.substring(0, dot) : original;
+        return base + "-" + width + "w.jpg";
+    }
+
+    /**
+     * The thumbnail to show on a catalog card: the smallest copy at least as wide as a card, or
+     * the original if there are no copies
+     */
+    public String catalogThumbnail(String thumbnail, String thumbnailWidths) {
+        if (thumbnail == null || thumbnailWidths == null || thumbnailWidths.isBlank()) {
+            return thumbnail;
+        }
+        int[] available = Arrays.stream(thumbnailWidths.split(","))
+                .mapToInt(width -> Integer.parseInt(width.trim()))
+                .sorted()
+                .toArray();
+        int chosen = available[available.length - 1];
+        for (int width : available) {
+            if (width >= catalogWidth) {
+                chosen = width;
+                break;
+            }
+        }
+        return derivativeUrl(thumbnail, chosen);
+    }
+
+    /**
+     * Widths of the copies that exist for a thumbnail URL, for a course that is given it
+     *
+     * @return null if they have not been made yet, empty if the image is not in our bucket
+     */
+    public String availableWidths(String thumbnail) {
+        String key = keyOf(thumbnail);
+        if (key == null) {
+            return "";
+        }
+        List<Integer> found = new ArrayList<>();
+        try {
+            for (int width : widths) {
+                if (s3Client.doesObjectExist(thumbnailsBucket, derivativeKey(key, width))) {
+                    found.add(width);
+                }
+            }
+        } catch (SdkClientException e) {
+            logger.warn("Could not check resized copies of {}: {}", key, e.getMessage());
+            return null;
+        }
+        return found.size() == widths.length ? join(found) : null;
+    }
+
+    /**
+     * Resize a freshly uploaded thumbnail. A full pool is not an error: the backfill makes the
+     * copies later.
+     *
+     * @return the widths that were stored, or null if none were
+     */
+    public String generateAfterUpload(String key, byte[] image) {
+        try {
+            return join(generate(key, image));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Image pool is full; {} will be resized by the backfill", key);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not resize {}: {}", key, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Make and store every copy of an image, waiting for the pool
+     *
+     * @return the widths that were stored
+     */
+    public List<Integer> generate(String key, byte[] image) throws IOException {
+        Future<List<Integer>> task = pool.submit(() -> resizeAndStore(key, image));
+        try {
+            return task.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while resizing " + key);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            throw new IOException("Resizing " + key + " took longer than " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Could not resize " + key + ": " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Make the copies for every course whose thumbnail has none yet, a batch at a time
+     *
+     * @return how many courses got copies; 0 if a backfill is already running
+     */
+    @Scheduled(initialDelayString = "${app.image.backfill.initial-delay-ms:60000}",
+               fixedDelayString = "${app.image.backfill.interval-ms:3600000}")
+    public int backfill() {
+        if (!backfilling.compareAndSet(false, true)) {
+            return 0;
+        }
+        int resized = 0;
+        try {
+            long afterId = 0;
+            List<Course> batch;
+            do {
+                batch = courseRepository.findTop50ByIdGreaterThanAndThumbnailIsNotNullAndThumbnailWidthsIsNullOrderByIdAsc(afterId);
+                for (Course course : batch) {
+                    afterId = course.getId();
+                    if (backfill(course)) {
+                        resized++;
+                    }
+                }
+            } while (batch.size() == BACKFILL_BATCH);
+            if (resized > 0) {
+                logger.info("Backfilled resized thumbnails for {} courses", resized);
+            }
+        } finally {
+            backfilling.set(false);
+        }
+        return resized;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private boolean backfill(Course course) {
+        String key = keyOf(course.getThumbnail());
+        if (key == null) {
+            // Somebody else's image; catalog cards keep using it as it is
+            course.setThumbnailWidths("");
+            courseRepository.save(course);
+            return false;
+        }
+        try (S3Object object = s3Client.getObject(thumbnailsBucket, key);
+             InputStream in = object.getObjectContent()) {
+            course.setThumbnailWidths(join(generate(key, in.readAllBytes())));
+            courseRepository.save(course);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            // Left without widths, so the next run tries again
+            logger.warn("Could not backfill thumbnail of course {}: {}", course.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private List<Integer> resizeAndStore(String key, byte[] image) throws IOException {
+        int maxWidth = Arrays.stream(widths).max().orElse(0);
+        BufferedImage source = read(image, maxWidth);
+        List<Integer> stored = new ArrayList<>(widths.length);
+        for (int width : widths) {
+            byte[] jpeg = encodeJpeg(resize(source, width));
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentType("image/jpeg");
+            metadata.setContentLength(jpeg.length);
+            metadata.setCacheControl(IMMUTABLE_CACHE_CONTROL);
+            s3Client.putObject(new PutObjectRequest(thumbnailsBucket, derivativeKey(key, width),
+                    new ByteArrayInputStream(jpeg), metadata));
+            stored.add(width);
+        }
+        return stored;
+    }
+
+    /**
+     * Decode an image, skipping pixels while reading when it is far wider than the largest copy
+     */
+    private static BufferedImage read(byte[] image, int maxWidth) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IOException("Not a supported image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                // Keep at least twice the largest width so the final scaling still smooths
+                int step = Math.max(1, reader.getWidth(0) / Math.max(1, maxWidth * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scale to the width, halving first while the image is more than twice as wide, which keeps
+     * bilinear scaling from dropping detail. Images are never enlarged, so a narrow original gets
+     * copies at its own width. Transparency is flattened onto white, since the copies are JPEGs.
+     */
+    private static BufferedImage resize(BufferedImage source, int width) {
+        BufferedImage current = source;
+        int targetWidth = Math.min(width, source.getWidth());
+        while (current.getWidth() >= targetWidth * 2) {
+            current = scale(current, current.getWidth() / 2);
+        }
+        return scale(current, targetWidth);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width) {
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Key of a thumbnail URL in our bucket, or null for anything else
+     */
+    private String keyOf(String thumbnail) {
+        if (thumbnail == null) {
+            return null;
+        }
+        String prefix = s3Client.getUrl(thumbnailsBucket, "thumbnails/").toString();
+        if (!thumbnail.startsWith(prefix) || thumbnail.length() == prefix.length() || thumbnail.contains("?")) {
+            return null;
+        }
+        return "thumbnails/" + thumbnail.substring(prefix.length());
+    }
+
+    private static String derivativeKey(String key, int width) {
+        return derivativeUrl(key, width);
+    }
+
+    private static String join(List<Integer> widths) {
+        return widths.stream().map(String::valueOf).collect(Collectors.joining(","));
+    }
+}
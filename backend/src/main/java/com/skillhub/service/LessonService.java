@@ -1,12 +1,16 @@
 package com.skillhub.service;
 
+import com.skillhub.dto.LessonOwnership;
 import com.skillhub.entity.Lesson;
 import com.skillhub.repository.LessonRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class LessonService {
@@ -14,6 +18,15 @@ public class LessonService {
     @Autowired
     private LessonRepository lessonRepository;
     
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+    
+    @Autowired
+    private VideoStorageService videoStorageService;
+    
+    // lessonId -> course/instructor, resolved on every progress heartbeat
+    private final Map<Long, LessonOwnership> ownershipCache = new ConcurrentHashMap<>();
+    
     public List<Lesson> getLessonsByCourseId(Long courseId) {
         return lessonRepository.findLessonsByCourseIdOrdered(courseId);
     }
@@ -23,15 +36,39 @@ public class LessonService {
     }
     
     public Lesson saveLesson(Lesson lesson) {
-        return lessonRepository.save(lesson);
+        videoMetadataService.applyTo(lesson);
+        Lesson saved = lessonRepository.save(lesson);
+        videoStorageService.recountReferences(lesson.getVideoReferences());
+        return saved;
     }
     
     public Lesson updateLesson(Lesson lesson) {
-        return lessonRepository.save(lesson);
+        videoMetadataService.applyTo(lesson);
+        Lesson saved = lessonRepository.save(lesson);
+        // Covers both the new video and the one the lesson was loaded with
+        videoStorageService.recountReferences(lesson.getVideoReferences());
+        return saved;
     }
     
     public void deleteLesson(Long lessonId) {
+        Set<String> videos = lessonRepository.findById(lessonId).map(Lesson::getVideoReferences).orElse(Set.of());
         lessonRepository.deleteById(lessonId);
+        ownershipCache.remove(lessonId);
+        videoStorageService.recountReferences(videos);
+    }
+    
+    public Optional<LessonOwnership> getLessonOwnership(Long lessonId) {
+        LessonOwnership cached = ownershipCache.get(lessonId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<LessonOwnership> ownership = lessonRepository.findOwnershipByLessonId(lessonId);
+        ownership.ifPresent(o -> ownershipCache.put(lessonId, o));
+        return ownership;
+    }
+    
+    public void clearOwnershipCache() {
+        ownershipCache.clear();
     }
     
     public Long getLessonCountByCourseId(Long courseId) {
@@ -0,0 +1,168 @@
+package com.skillhub.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uploads large objects to S3 as multipart uploads, sending the parts in parallel.
+ *
+ * Parts are read straight from the source at their offset when their turn comes, so nothing is
+ * buffered in memory, and a part that fails is read and sent again on its own, up to
+ * aws.s3.multipart.max-attempts times. If a part still fails, the remaining parts are cancelled
+ * and the upload is aborted so S3 does not keep the parts. All uploads share one pool of
+ * aws.s3.multipart.threads threads. Objects below the threshold are sent with a single PUT.
+ * S3 requires parts of at least 5 MB, except for the last one.
+ */
+@Component
+public class S3MultipartUploader {
+
+    private static final Logger logger = LoggerFactory.getLogger(S3MultipartUploader.class);
+
+    private final AmazonS3 s3Client;
+    private final long thresholdBytes;
+    private final long partBytes;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final ExecutorService pool;
+
+    /**
+     * Source of the object's bytes; every call returns a fresh stream from the start
+     */
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ProgressListener {
+        void onProgress(long uploadedBytes, long totalBytes);
+    }
+
+    public S3MultipartUploader(AmazonS3 s3Client,
+                               @Value("${aws.s3.multipart.threshold-bytes:16777216}") long thresholdBytes,
+                               @Value("${aws.s3.multipart.part-bytes:8388608}") long partBytes,
+                               @Value("${aws.s3.multipart.threads:4}") int threads,
+                               @Value("${aws.s3.multipart.max-attempts:3}") int maxAttempts,
+                               @Value("${aws.s3.multipart.retry-delay-ms:500}") long retryDelayMs) {
+        this.s3Client = s3Client;
+        this.thresholdBytes = thresholdBytes;
+        this.partBytes = partBytes;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryDelayMs = retryDelayMs;
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void upload(String bucket, String key, ObjectMetadata metadata, long size, Source source,
+                       ProgressListener progress) throws IOException {
+        if (size < thresholdBytes) {
+            metadata.setContentLength(size);
+            try (InputStream in = source.open()) {
+                s3Client.putObject(new PutObjectRequest(bucket, key, in, metadata));
+            }
+            progress.onProgress(size, size);
+            return;
+        }
+
+        String uploadId = s3Client.initiateMultipartUpload(
+                new InitiateMultipartUploadRequest(bucket, key, metadata)).getUploadId();
+        int partCount = (int) ((size + partBytes - 1) / partBytes);
+        logger.info("Uploading {} to S3 in {} parts", key, partCount);
+
+        AtomicLong uploaded = new AtomicLong();
+        List<Future<PartETag>> parts = new ArrayList<>(partCount);
+        for (int i = 0; i < partCount; i++) {
+            int partNumber = i + 1;
+            long offset = i * partBytes;
+            long length = Math.min(partBytes, size - offset);
+            parts.add(pool.submit(() -> {
+                PartETag etag = uploadPart(bucket, key, uploadId, partNumber, offset, length, source);
+                progress.onProgress(uploaded.addAndGet(length), size);
+                return etag;
+            }));
+        }
+
+        List<PartETag> etags = new ArrayList<>(partCount);
+        try {
+            for (Future<PartETag> part : parts) {
+                etags.add(part.get());
+            }
+            etags.sort(Comparator.comparingInt(PartETag::getPartNumber));
+            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucket, key, uploadId, etags));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort(bucket, key, uploadId, parts);
+            throw new InterruptedIOException("Interrupted while uploading " + key);
+        } catch (ExecutionException | RuntimeException e) {
+            abort(bucket, key, uploadId, parts);
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new IOException("Upload of " + key + " failed: " + cause.getMessage(), cause);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private PartETag uploadPart(String bucket, String key, String uploadId, int partNumber, long offset,
+                                long length, Source source) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            try (InputStream in = source.open()) {
+                in.skipNBytes(offset);
+                return s3Client.uploadPart(new UploadPartRequest()
+                        .withBucketName(bucket)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withInputStream(in)
+                        .withPartSize(length)).getPartETag();
+            } catch (IOException | RuntimeException e) {
+                if (attempt >= maxAttempts || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                logger.warn("Part {} of {} failed (attempt {} of {}): {}", partNumber, key, attempt, maxAttempts,
+                        e.getMessage());
+                Thread.sleep(retryDelayMs * (1L << (attempt - 1)));
+            }
+        }
+    }
+
+    private void abort(String bucket, String key, String uploadId, List<Future<PartETag>> parts) {
+        parts.forEach(part -> part.cancel(true));
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+        } catch (RuntimeException e) {
+            // A bucket lifecycle rule for incomplete uploads cleans up whatever is left
+            logger.error("Could not abort multipart upload of {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -5,22 +5,50 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.skillhub.entity.Lesson;
+import com.skillhub.entity.StoredVideo;
+import com.skillhub.entity.StoredVideo.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class S3Service {
 
+    private static final Logger logger = LoggerFactory.getLogger(S3Service.class);
+
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
     @Autowired
     private AmazonS3 s3Client;
 
+    @Autowired
+    private VideoMetadataService videoMetadataService;
+
+    @Autowired
+    private VideoStorageService videoStorageService;
+
+    @Autowired
+    private S3MultipartUploader multipartUploader;
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
     @Value("${aws.s3.bucket.thumbnails}")
     private String thumbnailsBucket;
 
@@ -30,100 +58,214 @@ public class S3Service {
     @Value("${aws.s3.presigned.url.expiration:3600}")
     private long presignedUrlExpiration;
 
+    // Reuse a signature until this fraction of its lifetime has passed
+    @Value("${aws.s3.presigned.url.refresh-fraction:0.5}")
+    private double presignedUrlRefreshFraction;
+
+    @Value("${aws.s3.presigned.cache.max-entries:10000}")
+    private int presignedCacheMaxEntries;
+
+    private final Map<S3Location, PresignedUrl> presignedUrls = new ConcurrentHashMap<>();
+
+    // Raw object URL -> parsed bucket and key
+    private final Map<String, S3Location> locations = new ConcurrentHashMap<>();
+
+    /**
+     * Upload a thumbnail and its resized copies, which are stored next to it
+     */
     public String uploadThumbnail(MultipartFile file) throws IOException {
         String fileName = generateFileName(file.getOriginalFilename());
         String key = "thumbnails/" + fileName;
+        // At most 5 MB, and read twice: once to store, once to resize
+        byte[] image = file.getBytes();
         
         ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentLength(file.getSize());
+        metadata.setContentLength(image.length);
         metadata.setContentType(file.getContentType());
+        // Every upload gets a new key, so caches never need to revalidate
+        metadata.setCacheControl(IMMUTABLE_CACHE_CONTROL);
         
         PutObjectRequest putObjectRequest = new PutObjectRequest(
                 thumbnailsBucket, 
                 key, 
-                file.getInputStream(), 
+                new ByteArrayInputStream(image), 
                 metadata
         );
         
         s3Client.putObject(putObjectRequest);
+        imageDerivativeService.generateAfterUpload(key, image);
         
         return s3Client.getUrl(thumbnailsBucket, key).toString();
     }
 
+    /**
+     * Upload a video under its content hash. Content already in the bucket is not sent again.
+     */
     public String uploadVideo(MultipartFile file) throws IOException {
-        String fileName = generateFileName(file.getOriginalFilename());
-        String key = "videos/" + fileName;
+        // The multipart file is on local disk, and the key has to be known before the upload starts
+        String hash;
+        try (InputStream video = file.getInputStream()) {
+            hash = VideoStorageService.sha256Hex(video);
+        }
+        Optional<StoredVideo> stored = videoStorageService.findStored(hash, Location.S3);
+        if (stored.isPresent()) {
+            logger.info("Video {} already stored as {}", file.getOriginalFilename(), stored.get().getObjectKey());
+            if (videoMetadataService.find(stored.get().getStorageKey()).isEmpty()) {
+                try (InputStream video = file.getInputStream()) {
+                    videoMetadataService.extract(stored.get().getStorageKey(), video);
+                }
+            }
+            return stored.get().getStorageKey();
+        }
+
+        String originalFilename = file.getOriginalFilename();
+        String extension = originalFilename != null && originalFilename.contains(".")
+                ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                : null;
+        String key = "videos/" + hash + VideoStorageService.normalizeExtension(extension);
         
         ObjectMetadata metadata = new ObjectMetadata();
-        metadata.setContentLength(file.getSize());
         metadata.setContentType(file.getContentType());
+        // The key is the content hash, so the object never changes
+        metadata.setCacheControl(IMMUTABLE_CACHE_CONTROL);
         
-        PutObjectRequest putObjectRequest = new PutObjectRequest(
-                videosBucket, 
-                key, 
-                file.getInputStream(), 
-                metadata
-        );
-        
-        s3Client.putObject(putObjectRequest);
+        multipartUploader.upload(videosBucket, key, metadata, file.getSize(), file::getInputStream,
+                (uploaded, total) -> logger.debug("Uploaded {} of {} bytes of {}", uploaded, total, key));
         
-        return s3Client.getUrl(videosBucket, key).toString();
+        String videoUrl = s3Client.getUrl(videosBucket, key).toString();
+        videoUrl = videoStorageService.register(hash, Location.S3, videoUrl, key, file.getSize()).video().getStorageKey();
+        try (InputStream video = file.getInputStream()) {
+            videoMetadataService.extract(videoUrl, video);
+        }
+        return videoUrl;
     }
 
+    /**
+     * Presigned GET URL for an S3 object URL. Signatures are cached per (bucket, key) and handed
+     * out again until the configured fraction of their lifetime has passed, so every viewer in
+     * that window gets the same URL and at least the rest of the lifetime to use it.
+     */
     public String generatePresignedUrl(String videoUrl) {
         try {
-            java.net.URL url = new java.net.URL(videoUrl);
-            String host = url.getHost();
-            String path = url.getPath();
-            
-            // Parse S3 URL format: https://bucket-name.s3.region.amazonaws.com/path/to/file
-            // Or: https://s3.region.amazonaws.com/bucket-name/path/to/file
-            String bucketName;
-            String key;
-            
-            if (host.contains(".s3.")) {
-                // Format: bucket-name.s3.region.amazonaws.com
-                bucketName = host.substring(0, host.indexOf(".s3."));
-                key = path.startsWith("/") ? path.substring(1) : path;
-            } else if (host.startsWith("s3.")) {
-                // Format: s3.region.amazonaws.com/bucket-name/path
-                String[] pathParts = path.split("/", 3);
-                if (pathParts.length >= 2) {
-                    bucketName = pathParts[1];
-                    key = pathParts.length > 2 ? pathParts[2] : "";
-                } else {
-                    // Fallback: try to extract from videosBucket configuration
-                    bucketName = videosBucket;
-                    key = path.startsWith("/") ? path.substring(1) : path;
+            S3Location location = locations.get(videoUrl);
+            if (location == null) {
+                location = parseS3Url(videoUrl);
+                if (location == null) {
+                    logger.warn("Could not extract S3 key from URL: {}", videoUrl);
+                    return videoUrl;
                 }
-            } else {
-                // If URL doesn't match S3 format, try using configured bucket
-                bucketName = videosBucket;
-                key = path.startsWith("/") ? path.substring(1) : path;
+                if (locations.size() >= presignedCacheMaxEntries) {
+                    locations.clear();
+                }
+                locations.put(videoUrl, location);
             }
-            
-            // If key is empty, this might not be a valid S3 URL
-            if (key == null || key.isEmpty()) {
-                System.err.println("Warning: Could not extract S3 key from URL: " + videoUrl);
-                return videoUrl;
+
+            long now = System.currentTimeMillis();
+            PresignedUrl presigned = presignedUrls.get(location);
+            if (presigned == null || presigned.refreshAt() <= now) {
+                if (presignedUrls.size() >= presignedCacheMaxEntries) {
+                    trimPresignedUrls(now);
+                }
+                // compute() lets concurrent requests for the same object wait for one signature
+                presigned = presignedUrls.compute(location, (key, current) ->
+                        current != null && current.refreshAt() > now ? current : sign(key, now));
             }
-            
-            Date expiration = new Date();
-            expiration.setTime(expiration.getTime() + (presignedUrlExpiration * 1000));
-            
-            GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucketName, key, HttpMethod.GET);
-            request.setExpiration(expiration);
-            
-            URL presignedUrl = s3Client.generatePresignedUrl(request);
-            System.out.println("Generated presigned URL for bucket: " + bucketName + ", key: " + key);
-            return presignedUrl.toString();
+            return presigned.url();
         } catch (Exception e) {
-            System.err.println("Error generating presigned URL for: " + videoUrl + ", error: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error generating presigned URL for: {}, error: {}", videoUrl, e.getMessage(), e);
             return videoUrl;
         }
     }
 
+    /**
+     * Replace a lesson's S3 video links with presigned URLs
+     */
+    public void presignLessonVideos(Lesson lesson) {
+        if (isHttpUrl(lesson.getVideoFilename())) {
+            lesson.setVideoFilename(generatePresignedUrl(lesson.getVideoFilename()));
+        }
+        if (isHttpUrl(lesson.getVideoUrl())) {
+            lesson.setVideoUrl(generatePresignedUrl(lesson.getVideoUrl()));
+        }
+    }
+
+    public void clearPresignedUrlCache() {
+        presignedUrls.clear();
+        locations.clear();
+    }
+
+    /**
+     * Drop the signatures due for a refresh, then, if the cache is still full, the oldest ones
+     * until a tenth of it is free, so the cache is not trimmed again on every new object
+     */
+    private void trimPresignedUrls(long now) {
+        presignedUrls.values().removeIf(entry -> entry.refreshAt() <= now);
+        int excess = presignedUrls.size() - presignedCacheMaxEntries * 9 / 10;
+        if (excess <= 0) {
+            return;
+        }
+        // Every signature has the same lifetime, so the earliest refresh point is the oldest one
+        presignedUrls.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().refreshAt()))
+                .limit(excess)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(presignedUrls::remove);
+    }
+
+    private PresignedUrl sign(S3Location location, long now) {
+        Date expiration = new Date(now + presignedUrlExpiration * 1000);
+        GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(location.bucket(), location.key(), HttpMethod.GET);
+        request.setExpiration(expiration);
+
+        URL presignedUrl = s3Client.generatePresignedUrl(request);
+        long refreshAt = now + (long) (presignedUrlExpiration * 1000 * presignedUrlRefreshFraction);
+        logger.debug("Generated presigned URL for bucket: {}, key: {}", location.bucket(), location.key());
+        return new PresignedUrl(presignedUrl.toString(), refreshAt);
+    }
+
+    private S3Location parseS3Url(String videoUrl) throws MalformedURLException {
+        URL url = new URL(videoUrl);
+        String host = url.getHost();
+        String path = url.getPath();
+
+        // Parse S3 URL format: https://bucket-name.s3.region.amazonaws.com/path/to/file
+        // Or: https://s3.region.amazonaws.com/bucket-name/path/to/file
+        String bucketName;
+        String key;
+
+        if (host.contains(".s3.")) {
+            // Format: bucket-name.s3.region.amazonaws.com
+            bucketName = host.substring(0, host.indexOf(".s3."));
+            key = path.startsWith("/") ? path.substring(1) : path;
+        } else if (host.startsWith("s3.")) {
+            // Format: s3.region.amazonaws.com/bucket-name/path
+            String[] pathParts = path.split("/", 3);
+            if (pathParts.length >= 2) {
+                bucketName = pathParts[1];
+                key = pathParts.length > 2 ? pathParts[2] : "";
+            } else {
+                // Fallback: try to extract from videosBucket configuration
+                bucketName = videosBucket;
+                key = path.startsWith("/") ? path.substring(1) : path;
+            }
+        } else {
+            // If URL doesn't match S3 format, try using configured bucket
+            bucketName = videosBucket;
+            key = path.startsWith("/") ? path.substring(1) : path;
+        }
+
+        // If key is empty, this might not be a valid S3 URL
+        if (key == null || key.isEmpty()) {
+            return null;
+        }
+        return new S3Location(bucketName, key);
+    }
+
+    private static boolean isHttpUrl(String value) {
+        return value != null && (value.startsWith("https://") || value.startsWith("http://"));
+    }
+
     private String generateFileName(String originalFilename) {
         String extension = "";
         if (originalFilename != null && originalFilename.contains(".")) {
@@ -131,4 +273,10 @@ public class S3Service {
         }
         return UUID.randomUUID().toString() + extension;
     }
+
+    private record S3Location(String bucket, String key) {
+    }
+
+    private record PresignedUrl(String url, long refreshAt) {
+    }
 }
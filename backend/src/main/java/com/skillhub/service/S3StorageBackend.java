@@ -0,0 +1,119 @@
+package com.skillhub.service;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Objects in one S3 bucket. Client errors surface as IOExceptions, and missing objects as
+ * NoSuchFileException, like the local backend. There are no local files; put a
+ * {@link CachingStorageBackend} in front to serve from disk.
+ */
+public class S3StorageBackend implements StorageBackend {
+
+    private final AmazonS3 s3Client;
+    private final String bucket;
+
+    public S3StorageBackend(AmazonS3 s3Client, String bucket) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        try {
+            return s3Client.doesObjectExist(bucket, StorageBackend.checkKey(key));
+        } catch (SdkClientException e) {
+            throw failed("check", key, e);
+        }
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            return s3Client.getObjectMetadata(bucket, StorageBackend.checkKey(key)).getContentLength();
+        } catch (SdkClientException e) {
+            throw failed("stat", key, e);
+        }
+    }
+
+    @Override
+    public InputStream open(String key) throws IOException {
+        S3Object object;
+        try {
+            object = s3Client.getObject(bucket, StorageBackend.checkKey(key));
+        } catch (SdkClientException e) {
+            throw failed("read", key, e);
+        }
+        return closing(object);
+    }
+
+    @Override
+    public InputStream open(String key, long start, long length) throws IOException {
+        S3Object object;
+        try {
+            object = s3Client.getObject(new GetObjectRequest(bucket, StorageBackend.checkKey(key))
+                    .withRange(start, start + length - 1));
+        } catch (SdkClientException e) {
+            throw failed("read", key, e);
+        }
+        return closing(object);
+    }
+
+    @Override
+    public void put(String key, InputStream content, long size, String contentType) throws IOException {
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        try {
+            s3Client.putObject(new PutObjectRequest(bucket, StorageBackend.checkKey(key), content, metadata));
+        } catch (SdkClientException e) {
+            throw failed("write", key, e);
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        try {
+            s3Client.deleteObject(bucket, StorageBackend.checkKey(key));
+        } catch (SdkClientException e) {
+            throw failed("delete", key, e);
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    private static InputStream closing(S3Object object) {
+        return new FilterInputStream(object.getObjectContent()) {
+            @Override
+            public void close() throws IOException {
+                // Without abort the client would drain the rest of the object to reuse the connection
+                object.getObjectContent().abort();
+                object.close();
+            }
+        };
+    }
+
+    private IOException failed(String action, String key, SdkClientException e) {
+        if (e instanceof AmazonS3Exception s3 && s3.getStatusCode() == 404) {
+            return new NoSuchFileException(key);
+        }
+        return new IOException("Could not " + action + " s3://" + bucket + "/" + key + ": " + e.getMessage(), e);
+    }
+}
@@ -0,0 +1,375 @@
+package com.skillhub.service;
+
+import com.skillhub.entity.Course;
+import com.skillhub.entity.CourseSeatStripe;
+import com.skillhub.entity.Enrollment;
+import com.skillhub.entity.WaitlistEntry;
+import com.skillhub.event.LearningActivityEvent;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.CourseSeatStripeRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.repository.WaitlistEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seat accounting for courses with a capacity, plus their FIFO waitlists.
+ *
+ * A course's capacity is split across counter rows ("stripes"). Taking a seat is a conditional
+ * increment of one stripe in its own short transaction, starting from a random stripe, so
+ * concurrent enrollments neither count rows nor wait on each other's enrollment inserts. Each
+ * transaction touches a single row, which also rules out lock-order deadlocks between stripes.
+ * The counters are reconciled against the enrollments table periodically, which also repairs
+ * seats freed by cascading deletes.
+ */
+@Service
+public class SeatAllocationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatAllocationService.class);
+
+    @Autowired
+    private CourseSeatStripeRepository stripeRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EnrollmentMembershipIndex membershipIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.enrollment.seats.stripes:8}")
+    private int stripes;
+
+    // courseId -> mismatch seen by the previous reconcile run, see reconcile()
+    private final Map<Long, String> pendingMismatches = new ConcurrentHashMap<>();
+
+    /**
+     * Take one seat. Runs in its own transaction, so callers must {@link #release} it if the
+     * enrollment that was meant to use it is not saved.
+     */
+    public boolean tryAcquire(Long courseId) {
+        // Plain read first: once a course is full this is the only query, and the
+        // conditional updates below only go to stripes that looked free. It goes to the
+        // primary, since a lagging replica would report seats that are already gone.
+        List<Integer> candidates = onPrimary().execute(status -> stripeRepository.findStripesWithFreeSeats(courseId));
+        int start = candidates.isEmpty() ? 0 : ThreadLocalRandom.current().nextInt(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            int stripe = candidates.get((start + i) % candidates.size());
+            Integer updated = newTransaction().execute(status -> stripeRepository.takeSeat(courseId, stripe));
+            if (updated != null && updated > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void release(Long courseId) {
+        int start = ThreadLocalRandom.current().nextInt(stripes);
+        for (int i = 0; i < stripes; i++) {
+            int stripe = (start + i) % stripes;
+            Integer updated = newTransaction().execute(status -> stripeRepository.returnSeat(courseId, stripe));
+            if (updated != null && updated > 0) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Set or remove a course's capacity. Existing enrollments count against the new capacity,
+     * and any seats it frees go to the waitlist.
+     */
+    public void configure(Long courseId, Integer capacity) {
+        newTransaction().executeWithoutResult(status -> rebuildStripes(courseId, capacity));
+        if (capacity != null) {
+            promoteFromWaitlist(courseId);
+        } else {
+            // No limit any more: everyone waiting gets in
+            while (promoteNext(courseId, false)) {
+                // keep going
+            }
+        }
+    }
+
+    public long joinWaitlist(Long courseId, Long studentId) {
+        WaitlistEntry entry = new WaitlistEntry(null, courseId, studentId, LocalDateTime.now());
+        WaitlistEntry saved = waitlistRepository.save(entry);
+        return waitlistRepository.countByCourseIdAndIdLessThanEqual(courseId, saved.getId());
+    }
+
+    public boolean leaveWaitlist(Long courseId, Long studentId) {
+        return waitlistRepository.deleteByCourseIdAndStudentId(courseId, studentId) > 0;
+    }
+
+    /**
+     * Queue several students in the given order. Students already waiting keep their place.
+     *
+     * @return the students that were added
+     */
+    public List<Long> joinWaitlist(Long courseId, Collection<Long> studentIds) {
+        Set<Long> waiting = new HashSet<>(waitlistRepository.findWaitlistedStudentIds(courseId, studentIds));
+        List<Long> added = new ArrayList<>();
+        List<WaitlistEntry> entries = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Long studentId : studentIds) {
+            if (waiting.add(studentId)) {
+                entries.add(new WaitlistEntry(null, courseId, studentId, now));
+                added.add(studentId);
+            }
+        }
+        waitlistRepository.saveAll(entries);
+        return added;
+    }
+
+    public boolean hasWaitlist(Long courseId) {
+        return Boolean.TRUE.equals(onPrimary().execute(status -> waitlistRepository.existsByCourseId(courseId)));
+    }
+
+    public boolean isWaitlisted(Long courseId, Long studentId) {
+        // Read from the primary so a student who just joined cannot join twice
+        return Boolean.TRUE.equals(onPrimary().execute(status ->
+                waitlistRepository.existsByCourseIdAndStudentId(courseId, studentId)));
+    }
+
+    /**
+     * Move students from the head of the waitlist into the course while seats are free
+     *
+     * @return number of students enrolled
+     */
+    public int promoteFromWaitlist(Long courseId) {
+        int promoted = 0;
+        while (promoteNext(courseId, true)) {
+            promoted++;
+        }
+        return promoted;
+    }
+
+    /**
+     * Give a seat its holder is giving up to the head of the waitlist. The seat only goes back to
+     * the course when nobody is waiting, so a concurrent enrollment cannot take it first.
+     *
+     * @return number of students enrolled
+     */
+    public int handOverSeat(Long courseId) {
+        while (true) {
+            Long studentId;
+            try {
+                studentId = enrollHead(courseId);
+            } catch (RuntimeException e) {
+                release(courseId);
+                throw e;
+            }
+            if (studentId == null) {
+                release(courseId);
+                return 0;
+            }
+            if (studentId != 0L) {
+                announcePromotion(courseId, studentId);
+                // Seats freed some other way (e.g. by reconcile) go to the next ones
+                return 1 + promoteFromWaitlist(courseId);
+            }
+        }
+    }
+
+    public Map<String, Object> getSeatStatus(Long courseId) {
+        Course course = courseRepository.findById(courseId)
+                .orElseThrow(() -> new RuntimeException("Course not found"));
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("courseId", courseId);
+        status.put("capacity", course.getCapacity());
+        if (course.getCapacity() != null) {
+            long taken = stripeRepository.sumTakenByCourseId(courseId);
+            status.put("seatsTaken", taken);
+            status.put("seatsAvailable", Math.max(0, course.getCapacity() - taken));
+            status.put("waitlistLength", waitlistRepository.countByCourseId(courseId));
+        }
+        return status;
+    }
+
+    public void deleteCourse(Long courseId) {
+        stripeRepository.deleteByCourseId(courseId);
+        waitlistRepository.deleteByCourseId(courseId);
+        pendingMismatches.remove(courseId);
+    }
+
+    /**
+     * Compare seat counters with actual enrollments and fill free seats from waitlists.
+     *
+     * A seat is taken just before its enrollment row is written, so a single mismatch can be an
+     * enrollment in flight; counters are only rebuilt when the same mismatch shows up twice in a row.
+     */
+    @Scheduled(fixedDelayString = "${app.enrollment.seats.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        Map<Long, String> seen = new HashMap<>();
+        for (Object[] row : stripeRepository.sumTakenPerCourse()) {
+            Long courseId = (Long) row[0];
+            long taken = ((Number) row[1]).longValue();
+            long stripeCount = ((Number) row[2]).longValue();
+            long enrolled = enrollmentRepository.countByCourseId(courseId);
+            if (taken == enrolled && stripeCount == stripes) {
+                continue;
+            }
+            String mismatch = taken + "/" + enrolled + "/" + stripeCount;
+            if (mismatch.equals(pendingMismatches.get(courseId))) {
+                try {
+                    Integer capacity = courseRepository.findById(courseId).map(Course::getCapacity).orElse(null);
+                    newTransaction().executeWithoutResult(status -> rebuildStripes(courseId, capacity));
+                    logger.info("Reconciled seats for course {}: counters said {}, enrollments {}", courseId, taken, enrolled);
+                } catch (Exception e) {
+                    logger.warn("Could not reconcile seats for course {}: {}", courseId, e.getMessage());
+                }
+            } else {
+                seen.put(courseId, mismatch);
+            }
+        }
+        pendingMismatches.clear();
+        pendingMismatches.putAll(seen);
+
+        for (Long courseId : waitlistRepository.findCourseIdsWithWaitlist()) {
+            try {
+                promoteFromWaitlist(courseId);
+            } catch (Exception e) {
+                logger.warn("Could not promote waitlist for course {}: {}", courseId, e.getMessage());
+            }
+        }
+    }
+
+    private void rebuildStripes(Long courseId, Integer capacity) {
+        List<CourseSeatStripe> existing = stripeRepository.lockByCourseId(courseId);
+        if (capacity == null) {
+            stripeRepository.deleteAll(existing);
+            return;
+        }
+
+        long remaining = enrollmentRepository.countByCourseId(courseId);
+        List<CourseSeatStripe> rebuilt = new ArrayList<>(stripes);
+        for (int i = 0; i < stripes; i++) {
+            CourseSeatStripe stripe = i < existing.size() ? existing.get(i) : new CourseSeatStripe();
+            int stripeCapacity = capacity / stripes + (i < capacity % stripes ? 1 : 0);
+            // Fill stripes in order; anything over capacity (e.g. after lowering it) lands on the last one
+            int taken = (int) (i == stripes - 1 ? remaining : Math.min(stripeCapacity, remaining));
+            remaining -= taken;
+            stripe.setCourseId(courseId);
+            stripe.setStripe(i);
+            stripe.setCapacity(stripeCapacity);
+            stripe.setTaken(taken);
+            rebuilt.add(stripe);
+        }
+        if (existing.size() > stripes) {
+            stripeRepository.deleteAll(existing.subList(stripes, existing.size()));
+            stripeRepository.flush();
+        }
+        stripeRepository.saveAll(rebuilt);
+    }
+
+    /**
+     * @return false when the waitlist is empty or no seat is free
+     */
+    private boolean promoteNext(Long courseId, boolean needsSeat) {
+        if (needsSeat && !tryAcquire(courseId)) {
+            return false;
+        }
+        Long studentId;
+        try {
+            studentId = enrollHead(courseId);
+        } catch (RuntimeException e) {
+            if (needsSeat) {
+                release(courseId);
+            }
+            throw e;
+        }
+
+        if (studentId == null || studentId == 0L) {
+            if (needsSeat) {
+                release(courseId);
+            }
+            return studentId != null;
+        }
+        announcePromotion(courseId, studentId);
+        return true;
+    }
+
+    /**
+     * Enroll the head of the waitlist into a seat the caller holds
+     *
+     * @return the student enrolled, 0 if the head was enrolled already and was just dropped, or
+     * null if the waitlist is empty
+     */
+    private Long enrollHead(Long courseId) {
+        return newTransaction().execute(status -> {
+            WaitlistEntry head = waitlistRepository.findFirstByCourseIdOrderByIdAsc(courseId).orElse(null);
+            if (head == null) {
+                return null;
+            }
+            waitlistRepository.delete(head);
+            if (enrollmentRepository.existsByCourseIdAndStudentId(courseId, head.getStudentId())) {
+                // Enrolled some other way in the meantime (e.g. bulk import); just drop the entry
+                return 0L;
+            }
+            Enrollment enrollment = new Enrollment();
+            enrollment.setCourse(courseRepository.getReferenceById(courseId));
+            enrollment.setStudent(userRepository.getReferenceById(head.getStudentId()));
+            enrollment.setEnrolledAt(LocalDateTime.now());
+            enrollment.setProgress(0);
+            enrollmentRepository.save(enrollment);
+            return head.getStudentId();
+        });
+    }
+
+    private void announcePromotion(Long courseId, Long studentId) {
+        membershipIndex.added(courseId, studentId);
+        Long instructorId = courseRepository.findById(courseId)
+                .map(course -> course.getInstructor().getId())
+                .orElse(null);
+        eventPublisher.publishEvent(LearningActivityEvent.enrollment(studentId, courseId, instructorId));
+        logger.info("Promoted student {} from the waitlist of course {}", studentId, courseId);
+    }
+
+    /**
+     * A read-write transaction, or the caller's; read-only repository methods run inside it
+     * go to the primary instead of the replica
+     */
+    private TransactionTemplate onPrimary() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private TransactionTemplate newTransaction() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
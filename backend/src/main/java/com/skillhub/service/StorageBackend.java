@@ -0,0 +1,72 @@
+package com.skillhub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Where uploaded objects live: a directory on this server, a bucket, or a cache in front of one.
+ * Keys are relative, slash-separated paths such as "videos/abc.mp4".
+ */
+public interface StorageBackend {
+
+    boolean exists(String key) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    InputStream open(String key) throws IOException;
+
+    /**
+     * Read length bytes of an object, starting at start
+     *
+     * @throws java.nio.file.NoSuchFileException if there is no such object
+     */
+    InputStream open(String key, long start, long length) throws IOException;
+
+    void put(String key, InputStream content, long size, String contentType) throws IOException;
+
+    /**
+     * Store a finished file as the object. The file is used up: backends keeping their own files
+     * move it into place, the others upload it and delete it.
+     */
+    default void putFile(String key, Path file, String contentType) throws IOException {
+        try (InputStream content = Files.newInputStream(file)) {
+            put(key, content, Files.size(file), contentType);
+        }
+        Files.delete(file);
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * A file on this server holding the object, which can be served with sendfile and mapped
+     *
+     * @return empty if the object does not exist, is not on this server yet, or this backend keeps
+     * no local files; read it with {@link #open(String, long, long)} then
+     */
+    Optional<Path> localPath(String key) throws IOException;
+
+    /**
+     * @return the key, if it is relative and stays inside the store
+     * @throws IllegalArgumentException otherwise
+     */
+    static String checkKey(String key) {
+        if (key == null || key.isEmpty() || key.startsWith("/") || key.contains("\\")) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        for (String part : key.split("/", -1)) {
+            if (part.isEmpty() || part.equals(".") || part.equals("..")) {
+                throw new IllegalArgumentException("Invalid storage key: " + key);
+            }
+        }
+        return key;
+    }
+}
@@ -2,10 +2,13 @@ package com.skillhub.service;
 
 import com.skillhub.dto.LoginRequest;
 import com.skillhub.dto.RegisterRequest;
+import com.skillhub.entity.Course;
 import com.skillhub.entity.Role;
 import com.skillhub.entity.User;
+import com.skillhub.repository.DirectVideoUploadRepository;
 import com.skillhub.repository.RoleRepository;
 import com.skillhub.repository.UserRepository;
+import com.skillhub.repository.WaitlistEntryRepository;
 import com.skillhub.util.JwtUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -37,6 +40,15 @@ public class UserService {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private EnrollmentMembershipIndex enrollmentMembershipIndex;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistEntryRepository;
+
+    @Autowired
+    private DirectVideoUploadRepository directVideoUploadRepository;
+
     public User registerUser(RegisterRequest registerRequest) {
         if (userRepository.findByEmail(registerRequest.getEmail()).isPresent()) {
             throw new RuntimeException("Email is already in use!");
@@ -81,6 +93,7 @@ public class UserService {
         }
     }
 
+    @Transactional(readOnly = true)
     public List<User> getAllUsers() {
         return userRepository.findAll();
     }
@@ -100,7 +113,15 @@ public class UserService {
         // 2. Enrollments
         // 3. Certificates
         // 4. VideoProgress records
+        // Waitlist entries and upload grants only hold the id, so they are not part of the cascade
+        waitlistEntryRepository.deleteByStudentId(userId);
+        directVideoUploadRepository.deleteByUserId(userId);
+        List<Long> coursesCreated = user.getCoursesCreated() != null
+                ? user.getCoursesCreated().stream().map(Course::getId).toList()
+                : List.of();
         userRepository.delete(user);
+        coursesCreated.forEach(enrollmentMembershipIndex::evictCourse);
+        enrollmentMembershipIndex.removedEverywhere(userId);
     }
 
     public User updateUser(Long userId, User userDetails) {
@@ -0,0 +1,81 @@
+package com.skillhub.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Content type and validators of the local video files being served, so a request costs one stat
+ * call instead of a content type probe.
+ *
+ * ETags are strong. Content-addressed files carry their SHA-256 in the name, which is used
+ * directly; other files get one built from their size and modification time, which changes
+ * whenever the file is replaced. Entries are checked against the file's current size and
+ * modification time on every lookup.
+ */
+@Component
+public class VideoFileIndex {
+
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}\\.[A-Za-z0-9]{1,8}");
+
+    private final LinkedHashMap<Path, VideoFileInfo> entries;
+
+    public VideoFileIndex(@Value("${app.video.file-index.max-entries:10000}") int maxEntries) {
+        // Guarded by "this"; access-ordered so the least recently served file is dropped first
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, VideoFileInfo> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public record VideoFileInfo(long size, long lastModified, String contentType, String etag) {
+    }
+
+    public VideoFileInfo lookup(Path file) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        synchronized (this) {
+            VideoFileInfo cached = entries.get(file);
+            if (cached != null && cached.size() == size && cached.lastModified() == lastModified) {
+                return cached;
+            }
+        }
+
+        String contentType = Files.probeContentType(file);
+        VideoFileInfo info = new VideoFileInfo(size, lastModified, contentType != null ? contentType : "video/mp4",
+                etag(file.getFileName().toString(), size, lastModified));
+        synchronized (this) {
+            entries.put(file, info);
+        }
+        return info;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static String etag(String filename, long size, long lastModified) {
+        String etag = contentEtag(filename);
+        if (etag != null) {
+            return etag;
+        }
+        return "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(size) + "\"";
+    }
+
+    /**
+     * @return the ETag of a content-addressed file, which needs no stat, or null for other names
+     */
+    static String contentEtag(String filename) {
+        return CONTENT_ADDRESSED.matcher(filename).matches() ? "\"" + filename.substring(0, 64) + "\"" : null;
+    }
+}
@@ -0,0 +1,95 @@
+package com.skillhub.service;
+
+import com.skillhub.entity.Lesson;
+import com.skillhub.entity.VideoMetadata;
+import com.skillhub.repository.VideoMetadataRepository;
+import com.skillhub.util.Mp4BoxParser;
+import com.skillhub.util.Mp4BoxParser.Mp4Info;
+import com.skillhub.util.Mp4BoxParser.SeekPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Extracts duration and keyframe seek indexes from uploaded MP4s and hands them to lessons.
+ */
+@Service
+public class VideoMetadataService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoMetadataService.class);
+
+    @Autowired
+    private VideoMetadataRepository videoMetadataRepository;
+
+    @Value("${app.video.seek-index.min-interval-ms:1000}")
+    private long minKeyframeIntervalMs;
+
+    /**
+     * Parse a video and remember what was found under its storage key. Files that are not
+     * MP4s, or are damaged, are logged and skipped; the upload itself still succeeds.
+     *
+     * @return the stored metadata, or empty if nothing could be read
+     */
+    public Optional<VideoMetadata> extract(String storageKey, InputStream video) {
+        Mp4Info info;
+        try {
+            info = Mp4BoxParser.parse(video, minKeyframeIntervalMs);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read MP4 metadata of {}: {}", storageKey, e.getMessage());
+            return Optional.empty();
+        }
+        if (info == null) {
+            logger.info("No MP4 metadata found in {}", storageKey);
+            return Optional.empty();
+        }
+
+        VideoMetadata metadata = videoMetadataRepository.findByStorageKey(storageKey).orElseGet(VideoMetadata::new);
+        metadata.setStorageKey(storageKey);
+        metadata.setDurationMs(info.durationMs());
+        metadata.setKeyframeCount(info.keyframes().size());
+        metadata.setSeekIndex(Mp4BoxParser.encodeSeekIndex(info.keyframes()));
+        metadata.setCreatedAt(LocalDateTime.now());
+        return Optional.of(videoMetadataRepository.save(metadata));
+    }
+
+    /**
+     * Copy the measured duration and seek index of the lesson's video onto the lesson, if known
+     */
+    public void applyTo(Lesson lesson) {
+        Optional<VideoMetadata> metadata = find(lesson.getVideoFilename());
+        if (metadata.isEmpty()) {
+            metadata = find(lesson.getVideoUrl());
+        }
+        if (metadata.isPresent()) {
+            lesson.setVideoDuration(toSeconds(metadata.get().getDurationMs()));
+            lesson.setVideoSeekIndex(metadata.get().getSeekIndex());
+        } else {
+            // Keep whatever duration was typed in, but never an index that belongs to another video
+            lesson.setVideoSeekIndex(null);
+        }
+    }
+
+    public List<SeekPoint> getSeekIndex(Lesson lesson) {
+        byte[] encoded = lesson.getVideoSeekIndex();
+        return encoded != null ? Mp4BoxParser.decodeSeekIndex(encoded) : List.of();
+    }
+
+    public static int toSeconds(long durationMs) {
+        return (int) Math.min(Integer.MAX_VALUE, (durationMs + 500) / 1000);
+    }
+
+    public Optional<VideoMetadata> find(String storageKey) {
+        if (storageKey == null || storageKey.isBlank()) {
+            return Optional.empty();
+        }
+        return videoMetadataRepository.findByStorageKey(storageKey);
+    }
+}
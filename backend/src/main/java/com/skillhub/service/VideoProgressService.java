@@ -1,11 +1,15 @@
 package com.skillhub.service;
 
+import com.skillhub.dto.LessonOwnership;
 import com.skillhub.entity.VideoProgress;
 import com.skillhub.entity.Lesson;
 import com.skillhub.entity.User;
+import com.skillhub.event.LearningActivityEvent;
 import com.skillhub.repository.VideoProgressRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -25,12 +29,19 @@ public class VideoProgressService {
     @Autowired
     private CertificateAutoIssueService certificateAutoIssueService;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     public VideoProgress updateProgress(Long studentId, Long lessonId, Integer watchedDuration) {
         Optional<VideoProgress> existingProgress = videoProgressRepository.findByStudentIdAndLessonId(studentId, lessonId);
         
         VideoProgress progress;
+        int previousWatched = 0;
+        boolean wasCompleted = false;
         if (existingProgress.isPresent()) {
             progress = existingProgress.get();
+            previousWatched = progress.getWatchedDuration() != null ? progress.getWatchedDuration() : 0;
+            wasCompleted = Boolean.TRUE.equals(progress.getIsCompleted());
             
             if (watchedDuration > progress.getWatchedDuration()) {
                 progress.setWatchedDuration(watchedDuration);
@@ -71,6 +82,7 @@ public class VideoProgressService {
         }
         
         VideoProgress savedProgress = videoProgressRepository.save(progress);
+        publishProgressEvents(studentId, lessonId, savedProgress, previousWatched, wasCompleted);
         
         if (savedProgress.getIsCompleted()) {
             new Thread(() -> certificateAutoIssueService.checkAndIssueCertificates(studentId)).start();
@@ -95,6 +107,7 @@ public class VideoProgressService {
         return videoProgressRepository.findCompletedLessonsByStudent(studentId);
     }
     
+    @Transactional(readOnly = true)
     public Double calculateCourseProgress(Long studentId, Long courseId) {
         Double progress = videoProgressRepository.calculateCourseProgress(studentId, courseId);
         // Cap progress at 100%
@@ -108,8 +121,10 @@ public class VideoProgressService {
         Optional<VideoProgress> existingProgress = videoProgressRepository.findByStudentIdAndLessonId(studentId, lessonId);
         
         VideoProgress videoProgress;
+        boolean wasCompleted = false;
         if (existingProgress.isPresent()) {
             videoProgress = existingProgress.get();
+            wasCompleted = Boolean.TRUE.equals(videoProgress.getIsCompleted());
             // Update if not already marked as completed
             if (!videoProgress.getIsCompleted()) {
                 videoProgress.setIsCompleted(true);
@@ -128,7 +143,26 @@ public class VideoProgressService {
             videoProgress.setCompletionPercentage(java.math.BigDecimal.valueOf(100));
         }
         
-        return videoProgressRepository.save(videoProgress);
+        VideoProgress savedProgress = videoProgressRepository.save(videoProgress);
+        publishProgressEvents(studentId, lessonId, savedProgress, savedProgress.getWatchedDuration(), wasCompleted);
+        return savedProgress;
+    }
+    
+    private void publishProgressEvents(Long studentId, Long lessonId, VideoProgress saved, int previousWatched, boolean wasCompleted) {
+        Optional<LessonOwnership> ownership = lessonService.getLessonOwnership(lessonId);
+        if (!ownership.isPresent()) {
+            return;
+        }
+        Long courseId = ownership.get().getCourseId();
+        Long instructorId = ownership.get().getInstructorId();
+        
+        int watched = saved.getWatchedDuration() != null ? saved.getWatchedDuration() : 0;
+        eventPublisher.publishEvent(LearningActivityEvent.lessonProgress(
+                studentId, courseId, instructorId, lessonId, Math.max(0, watched - previousWatched)));
+        
+        if (!wasCompleted && Boolean.TRUE.equals(saved.getIsCompleted())) {
+            eventPublisher.publishEvent(LearningActivityEvent.lessonCompleted(studentId, courseId, instructorId, lessonId));
+        }
     }
     
     /**
@@ -0,0 +1,151 @@
+package com.skillhub.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory-mapped copies of the most requested segments of local video files.
+ *
+ * Files are split into fixed-size segments. A segment is mapped once it has been asked for a few
+ * times, or straight away for a file's first and last segment, where players look for the MP4
+ * moov atom before they can start. Mapped segments live outside the Java heap and are shared by
+ * every request for that file; the least recently used ones are dropped once the byte budget is
+ * exceeded. Keys include the file's size and modification time, so a replaced file is never
+ * served from stale mappings.
+ */
+@Component
+public class VideoSegmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoSegmentCache.class);
+
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final int admitAfterHits;
+
+    // Both guarded by "this"; access-ordered so iteration starts at the least recently used entry
+    private final LinkedHashMap<SegmentKey, MappedByteBuffer> segments = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<SegmentKey, Integer> requestCounts;
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public VideoSegmentCache(@Value("${app.video.cache.segment-bytes:1048576}") long segmentBytes,
+                             @Value("${app.video.cache.max-bytes:268435456}") long maxBytes,
+                             @Value("${app.video.cache.admit-after-hits:2}") int admitAfterHits) {
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.admitAfterHits = admitAfterHits;
+
+        // Only remember request counts for a few times as many segments as fit in the budget
+        int maxTracked = (int) Math.min(1_000_000, Math.max(1024, 4 * maxBytes / Math.max(1, segmentBytes)));
+        this.requestCounts = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SegmentKey, Integer> eldest) {
+                return size() > maxTracked;
+            }
+        };
+    }
+
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Look up one segment of a file, mapping it if it has become hot enough.
+     *
+     * @return a read-only buffer over the whole segment, or null if it should be read from disk
+     */
+    public ByteBuffer getSegment(Path file, long fileSize, long lastModified, long index) throws IOException {
+        if (maxBytes <= 0) {
+            return null;
+        }
+        SegmentKey key = new SegmentKey(file.toString(), fileSize, lastModified, index);
+        synchronized (this) {
+            MappedByteBuffer cached = segments.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached.asReadOnlyBuffer();
+            }
+            misses.incrementAndGet();
+            int count = requestCounts.merge(key, 1, Integer::sum);
+            boolean edge = index == 0 || index == (fileSize - 1) / segmentBytes;
+            if (count < admitAfterHits && !edge) {
+                return null;
+            }
+        }
+
+        // Map and fault the pages in outside the lock; if another request got there first, use theirs
+        long offset = index * segmentBytes;
+        long length = Math.min(segmentBytes, fileSize - offset);
+        if (length <= 0) {
+            return null;
+        }
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+        mapped.load();
+
+        synchronized (this) {
+            MappedByteBuffer existing = segments.putIfAbsent(key, mapped);
+            if (existing != null) {
+                return existing.asReadOnlyBuffer();
+            }
+            requestCounts.remove(key);
+            totalBytes += length;
+            evictOverBudget();
+        }
+        return mapped.asReadOnlyBuffer();
+    }
+
+    public synchronized void clear() {
+        segments.clear();
+        requestCounts.clear();
+        totalBytes = 0;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private void evictOverBudget() {
+        Iterator<Map.Entry<SegmentKey, MappedByteBuffer>> eldest = segments.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            // Buffers still held by requests in flight stay valid; the mapping goes away once they are collected
+            totalBytes -= eldest.next().getValue().capacity();
+            eldest.remove();
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Video segment cache holds {} segments, {} bytes", segments.size(), totalBytes);
+        }
+    }
+
+    private record SegmentKey(String path, long size, long lastModified, long index) {
+    }
+}
@@ -0,0 +1,314 @@
+package com.skillhub.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.skillhub.entity.StoredVideo;
+import com.skillhub.entity.StoredVideo.Location;
+import com.skillhub.repository.DirectVideoUploadRepository;
+import com.skillhub.repository.LessonRepository;
+import com.skillhub.repository.StoredVideoRepository;
+import com.skillhub.repository.VideoMetadataRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Content-addressed video storage. Uploads are named after their SHA-256, so the same video
+ * uploaded twice is stored, presigned and cached once, and a re-upload of known content does not
+ * write anything. Lessons referencing a stored video are counted, and videos no lesson has used
+ * for a grace period are deleted.
+ *
+ * Videos uploaded through this server are kept by the video storage backend under "videos/", in
+ * the upload directory or, with app.storage.videos.backend=s3, in the videos bucket.
+ */
+@Service
+public class VideoStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoStorageService.class);
+
+    private static final String VIDEOS = "videos/";
+
+    @Autowired
+    private StoredVideoRepository storedVideoRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private VideoMetadataRepository videoMetadataRepository;
+
+    @Autowired
+    private DirectVideoUploadRepository directVideoUploadRepository;
+
+    @Autowired
+    private AmazonS3 s3Client;
+
+    @Autowired
+    private StorageBackend videoStorage;
+
+    @Value("${app.storage.videos.backend:local}")
+    private String videosBackend;
+
+    @Value("${aws.s3.bucket.videos}")
+    private String videosBucket;
+
+    @Value("${app.upload.dir}")
+    private String uploadDir;
+
+    // How long a video may sit without lessons, after upload or after losing its last one, before it is deleted
+    @Value("${app.video.storage.orphan-grace-ms:86400000}")
+    private long orphanGraceMs;
+
+    public record StoreResult(StoredVideo video, boolean created) {
+    }
+
+    /**
+     * Store an uploaded video, hashing it on the way
+     */
+    public StoreResult storeLocal(InputStream video, String extension) throws IOException {
+        Path videosDir = videosDir();
+        Files.createDirectories(videosDir);
+        Path temp = Files.createTempFile(videosDir, ".upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long size;
+            try (DigestInputStream hashing = new DigestInputStream(video, digest)) {
+                size = Files.copy(hashing, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return adoptLocal(temp, HexFormat.of().formatHex(digest.digest()), extension, size);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Store a fully written file under its hash, or drop it if that content is already stored
+     */
+    public StoreResult adoptLocal(Path file, String sha256Hex, String extension, long size) throws IOException {
+        String hash = sha256Hex.toLowerCase(Locale.ROOT);
+        Optional<StoredVideo> existing = storedVideoRepository.findByContentHashAndLocation(hash, Location.LOCAL);
+        if (existing.isPresent() && videoStorage.exists(objectKey(existing.get()))) {
+            Files.delete(file);
+            return new StoreResult(reuse(existing.get()), false);
+        }
+
+        String filename = existing.map(StoredVideo::getStorageKey).orElse(hash + normalizeExtension(extension));
+        // Same name means same content, so replacing a concurrent copy is harmless
+        videoStorage.putFile(VIDEOS + filename, file, Files.probeContentType(Path.of(filename)));
+        if (existing.isPresent()) {
+            return new StoreResult(existing.get(), true);
+        }
+        return register(hash, Location.LOCAL, filename, null, size);
+    }
+
+    /**
+     * Read a video stored by {@link #storeLocal} or {@link #adoptLocal}
+     */
+    public InputStream openLocal(String storageKey) throws IOException {
+        return videoStorage.open(VIDEOS + storageKey);
+    }
+
+    /**
+     * The filename the video endpoints serve a lesson video under: videos uploaded through this
+     * server, and with app.storage.videos.backend=s3 also videos uploaded to the bucket
+     *
+     * @return empty for videos only reachable by their URL
+     */
+    public Optional<String> streamFilename(String videoFilename) {
+        if (videoFilename == null || videoFilename.isBlank()) {
+            return Optional.empty();
+        }
+        if (!videoFilename.startsWith("http")) {
+            return Optional.of(videoFilename);
+        }
+        if (!storesInBucket()) {
+            return Optional.empty();
+        }
+        return storedVideoRepository.findByStorageKey(videoFilename)
+                .map(StoredVideo::getObjectKey)
+                .filter(key -> key.startsWith(VIDEOS) && key.indexOf('/', VIDEOS.length()) < 0)
+                .map(key -> key.substring(VIDEOS.length()));
+    }
+
+    /**
+     * @return the stored video with this content, if it is still there. S3 videos are registered
+     * before direct uploads have happened, so they are checked with the bucket.
+     */
+    public Optional<StoredVideo> findStored(String sha256Hex, Location location) {
+        if (sha256Hex == null || sha256Hex.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<StoredVideo> stored = storedVideoRepository.findByContentHashAndLocation(
+                sha256Hex.trim().toLowerCase(Locale.ROOT), location);
+        if (stored.isPresent() && !exists(stored.get())) {
+            return Optional.empty();
+        }
+        return stored.map(this::reuse);
+    }
+
+    /**
+     * Record a video that was just written under its content hash
+     */
+    public StoreResult register(String sha256Hex, Location location, String storageKey, String objectKey, long size) {
+        LocalDateTime now = LocalDateTime.now();
+        StoredVideo video = new StoredVideo(null, sha256Hex, location, storageKey, objectKey, size, 0, now, now);
+        try {
+            return new StoreResult(storedVideoRepository.save(video), true);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent upload of the same content registered it first
+            return new StoreResult(storedVideoRepository.findByContentHashAndLocation(sha256Hex, location)
+                    .orElseThrow(() -> e), false);
+        }
+    }
+
+    /**
+     * Recount the lessons pointing at these storage keys. Keys that are not content-addressed
+     * videos are ignored.
+     */
+    public void recountReferences(Collection<String> storageKeys) {
+        for (String storageKey : storageKeys) {
+            storedVideoRepository.findByStorageKey(storageKey).ifPresent(video ->
+                    updateRefCount(video, (int) lessonRepository.countVideoReferences(storageKey)));
+        }
+    }
+
+    /**
+     * Recount every stored video and delete the ones left unreferenced for the grace period.
+     * Also catches references dropped by cascading deletes, which never go through LessonService.
+     */
+    @Scheduled(fixedDelayString = "${app.video.storage.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(orphanGraceMs));
+        int deleted = 0;
+        for (StoredVideo video : storedVideoRepository.findAll()) {
+            try {
+                updateRefCount(video, (int) lessonRepository.countVideoReferences(video.getStorageKey()));
+                if (video.getRefCount() > 0 || video.getReleasedAt().isAfter(cutoff)) {
+                    continue;
+                }
+                if (sharesObject(video)) {
+                    logger.debug("Keeping {}, still stored for the other upload path", objectKey(video));
+                } else if (video.getLocation() == Location.S3) {
+                    s3Client.deleteObject(videosBucket, video.getObjectKey());
+                } else {
+                    videoStorage.delete(objectKey(video));
+                }
+                if (video.getLocation() == Location.S3) {
+                    // Whoever wants the content back has to upload it again
+                    directVideoUploadRepository.deleteByContentHash(video.getContentHash());
+                }
+                videoMetadataRepository.findByStorageKey(video.getStorageKey()).ifPresent(videoMetadataRepository::delete);
+                storedVideoRepository.delete(video);
+                deleted++;
+            } catch (Exception e) {
+                logger.warn("Could not collect stored video {}: {}", video.getStorageKey(), e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            logger.info("Deleted {} unreferenced videos", deleted);
+        }
+    }
+
+    private boolean exists(StoredVideo video) {
+        if (video.getLocation() == Location.S3) {
+            return s3Client.doesObjectExist(videosBucket, video.getObjectKey());
+        }
+        try {
+            return videoStorage.exists(objectKey(video));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not check stored video " + video.getStorageKey() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String objectKey(StoredVideo video) {
+        return video.getLocation() == Location.S3 ? video.getObjectKey() : VIDEOS + video.getStorageKey();
+    }
+
+    private boolean storesInBucket() {
+        return "s3".equals(videosBackend);
+    }
+
+    /**
+     * When local uploads are stored in the videos bucket, they land under the same key as a direct
+     * upload of the same content, so the object has to outlive both records
+     */
+    private boolean sharesObject(StoredVideo video) {
+        if (!storesInBucket()) {
+            return false;
+        }
+        Location other = video.getLocation() == Location.S3 ? Location.LOCAL : Location.S3;
+        return storedVideoRepository.findByContentHashAndLocation(video.getContentHash(), other)
+                .filter(twin -> objectKey(twin).equals(objectKey(video)))
+                .isPresent();
+    }
+
+    private void updateRefCount(StoredVideo video, int references) {
+        if (references == video.getRefCount()) {
+            return;
+        }
+        if (references == 0) {
+            video.setReleasedAt(LocalDateTime.now());
+        }
+        video.setRefCount(references);
+        storedVideoRepository.save(video);
+    }
+
+    /**
+     * An unreferenced video handed out again gets a fresh grace period, so it is not collected
+     * before the lesson using it is saved
+     */
+    private StoredVideo reuse(StoredVideo video) {
+        if (video.getRefCount() == 0) {
+            video.setReleasedAt(LocalDateTime.now());
+            return storedVideoRepository.save(video);
+        }
+        return video;
+    }
+
+    public static String sha256Hex(InputStream video) throws IOException {
+        MessageDigest digest = sha256();
+        try (DigestInputStream hashing = new DigestInputStream(video, digest)) {
+            hashing.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String normalizeExtension(String extension) {
+        if (extension == null || !extension.matches("\\.[A-Za-z0-9]{1,8}")) {
+            return ".mp4";
+        }
+        return extension.toLowerCase(Locale.ROOT);
+    }
+
+    private Path videosDir() {
+        return Paths.get(uploadDir, "videos");
+    }
+}
@@ -0,0 +1,504 @@
+package com.skillhub.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import com.skillhub.service.VideoFileIndex.VideoFileInfo;
+import org.apache.catalina.connector.CoyoteOutputStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Serves locally stored lesson videos, honouring HTTP Range requests and conditional requests
+ * against the ETag and Last-Modified kept in the {@link VideoFileIndex}.
+ *
+ * A single range that the {@link BandwidthShaper} lets through at full speed is handed to the
+ * container's sendfile support when it offers it (Tomcat's NIO connector does), so the bytes go
+ * from the page cache to the socket without passing through the JVM.
+ *
+ * Everything else (paced responses, multipart responses, containers without sendfile) is written
+ * by the application. Segments that are hot enough to sit in the {@link VideoSegmentCache} are
+ * then written from their memory mappings, and file regions with FileChannel.transferTo. Only
+ * range requests of up to app.video.stream.max-chunk-bytes use the cache, which is what players
+ * send while they play; a full download would otherwise count and then map every segment of the
+ * file on the request thread, and one large file could push every other video out of the cache.
+ * Paced responses are written in chunks as bandwidth becomes available.
+ *
+ * Bodies that are not handed to sendfile are written by the {@link AsyncVideoWriter} with
+ * non-blocking I/O whenever the container supports async requests, so slow viewers do not hold
+ * on to worker threads.
+ *
+ * A remote video that is not in the disk cache yet is served by {@link #serveRemote} with ranged
+ * reads from the remote store while the cache fetches it in the background.
+ */
+@Service
+public class VideoStreamService {
+
+    // Tomcat's sendfile request attributes
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int MAX_RANGES = 16;
+
+    @Autowired
+    private VideoSegmentCache segmentCache;
+
+    @Autowired
+    private VideoFileIndex fileIndex;
+
+    @Autowired
+    private BandwidthShaper bandwidthShaper;
+
+    @Autowired
+    private AsyncVideoWriter asyncWriter;
+
+    @Autowired
+    private StorageBackend videoStorage;
+
+    // Largest response to an open-ended range ("bytes=N-"); players ask for the rest as they need it
+    @Value("${app.video.stream.max-chunk-bytes:2097152}")
+    private long maxChunkBytes;
+
+    // Bytes written per wait for bandwidth when a response is paced
+    @Value("${app.video.bandwidth.chunk-bytes:65536}")
+    private long pacingChunkBytes;
+
+    /**
+     * @return a local file with the video, or null if the video storage has no such video or has
+     * not fetched it yet
+     */
+    public Path resolveVideo(String filename) throws IOException {
+        String key = "videos/" + filename;
+        try {
+            StorageBackend.checkKey(key);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        // Remote videos are fetched into the disk cache on first use
+        return videoStorage.localPath(key).orElse(null);
+    }
+
+    /**
+     * Serve a video that has no local file by reading the requested range from the video storage.
+     * Multiple ranges are answered with the one range spanning them, which RFC 9110 allows.
+     *
+     * @return false if the video storage has no such video
+     */
+    public boolean serveRemote(String filename, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = "videos/" + filename;
+        long length;
+        try {
+            length = videoStorage.size(StorageBackend.checkKey(key));
+        } catch (IllegalArgumentException | NoSuchFileException e) {
+            return false;
+        }
+        String contentType = Files.probeContentType(Path.of(filename));
+        // Without a stat of the stored object only content-addressed videos have a validator
+        VideoFileInfo info = new VideoFileInfo(length, 0, contentType != null ? contentType : "video/mp4",
+                VideoFileIndex.contentEtag(filename));
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("Cache-Control", "private, max-age=3600");
+        if (info.etag() != null) {
+            response.setHeader("ETag", info.etag());
+        }
+
+        long start = 0;
+        long count = length;
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader != null && rangeHeader.startsWith("bytes=") && rangeStillApplies(request, info)) {
+            List<ByteRange> ranges = parseRanges(rangeHeader, length, maxChunkBytes);
+            if (ranges == null) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader("Content-Range", "bytes */" + length);
+                response.setContentLength(0);
+                return true;
+            }
+            ByteRange range = new ByteRange(ranges.stream().mapToLong(ByteRange::start).min().getAsLong(),
+                    ranges.stream().mapToLong(ByteRange::end).max().getAsLong());
+            start = range.start();
+            count = range.length();
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", range.contentRange(length));
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentType(info.contentType());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return true;
+        }
+
+        try (BandwidthShaper.Stream stream = bandwidthShaper.open(request.getRemoteAddr());
+             InputStream in = videoStorage.open(key, start, count)) {
+            OutputStream out = response.getOutputStream();
+            if (stream.tryAcquire(count)) {
+                in.transferTo(out);
+            } else {
+                byte[] buffer = new byte[(int) Math.min(pacingChunkBytes, count)];
+                int read;
+                while ((read = in.readNBytes(buffer, 0, buffer.length)) > 0) {
+                    stream.acquire(read);
+                    out.write(buffer, 0, read);
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+        return true;
+    }
+
+    public void serve(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        VideoFileInfo info = fileIndex.lookup(file);
+        VideoFile video = new VideoFile(file, info.size(), info.lastModified());
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setHeader("Cache-Control", "private, max-age=3600");
+        response.setHeader("ETag", info.etag());
+        response.setDateHeader("Last-Modified", info.lastModified());
+
+        if (isNotModified(request, info)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        // The client's own address: behind nginx, Tomcat takes it from X-Forwarded-For
+        // (server.forward-headers-strategy, trusting only the proxy's address)
+        BandwidthShaper.Stream stream = bandwidthShaper.open(request.getRemoteAddr());
+        boolean async = false;
+        try {
+            async = sendBody(video, info, stream, request, response);
+        } finally {
+            if (!async) {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * @return true if the body is being written asynchronously, which then owns the stream
+     */
+    private boolean sendBody(VideoFile video, VideoFileInfo info, BandwidthShaper.Stream stream,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = video.size();
+        String contentType = info.contentType();
+        String rangeHeader = request.getHeader("Range");
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=") || !rangeStillApplies(request, info)) {
+            // Unknown range units are ignored, as RFC 9110 asks, and so is a range of a copy that has changed
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(contentType);
+            return sendRegion(video, 0, length, false, stream, request, response);
+        }
+
+        List<ByteRange> ranges = parseRanges(rangeHeader, length, maxChunkBytes);
+        if (ranges == null) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setContentLength(0);
+            return false;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", range.contentRange(length));
+            return sendRegion(video, range.start(), range.length(), range.length() <= maxChunkBytes,
+                    stream, request, response);
+        }
+        return sendMultipart(video, ranges, contentType, stream, request, response);
+    }
+
+    /**
+     * If-None-Match, or If-Modified-Since when there is no If-None-Match, per RFC 9110 section 13.2.2
+     */
+    static boolean isNotModified(HttpServletRequest request, VideoFileInfo info) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                // Weak comparison
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(info.etag())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        long since = dateHeader(request, "If-Modified-Since");
+        return since >= 0 && info.lastModified() / 1000 <= since / 1000;
+    }
+
+    /**
+     * If-Range: the client's partial copy is only continued while it is still the same file
+     */
+    static boolean rangeStillApplies(HttpServletRequest request, VideoFileInfo info) {
+        String ifRange = request.getHeader("If-Range");
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison, so a weak tag never matches
+            return ifRange.equals(info.etag());
+        }
+        long date = dateHeader(request, "If-Range");
+        return date >= 0 && date / 1000 == info.lastModified() / 1000;
+    }
+
+    /**
+     * Parse a "bytes=" Range header against a file of the given length. Unsatisfiable ranges are
+     * dropped; open-ended ones are capped at maxChunk bytes.
+     *
+     * @return the ranges to send, or null if the header is malformed or nothing in it is satisfiable
+     */
+    static List<ByteRange> parseRanges(String header, long length, long maxChunk) {
+        String[] specs = header.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        for (String raw : specs) {
+            String spec = raw.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first = parsePosition(spec.substring(0, dash).trim());
+            long last = parsePosition(spec.substring(dash + 1).trim());
+            if (first == -2 || last == -2 || (first == -1 && last == -1)) {
+                return null;
+            }
+
+            if (first == -1) {
+                // Suffix range: the last N bytes
+                if (last == 0 || length == 0) {
+                    continue;
+                }
+                ranges.add(new ByteRange(Math.max(0, length - last), length - 1));
+                continue;
+            }
+            if (last != -1 && last < first) {
+                return null;
+            }
+            if (first >= length) {
+                continue;
+            }
+            long end = last == -1 ? first + Math.max(1, maxChunk) - 1 : last;
+            ranges.add(new ByteRange(first, Math.min(end, length - 1)));
+        }
+        return ranges.isEmpty() ? null : ranges;
+    }
+
+    /**
+     * @param cacheable whether the region is small enough to be looked up in the segment cache
+     */
+    private boolean sendRegion(VideoFile video, long start, long count, boolean cacheable, BandwidthShaper.Stream stream,
+                               HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return false;
+        }
+        boolean paced = !stream.tryAcquire(count);
+        if (!paced && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // The container writes the region itself once the request has been handled. Cached
+            // segments are in the page cache too, so sendfile beats copying them through the JVM.
+            request.setAttribute(SENDFILE_FILENAME, video.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            stream.handedToSendfile(count);
+            return false;
+        }
+        return send(video, pieces(video, start, count, cacheable), paced, stream, request, response);
+    }
+
+    private boolean sendMultipart(VideoFile video, List<ByteRange> ranges, String contentType, BandwidthShaper.Stream stream,
+                                  HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<Piece> pieces = new ArrayList<>();
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] header = ("\r\n--" + boundary + "\r\n" +
+                    "Content-Type: " + contentType + "\r\n" +
+                    "Content-Range: " + range.contentRange(video.size()) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            pieces.add(Piece.of(header));
+            pieces.addAll(pieces(video, range.start(), range.length(), range.length() <= maxChunkBytes));
+            contentLength += header.length + range.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        pieces.add(Piece.of(closing));
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return false;
+        }
+        return send(video, pieces, !stream.tryAcquire(contentLength), stream, request, response);
+    }
+
+    /**
+     * Write the pieces with non-blocking I/O if the container allows it, else on this thread
+     *
+     * @return true if the write continues asynchronously
+     */
+    private boolean send(VideoFile video, List<Piece> pieces, boolean paced, BandwidthShaper.Stream stream,
+                         HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (request.isAsyncSupported()) {
+            asyncWriter.start(video.path(), pieces, paced ? stream : null, stream, request, response);
+            return true;
+        }
+        try (FileChannel channel = FileChannel.open(video.path(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            write(pieces, channel, out, paced ? stream : null);
+            out.flush();
+        }
+        return false;
+    }
+
+    /**
+     * Split a region at segment boundaries, picking up the cached segments, or leave it whole
+     * without touching the cache
+     */
+    private List<Piece> pieces(VideoFile video, long start, long count, boolean cacheable) throws IOException {
+        if (!cacheable) {
+            return List.of(new Piece(start, count, null));
+        }
+        long segmentBytes = segmentCache.getSegmentBytes();
+        List<Piece> pieces = new ArrayList<>();
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            long index = position / segmentBytes;
+            long segmentStart = index * segmentBytes;
+            long pieceEnd = Math.min(end, segmentStart + segmentBytes);
+            ByteBuffer cached = segmentCache.getSegment(video.path(), video.size(), video.lastModified(), index);
+            if (cached != null) {
+                cached.limit((int) (pieceEnd - segmentStart)).position((int) (position - segmentStart));
+            }
+            pieces.add(new Piece(position, pieceEnd - position, cached));
+            position = pieceEnd;
+        }
+        return pieces;
+    }
+
+    /**
+     * @param pacing the stream to wait on before each chunk, or null to write at full speed
+     */
+    private void write(List<Piece> pieces, FileChannel channel, OutputStream out,
+                       BandwidthShaper.Stream pacing) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        for (Piece piece : pieces) {
+            long done = 0;
+            while (done < piece.length()) {
+                long count = pacing == null ? piece.length() - done : Math.min(pacingChunkBytes, piece.length() - done);
+                if (pacing != null) {
+                    pacing.acquire(count);
+                }
+                if (piece.buffer() == null) {
+                    transfer(channel, piece.start() + done, count, target);
+                } else {
+                    ByteBuffer slice = piece.slice(done, (int) count);
+                    if (out instanceof CoyoteOutputStream coyote) {
+                        // Tomcat copies straight from the mapping into its socket buffer
+                        coyote.write(slice);
+                    } else {
+                        while (slice.hasRemaining()) {
+                            target.write(slice);
+                        }
+                    }
+                }
+                if (pacing != null) {
+                    out.flush();
+                }
+                done += count;
+            }
+        }
+    }
+
+    private static void transfer(FileChannel channel, long start, long count, WritableByteChannel target) throws IOException {
+        long position = start;
+        long end = start + count;
+        while (position < end) {
+            long sent = channel.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                throw new IOException("Video file shrank while it was being sent");
+            }
+            position += sent;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            // Unparseable dates are ignored
+            return -1;
+        }
+    }
+
+    /**
+     * @return the position, -1 if empty, or -2 if it is not a plain decimal number
+     */
+    private static long parsePosition(String value) {
+        if (value.isEmpty()) {
+            return -1;
+        }
+        if (value.length() > 18) {
+            return -2;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -2;
+            }
+        }
+        return Long.parseLong(value);
+    }
+
+    private record VideoFile(Path path, long size, long lastModified) {
+    }
+
+    /**
+     * Part of a response body: a region of the file, or bytes already in memory (a mapped segment
+     * or multipart headers)
+     */
+    record Piece(long start, long length, ByteBuffer buffer) {
+        static Piece of(byte[] bytes) {
+            return new Piece(-1, bytes.length, ByteBuffer.wrap(bytes));
+        }
+
+        ByteBuffer slice(long offset, int count) {
+            return buffer.slice(buffer.position() + (int) offset, count);
+        }
+    }
+
+    record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long total) {
+            return "bytes " + start + "-" + end + "/" + total;
+        }
+    }
+}
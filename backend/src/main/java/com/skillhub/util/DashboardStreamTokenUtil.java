@@ -0,0 +1,89 @@
+package com.skillhub.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Short-lived tokens for opening the dashboard event stream from a browser.
+ *
+ * EventSource cannot send an Authorization header, so the dashboard fetches one of these with its
+ * JWT and passes it in the stream URL instead. A token has the form {@code userId.expiresAt.signature}
+ * and is only good for opening a stream, for a minute by default, so one that ends up in a proxy
+ * log is of little use.
+ */
+@Component
+public class DashboardStreamTokenUtil {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+
+    public DashboardStreamTokenUtil(@Value("${jwt.secret}") String secret,
+                                    @Value("${app.dashboard.stream.token-ttl-seconds:60}") long ttlSeconds) {
+        // Derived key, so these tokens never pass as video tokens or JWT signatures
+        this.key = new SecretKeySpec(hmac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM),
+                "skillhub-dashboard-stream-token"), ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    public String issue(Long userId) {
+        long expiresAt = System.currentTimeMillis() / 1000 + ttlSeconds;
+        String payload = userId + "." + expiresAt;
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(hmac(key, payload));
+    }
+
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /**
+     * @return the id of the user the token was issued to, or null if it is not valid or has expired
+     */
+    public Long verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int lastDot = token.lastIndexOf('.');
+        int firstDot = token.indexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return null;
+        }
+
+        String payload = token.substring(0, lastDot);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (!MessageDigest.isEqual(hmac(key, payload), signature)) {
+            return null;
+        }
+
+        try {
+            long userId = Long.parseLong(payload.substring(0, firstDot));
+            long expiresAt = Long.parseLong(payload.substring(firstDot + 1));
+            return System.currentTimeMillis() / 1000 < expiresAt ? userId : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static byte[] hmac(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.skillhub.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the duration and keyframe positions of an MP4 (ISO base media) file in one forward pass.
+ *
+ * Top-level boxes are walked straight off the stream and media data is skipped, so the input can be
+ * an upload in flight; only the moov box is buffered. Duration comes from mvhd, keyframes from the
+ * first video track's sample tables (stss, stts, stsc, stsz and stco/co64).
+ */
+public final class Mp4BoxParser {
+
+    private static final long MAX_MOOV_BYTES = 64L * 1024 * 1024;
+
+    private Mp4BoxParser() {
+    }
+
+    public record SeekPoint(long timeMs, long offset) {
+    }
+
+    public record Mp4Info(long durationMs, List<SeekPoint> keyframes) {
+    }
+
+    /**
+     * @param minKeyframeIntervalMs keyframes closer than this to the previous indexed one are left out
+     * @return the file's duration and seek index, or null if the stream has no moov box
+     */
+    public static Mp4Info parse(InputStream in, long minKeyframeIntervalMs) throws IOException {
+        byte[] header = new byte[16];
+        while (true) {
+            int read = in.readNBytes(header, 0, 8);
+            if (read == 0) {
+                return null;
+            }
+            if (read < 8) {
+                throw new EOFException("Truncated MP4 box header");
+            }
+            long size = ByteBuffer.wrap(header, 0, 4).getInt() & 0xFFFFFFFFL;
+            String type = new String(header, 4, 4, StandardCharsets.ISO_8859_1);
+            long headerLength = 8;
+            if (size == 1) {
+                if (in.readNBytes(header, 8, 8) < 8) {
+                    throw new EOFException("Truncated MP4 box header");
+                }
+                size = ByteBuffer.wrap(header, 8, 8).getLong();
+                headerLength = 16;
+            }
+
+            if (size == 0) {
+                // Box runs to the end of the file
+                return type.equals("moov") ? parseMoov(readBody(in, MAX_MOOV_BYTES, true), minKeyframeIntervalMs) : null;
+            }
+            if (size < headerLength) {
+                throw new IOException("Invalid MP4 box size " + size + " for " + type);
+            }
+            long bodyLength = size - headerLength;
+            if (type.equals("moov")) {
+                if (bodyLength > MAX_MOOV_BYTES) {
+                    throw new IOException("MP4 moov box too large: " + bodyLength + " bytes");
+                }
+                return parseMoov(readBody(in, bodyLength, false), minKeyframeIntervalMs);
+            }
+            skipFully(in, bodyLength);
+        }
+    }
+
+    /**
+     * Pack a seek index as varints: the count, then per keyframe the time delta and the
+     * zig-zag encoded offset delta. A typical index takes 3-5 bytes per keyframe.
+     */
+    public static byte[] encodeSeekIndex(List<SeekPoint> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() * 4 + 4);
+        writeVarint(out, points.size());
+        long time = 0;
+        long offset = 0;
+        for (SeekPoint point : points) {
+            writeVarint(out, point.timeMs() - time);
+            long delta = point.offset() - offset;
+            writeVarint(out, (delta << 1) ^ (delta >> 63));
+            time = point.timeMs();
+            offset = point.offset();
+        }
+        return out.toByteArray();
+    }
+
+    public static List<SeekPoint> decodeSeekIndex(byte[] encoded) {
+        ByteBuffer in = ByteBuffer.wrap(encoded);
+        int count = (int) readVarint(in);
+        List<SeekPoint> points = new ArrayList<>(count);
+        long time = 0;
+        long offset = 0;
+        for (int i = 0; i < count; i++) {
+            time += readVarint(in);
+            long zigzag = readVarint(in);
+            offset += (zigzag >>> 1) ^ -(zigzag & 1);
+            points.add(new SeekPoint(time, offset));
+        }
+        return points;
+    }
+
+    private static Mp4Info parseMoov(ByteBuffer moov, long minKeyframeIntervalMs) {
+        long durationMs = -1;
+        List<SeekPoint> keyframes = null;
+        for (Box box : children(moov)) {
+            if (box.type.equals("mvhd")) {
+                ByteBuffer mvhd = box.body;
+                int version = mvhd.get(0);
+                long timescale = version == 1 ? uint32(mvhd, 20) : uint32(mvhd, 12);
+                long duration = version == 1 ? mvhd.getLong(24) : uint32(mvhd, 16);
+                if (timescale > 0) {
+                    durationMs = duration * 1000 / timescale;
+                }
+            } else if (box.type.equals("trak") && keyframes == null) {
+                keyframes = parseVideoTrack(box.body, minKeyframeIntervalMs);
+            }
+        }
+        if (durationMs < 0) {
+            return null;
+        }
+        return new Mp4Info(durationMs, keyframes != null ? keyframes : List.of());
+    }
+
+    /**
+     * @return the track's keyframes, or null if it is not a video track
+     */
+    private static List<SeekPoint> parseVideoTrack(ByteBuffer trak, long minKeyframeIntervalMs) {
+        ByteBuffer mdia = child(trak, "mdia");
+        if (mdia == null) {
+            return null;
+        }
+        ByteBuffer hdlr = child(mdia, "hdlr");
+        ByteBuffer mdhd = child(mdia, "mdhd");
+        if (hdlr == null || mdhd == null || !fourCc(hdlr, 8).equals("vide")) {
+            return null;
+        }
+        long timescale = mdhd.get(0) == 1 ? uint32(mdhd, 20) : uint32(mdhd, 12);
+        ByteBuffer minf = child(mdia, "minf");
+        ByteBuffer stbl = minf != null ? child(minf, "stbl") : null;
+        if (stbl == null || timescale <= 0) {
+            return null;
+        }
+
+        ByteBuffer stts = child(stbl, "stts");
+        ByteBuffer stsc = child(stbl, "stsc");
+        ByteBuffer stsz = child(stbl, "stsz");
+        ByteBuffer stss = child(stbl, "stss");
+        ByteBuffer stco = child(stbl, "stco");
+        ByteBuffer co64 = child(stbl, "co64");
+        if (stts == null || stsc == null || stsz == null || (stco == null && co64 == null)) {
+            return null;
+        }
+
+        int sampleCount = (int) uint32(stsz, 8);
+        long constantSize = uint32(stsz, 4);
+        int chunkCount = (int) uint32(stco != null ? stco : co64, 4);
+        int stscEntries = (int) uint32(stsc, 4);
+        int sttsEntries = (int) uint32(stts, 4);
+        int syncCount = stss != null ? (int) uint32(stss, 4) : -1;
+
+        List<SeekPoint> keyframes = new ArrayList<>();
+        long lastIndexedMs = Long.MIN_VALUE;
+        int sample = 1;
+        int syncIndex = 0;
+        long decodeTime = 0;
+        int sttsEntry = 0;
+        long sttsRemaining = sttsEntries > 0 ? uint32(stts, 8) : 0;
+        int stscEntry = 0;
+
+        for (int chunk = 1; chunk <= chunkCount && sample <= sampleCount; chunk++) {
+            while (stscEntry + 1 < stscEntries && uint32(stsc, 8 + (stscEntry + 1) * 12) <= chunk) {
+                stscEntry++;
+            }
+            long samplesInChunk = uint32(stsc, 8 + stscEntry * 12 + 4);
+            long offset = stco != null ? uint32(stco, 8 + (chunk - 1) * 4) : co64.getLong(8 + (chunk - 1) * 8);
+
+            for (long i = 0; i < samplesInChunk && sample <= sampleCount; i++, sample++) {
+                boolean sync;
+                if (syncCount < 0) {
+                    sync = true;
+                } else {
+                    while (syncIndex < syncCount && uint32(stss, 8 + syncIndex * 4) < sample) {
+                        syncIndex++;
+                    }
+                    sync = syncIndex < syncCount && uint32(stss, 8 + syncIndex * 4) == sample;
+                }
+                if (sync) {
+                    long timeMs = decodeTime * 1000 / timescale;
+                    if (keyframes.isEmpty() || timeMs - lastIndexedMs >= minKeyframeIntervalMs) {
+                        keyframes.add(new SeekPoint(timeMs, offset));
+                        lastIndexedMs = timeMs;
+                    }
+                }
+
+                offset += constantSize != 0 ? constantSize : uint32(stsz, 12 + (sample - 1) * 4);
+                while (sttsRemaining == 0 && sttsEntry + 1 < sttsEntries) {
+                    sttsEntry++;
+                    sttsRemaining = uint32(stts, 8 + sttsEntry * 8);
+                }
+                if (sttsRemaining > 0) {
+                    decodeTime += uint32(stts, 8 + sttsEntry * 8 + 4);
+                    sttsRemaining--;
+                }
+            }
+        }
+        return keyframes;
+    }
+
+    private record Box(String type, ByteBuffer body) {
+    }
+
+    private static List<Box> children(ByteBuffer parent) {
+        List<Box> boxes = new ArrayList<>();
+        int position = 0;
+        int limit = parent.limit();
+        while (position + 8 <= limit) {
+            long size = uint32(parent, position);
+            String type = fourCc(parent, position + 4);
+            int headerLength = 8;
+            if (size == 1) {
+                if (position + 16 > limit) {
+                    break;
+                }
+                size = parent.getLong(position + 8);
+                headerLength = 16;
+            } else if (size == 0) {
+                size = limit - position;
+            }
+            if (size < headerLength || position + size > limit) {
+                break;
+            }
+            boxes.add(new Box(type, parent.slice(position + headerLength, (int) size - headerLength)));
+            position += (int) size;
+        }
+        return boxes;
+    }
+
+    private static ByteBuffer child(ByteBuffer parent, String type) {
+        for (Box box : children(parent)) {
+            if (box.type.equals(type)) {
+                return box.body;
+            }
+        }
+        return null;
+    }
+
+    private static ByteBuffer readBody(InputStream in, long length, boolean toEnd) throws IOException {
+        byte[] body = toEnd ? in.readNBytes((int) length + 1) : in.readNBytes((int) length);
+        if (toEnd && body.length > length) {
+            throw new IOException("MP4 moov box too large");
+        }
+        if (!toEnd && body.length < length) {
+            throw new EOFException("Truncated MP4 moov box");
+        }
+        return ByteBuffer.wrap(body);
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        long remaining = count;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("Truncated MP4 box");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static long uint32(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    private static String fourCc(ByteBuffer buffer, int index) {
+        byte[] bytes = new byte[4];
+        buffer.get(index, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
@@ -0,0 +1,88 @@
+package com.skillhub.util;
+
+/**
+ * A token bucket counting bytes. Callers pass the current System.nanoTime() so the bucket itself
+ * never reads a clock.
+ *
+ * reserve() always succeeds and may drive the bucket into debt; the returned wait is how long the
+ * caller has to hold back before sending, which keeps concurrent callers in line without a queue.
+ * A rate of zero means unlimited.
+ */
+public final class TokenBucket {
+
+    private final double capacity;
+    private double rate;
+    private double tokens;
+    private long updatedAt;
+
+    /**
+     * @param bytesPerSecond refill rate, or 0 for unlimited
+     * @param burstBytes     most bytes that may be sent at once after a quiet period
+     */
+    public TokenBucket(long bytesPerSecond, long burstBytes, long now) {
+        this.rate = Math.max(0, bytesPerSecond);
+        this.capacity = Math.max(1, burstBytes);
+        this.tokens = capacity;
+        this.updatedAt = now;
+    }
+
+    public synchronized void setRate(long bytesPerSecond, long now) {
+        refill(now);
+        rate = Math.max(0, bytesPerSecond);
+    }
+
+    public synchronized long getRate() {
+        return (long) rate;
+    }
+
+    /**
+     * Take the bytes only if they are available right now
+     */
+    public synchronized boolean tryTake(long bytes, long now) {
+        if (rate <= 0) {
+            return true;
+        }
+        refill(now);
+        if (tokens < bytes) {
+            return false;
+        }
+        tokens -= bytes;
+        return true;
+    }
+
+    /**
+     * Take the bytes, borrowing against future refills
+     *
+     * @return nanoseconds to wait before sending them
+     */
+    public synchronized long reserve(long bytes, long now) {
+        if (rate <= 0) {
+            return 0;
+        }
+        refill(now);
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) Math.ceil(-tokens / rate * 1_000_000_000L);
+    }
+
+    /**
+     * Give back bytes taken by tryTake that were not sent after all
+     */
+    public synchronized void refund(long bytes) {
+        tokens = Math.min(capacity, tokens + bytes);
+    }
+
+    /**
+     * @return whether the bucket has refilled completely, so dropping it loses nothing
+     */
+    public synchronized boolean isFull(long now) {
+        refill(now);
+        return rate <= 0 || tokens >= capacity;
+    }
+
+    private void refill(long now) {
+        if (rate > 0 && now > updatedAt) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * rate / 1_000_000_000L);
+        }
+        updatedAt = Math.max(updatedAt, now);
+    }
+}
@@ -0,0 +1,98 @@
+package com.skillhub.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+/**
+ * Signed, expiring access tokens for streaming one local video of a course.
+ *
+ * A token has the form {@code courseId.expiresAt.signature} where the signature is an HMAC-SHA256
+ * over the first two parts and the video filename, so the streaming endpoint can check it without
+ * touching the database, and a token handed out for one course does not open another course's
+ * videos. Expiry times are rounded up to a fixed window, which keeps the token stable for everyone
+ * watching the same video within that window and lets browsers reuse cached video responses.
+ */
+@Component
+public class VideoAccessTokenUtil {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final long windowSeconds;
+
+    public VideoAccessTokenUtil(@Value("${app.video.token.secret:${jwt.secret}}") String secret,
+                                @Value("${app.video.token.ttl-seconds:3600}") long ttlSeconds) {
+        // Derive a separate key so a video token can never pass as a signature made with the JWT secret
+        this.key = new SecretKeySpec(hmac(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM),
+                "skillhub-video-token"), ALGORITHM);
+        this.ttlSeconds = ttlSeconds;
+        this.windowSeconds = Math.max(1, ttlSeconds / 4);
+    }
+
+    /**
+     * Issue a token for one video of a course, valid for at least the configured TTL
+     */
+    public String issue(Long courseId, String filename) {
+        long now = System.currentTimeMillis() / 1000;
+        long expiresAt = ((now + ttlSeconds) / windowSeconds + 1) * windowSeconds;
+        String payload = courseId + "." + expiresAt;
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(sign(payload, filename));
+    }
+
+    /**
+     * @return true if the token was issued by this server for the given course and video and has not expired
+     */
+    public boolean verify(String token, Long courseId, String filename) {
+        if (token == null || courseId == null || filename == null) {
+            return false;
+        }
+        int lastDot = token.lastIndexOf('.');
+        int firstDot = token.indexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return false;
+        }
+
+        String payload = token.substring(0, lastDot);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(lastDot + 1));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // Check the signature before trusting anything in the payload
+        if (!MessageDigest.isEqual(sign(payload, filename), signature)) {
+            return false;
+        }
+
+        try {
+            long tokenCourseId = Long.parseLong(payload.substring(0, firstDot));
+            long expiresAt = Long.parseLong(payload.substring(firstDot + 1));
+            return tokenCourseId == courseId && System.currentTimeMillis() / 1000 < expiresAt;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private byte[] sign(String payload, String filename) {
+        // The filename is in the URL already, so it is signed but not repeated in the token
+        return hmac(key, payload + "/" + filename);
+    }
+
+    private static byte[] hmac(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.skillhub.benchmark;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.skillhub.entity.Lesson;
+import com.skillhub.service.S3Service;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Presigning cost of one lesson-list response for a 50-lesson course, with and without the
+ * presigned URL cache. Signing is local, so no AWS account or network is needed.
+ *
+ * Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) org.openjdk.jmh.Main LessonListPresignBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LessonListPresignBenchmark {
+
+    private static final int LESSONS_PER_COURSE = 50;
+
+    @Param({"true", "false"})
+    private boolean cached;
+
+    private S3Service s3Service;
+    private List<String> videoUrls;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        s3Service = new S3Service();
+        ReflectionTestUtils.setField(s3Service, "s3Client", AmazonS3ClientBuilder.standard()
+                .withRegion(Regions.US_EAST_1)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("benchmark", "benchmark")))
+                .build());
+        ReflectionTestUtils.setField(s3Service, "videosBucket", "skillhub-videos");
+        ReflectionTestUtils.setField(s3Service, "presignedUrlExpiration", 3600L);
+        // A refresh fraction of 0 makes every call sign again, i.e. the old behaviour
+        ReflectionTestUtils.setField(s3Service, "presignedUrlRefreshFraction", cached ? 0.5 : 0.0);
+        ReflectionTestUtils.setField(s3Service, "presignedCacheMaxEntries", 10000);
+
+        videoUrls = new ArrayList<>();
+        for (int i = 0; i < LESSONS_PER_COURSE; i++) {
+            videoUrls.add("https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/lesson-" + i + ".mp4");
+        }
+    }
+
+    @Benchmark
+    public void lessonList(Blackhole blackhole) {
+        for (String videoUrl : videoUrls) {
+            // Fresh entities per request, as LessonController gets from the repository
+            Lesson lesson = new Lesson();
+            lesson.setVideoUrl(videoUrl);
+            s3Service.presignLessonVideos(lesson);
+            blackhole.consume(lesson.getVideoUrl());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(LessonListPresignBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
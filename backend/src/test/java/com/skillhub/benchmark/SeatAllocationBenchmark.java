@@ -0,0 +1,153 @@
+package com.skillhub.benchmark;
+
+import com.skillhub.dto.EnrollmentAttempt;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.CourseSeatStripeRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.RoleRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.service.CourseService;
+import com.skillhub.service.EnrollmentMembershipIndex;
+import com.skillhub.service.EnrollmentService;
+import com.skillhub.service.SeatAllocationService;
+import com.skillhub.service.UserService;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Enrollment throughput when thousands of students hit enroll on one seat-limited course at the
+ * same moment. Runs the seat and enrollment services against an embedded database, with every
+ * enrollment committing on its own as it would in production.
+ *
+ * Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.skillhub.benchmark.SeatAllocationBenchmark [students] [capacity] [threads]
+ */
+public class SeatAllocationBenchmark {
+
+    private static final ThreadLocal<User> currentUser = new ThreadLocal<>();
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 250;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Config.class)
+                .web(WebApplicationType.NONE)
+                // Registered as finished objects, so the mocks' inherited @Autowired fields stay empty
+                .initializers(initializing -> {
+                    UserService userService = mock(UserService.class);
+                    when(userService.getCurrentUser()).thenAnswer(inv -> currentUser.get());
+                    initializing.getBeanFactory().registerSingleton("userService", userService);
+                    initializing.getBeanFactory().registerSingleton("courseService", mock(CourseService.class));
+                })
+                .properties("spring.datasource.url=jdbc:h2:mem:seat-benchmark;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=20000",
+                        "spring.datasource.hikari.maximum-pool-size=" + (threads / 2),
+                        "spring.jpa.hibernate.ddl-auto=create-drop",
+                        "logging.level.root=WARN")
+                .run(args)) {
+            run(context, students, capacity, threads);
+        }
+    }
+
+    private static void run(ConfigurableApplicationContext context, int studentCount, int capacity, int threads) throws Exception {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        RoleRepository roleRepository = context.getBean(RoleRepository.class);
+        CourseRepository courseRepository = context.getBean(CourseRepository.class);
+        EnrollmentService enrollmentService = context.getBean(EnrollmentService.class);
+        when(context.getBean(CourseService.class).getCourseById(anyLong()))
+                .thenAnswer(inv -> courseRepository.findById(inv.getArgument(0)));
+
+        Role studentRole = roleRepository.save(role("STUDENT"));
+        User instructor = userRepository.save(user("instructor@example.com", roleRepository.save(role("INSTRUCTOR"))));
+        List<User> newStudents = new ArrayList<>();
+        for (int i = 0; i < studentCount; i++) {
+            newStudents.add(user("student" + i + "@example.com", studentRole));
+        }
+        List<User> students = userRepository.saveAll(newStudents);
+
+        Course course = new Course();
+        course.setTitle("Live cohort");
+        course.setInstructor(instructor);
+        course.setCapacity(capacity);
+        Long courseId = courseRepository.save(course).getId();
+        context.getBean(SeatAllocationService.class).configure(courseId, capacity);
+
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> results = new ArrayList<>();
+        for (User student : students) {
+            results.add(pool.submit(() -> {
+                start.await();
+                currentUser.set(student);
+                EnrollmentAttempt attempt = enrollmentService.enrollStudent(courseId);
+                (attempt.isWaitlisted() ? waitlisted : enrolled).incrementAndGet();
+                return null;
+            }));
+        }
+
+        long began = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.MINUTES);
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        pool.shutdown();
+
+        long rows = context.getBean(EnrollmentRepository.class).countByCourseId(courseId);
+        long taken = context.getBean(CourseSeatStripeRepository.class).sumTakenByCourseId(courseId);
+        System.out.printf("%d requests on %d threads in %.2fs (%.0f/s): %d enrolled, %d waitlisted, %d rows, %d seats taken%n",
+                studentCount, threads, seconds, studentCount / seconds, enrolled.get(), waitlisted.get(), rows, taken);
+    }
+
+    private static Role role(String name) {
+        Role role = new Role();
+        role.setRoleName(name);
+        return role;
+    }
+
+    private static User user(String email, Role role) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class,
+            TransactionAutoConfiguration.class})
+    @EntityScan("com.skillhub.entity")
+    @EnableJpaRepositories("com.skillhub.repository")
+    @Import({EnrollmentService.class, SeatAllocationService.class, EnrollmentMembershipIndex.class})
+    static class Config {
+    }
+}
@@ -0,0 +1,182 @@
+package com.skillhub.benchmark;
+
+import com.skillhub.service.AsyncVideoWriter;
+import com.skillhub.service.BandwidthShaper;
+import com.skillhub.service.LocalStorageBackend;
+import com.skillhub.service.VideoFileIndex;
+import com.skillhub.service.VideoSegmentCache;
+import com.skillhub.service.VideoStreamService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How many slow viewers the video endpoint can stream to at once, with blocking writes and with
+ * non-blocking writes.
+ *
+ * Starts an embedded Tomcat with a small worker pool and without sendfile, then opens many
+ * connections that each download a large video while reading only a little at a time, like
+ * players with a full buffer. Counts the streams that received their first bytes within the
+ * deadline. With blocking writes every stream keeps a worker thread until its body is written,
+ * so only about as many streams as there are threads get going; with non-blocking writes the
+ * threads go back to the pool whenever a socket is full.
+ *
+ * Run with:
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.skillhub.benchmark.VideoStreamCapacityBenchmark [clients] [threads]
+ */
+public class VideoStreamCapacityBenchmark {
+
+    private static final int VIDEO_BYTES = 32 * 1024 * 1024;
+    private static final long DEADLINE_MS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+
+        Path dir = Files.createTempDirectory("video-capacity");
+        Path video = Files.createDirectories(dir.resolve("videos")).resolve("lesson.mp4");
+        byte[] content = new byte[VIDEO_BYTES];
+        new Random(1).nextBytes(content);
+        Files.write(video, content);
+
+        try {
+            for (boolean async : new boolean[]{false, true}) {
+                int started = run(video, async, clients, threads);
+                System.out.printf("%-12s %d worker threads: %d of %d streams started within %d ms%n",
+                        async ? "non-blocking" : "blocking", threads, started, clients, DEADLINE_MS);
+            }
+        } finally {
+            FileSystemUtils.deleteRecursively(dir);
+        }
+    }
+
+    private static int run(Path video, boolean async, int clients, int threads) throws Exception {
+        Path uploadDir = video.getParent().getParent();
+        VideoStreamService streamService = streamService(uploadDir);
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(uploadDir.resolve(async ? "tomcat-async" : "tomcat-blocking").toString());
+        tomcat.setPort(0);
+        Connector connector = tomcat.getConnector();
+        connector.setProperty("maxThreads", String.valueOf(threads));
+        connector.setProperty("minSpareThreads", String.valueOf(threads));
+        connector.setProperty("maxConnections", String.valueOf(clients * 2));
+        connector.setProperty("acceptCount", String.valueOf(clients));
+        connector.setProperty("useSendfile", "false");
+        connector.setProperty("socket.txBufSize", "65536");
+
+        Context context = tomcat.addContext("", null);
+        Wrapper servlet = Tomcat.addServlet(context, "video", new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                HttpServletRequest served = async ? request : new HttpServletRequestWrapper(request) {
+                    @Override
+                    public boolean isAsyncSupported() {
+                        return false;
+                    }
+                };
+                streamService.serve(video, served, response);
+            }
+        });
+        servlet.setAsyncSupported(true);
+        context.addServletMappingDecoded("/video", "video");
+        tomcat.start();
+        int port = connector.getLocalPort();
+
+        ExecutorService viewers = Executors.newFixedThreadPool(clients);
+        try {
+            long deadline = System.currentTimeMillis() + DEADLINE_MS;
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                results.add(viewers.submit(() -> watch(port, deadline)));
+            }
+            int started = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    started++;
+                }
+            }
+            return started;
+        } finally {
+            viewers.shutdownNow();
+            viewers.awaitTermination(10, TimeUnit.SECONDS);
+            tomcat.stop();
+            tomcat.destroy();
+        }
+    }
+
+    /**
+     * Download slowly until the deadline
+     *
+     * @return whether any of the body arrived before the deadline
+     */
+    private static boolean watch(int port, long deadline) {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(16 * 1024);
+            socket.connect(new InetSocketAddress("127.0.0.1", port));
+            OutputStream out = socket.getOutputStream();
+            out.write("GET /video HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n"
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[4096];
+            boolean received = false;
+            long remaining;
+            while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+                socket.setSoTimeout((int) remaining);
+                try {
+                    if (in.read(buffer) < 0) {
+                        break;
+                    }
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                received = true;
+                // A player with a full buffer takes a little at a time
+                Thread.sleep(Math.min(200, Math.max(1, deadline - System.currentTimeMillis())));
+            }
+            return received;
+        } catch (IOException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static VideoStreamService streamService(Path uploadDir) {
+        VideoStreamService streamService = new VideoStreamService();
+        ReflectionTestUtils.setField(streamService, "videoStorage", new LocalStorageBackend(uploadDir));
+        ReflectionTestUtils.setField(streamService, "maxChunkBytes", 2L * 1024 * 1024);
+        ReflectionTestUtils.setField(streamService, "pacingChunkBytes", 65536L);
+        ReflectionTestUtils.setField(streamService, "segmentCache", new VideoSegmentCache(1024 * 1024, 0, 2));
+        ReflectionTestUtils.setField(streamService, "fileIndex", new VideoFileIndex(100));
+        ReflectionTestUtils.setField(streamService, "bandwidthShaper",
+                new BandwidthShaper(0, 0, 0, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(streamService, "asyncWriter", new AsyncVideoWriter(65536, 600_000));
+        return streamService;
+    }
+}
@@ -0,0 +1,155 @@
+package com.skillhub.config;
+
+import com.skillhub.entity.Role;
+import com.skillhub.repository.RoleRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DataSourceRoutingConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadWriteRoutingDataSourceTest {
+
+    private static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> PRIMARY_URL);
+        registry.add("spring.datasource.username", () -> "sa");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("app.datasource.replica.url", () -> REPLICA_URL);
+        registry.add("app.datasource.replica.lag-query", () -> "SELECT lag_seconds FROM replica_status");
+        registry.add("app.datasource.replica.lag-column", () -> "lag_seconds");
+    }
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private ReplicaLagMonitor lagMonitor;
+
+    private JdbcTemplate primaryJdbc;
+    private JdbcTemplate replicaJdbc;
+    private TransactionTemplate readOnlyTx;
+    private TransactionTemplate writeTx;
+
+    @BeforeEach
+    void setUp() {
+        primaryJdbc = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+        replicaJdbc = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+
+        for (JdbcTemplate jdbc : new JdbcTemplate[]{primaryJdbc, replicaJdbc}) {
+            jdbc.execute("DROP TABLE IF EXISTS node");
+            jdbc.execute("DROP TABLE IF EXISTS replica_status");
+            jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+            jdbc.execute("CREATE TABLE replica_status (lag_seconds BIGINT)");
+        }
+        primaryJdbc.update("INSERT INTO node VALUES ('primary')");
+        replicaJdbc.update("INSERT INTO node VALUES ('replica')");
+        replicaJdbc.update("INSERT INTO replica_status VALUES (0)");
+        lagMonitor.refresh();
+
+        readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        writeTx = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    void readOnlyTransactionsUseReplica() {
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertEquals("replica", readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    void writeTransactionsUsePrimary() {
+        assertEquals("primary", writeTx.execute(status -> currentNode()));
+
+        Role role = writeTx.execute(status -> roleRepository.save(role("WRITTEN")));
+        assertEquals(1, primaryJdbc.queryForObject("SELECT COUNT(*) FROM roles WHERE id = ?", Integer.class, role.getId()));
+    }
+
+    @Test
+    void readThenWriteInOneRequestWritesToPrimary() {
+        // What the open-in-view interceptor does around every MVC request
+        OpenEntityManagerInViewInterceptor openInView = new OpenEntityManagerInViewInterceptor();
+        openInView.setEntityManagerFactory(entityManagerFactory);
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest("POST", "/api/enrollments"));
+
+        openInView.preHandle(request);
+        try {
+            assertEquals("replica", readOnlyTx.execute(status -> currentNode()));
+            assertEquals("primary", writeTx.execute(status -> currentNode()));
+            Role role = writeTx.execute(status -> roleRepository.save(role("STUDENT")));
+            assertEquals("replica", readOnlyTx.execute(status -> currentNode()));
+
+            assertEquals(1, primaryJdbc.queryForObject("SELECT COUNT(*) FROM roles WHERE id = ?", Integer.class, role.getId()));
+        } finally {
+            openInView.afterCompletion(request, null);
+        }
+    }
+
+    @Test
+    void laggingReplicaFallsBackToPrimary() {
+        replicaJdbc.update("UPDATE replica_status SET lag_seconds = 30");
+        lagMonitor.refresh();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals("primary", readOnlyTx.execute(status -> currentNode()));
+
+        replicaJdbc.update("UPDATE replica_status SET lag_seconds = 1");
+        lagMonitor.refresh();
+
+        assertEquals("replica", readOnlyTx.execute(status -> currentNode()));
+    }
+
+    @Test
+    void unknownLagFallsBackToPrimary() {
+        replicaJdbc.update("UPDATE replica_status SET lag_seconds = NULL");
+        lagMonitor.refresh();
+
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertEquals("primary", readOnlyTx.execute(status -> currentNode()));
+    }
+
+    private String currentNode() {
+        return (String) entityManager.createNativeQuery("SELECT name FROM node FETCH FIRST 1 ROWS ONLY").getSingleResult();
+    }
+
+    private static Role role(String name) {
+        Role role = new Role();
+        role.setRoleName(name);
+        return role;
+    }
+}
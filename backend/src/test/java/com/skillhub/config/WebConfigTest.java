@@ -0,0 +1,62 @@
+package com.skillhub.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.web.SpringJUnitWebConfig;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringJUnitWebConfig(WebConfigTest.Mvc.class)
+class WebConfigTest {
+
+    @TempDir
+    static Path uploadDir;
+
+    @Autowired
+    private WebApplicationContext context;
+
+    private MockMvc mockMvc;
+
+    @DynamicPropertySource
+    static void uploadDir(DynamicPropertyRegistry registry) {
+        registry.add("app.upload.dir", () -> uploadDir.toString());
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Files.createDirectories(uploadDir.resolve("videos"));
+        Files.createDirectories(uploadDir.resolve("images"));
+        Files.write(uploadDir.resolve("videos/lesson.mp4"), new byte[]{1, 2, 3});
+        Files.write(uploadDir.resolve("images/logo.png"), new byte[]{4, 5, 6});
+        mockMvc = MockMvcBuilders.webAppContextSetup(context).build();
+    }
+
+    @Test
+    void servesImagesButNotVideos() throws Exception {
+        mockMvc.perform(get("/uploads/images/logo.png")).andExpect(status().isOk());
+
+        // Videos only go out through the token-checked stream endpoints
+        mockMvc.perform(get("/uploads/videos/lesson.mp4")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/uploads/images/../videos/lesson.mp4")).andExpect(status().isNotFound());
+    }
+
+    @Configuration
+    @EnableWebMvc
+    @Import(WebConfig.class)
+    static class Mvc {
+    }
+}
@@ -0,0 +1,81 @@
+package com.skillhub.controller;
+
+import com.skillhub.dto.ActivityBucketResponse;
+import com.skillhub.entity.CourseActivityBucket.Granularity;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.service.AnalyticsService;
+import com.skillhub.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AnalyticsControllerTest {
+
+    private final AnalyticsService analyticsService = mock(AnalyticsService.class);
+    private final UserService userService = mock(UserService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        AnalyticsController controller = new AnalyticsController();
+        ReflectionTestUtils.setField(controller, "analyticsService", analyticsService);
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void courseActivityPassesGranularityAndRange() throws Exception {
+        LocalDateTime from = LocalDateTime.of(2024, 1, 1, 0, 0);
+        when(analyticsService.getCourseActivity(7L, Granularity.HOUR, from, null))
+                .thenReturn(List.of(new ActivityBucketResponse(from, 2, 1, 90, 0)));
+
+        mockMvc.perform(get("/api/analytics/courses/7").param("granularity", "HOUR").param("from", "2024-01-01T00:00:00"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].enrollments").value(2))
+                .andExpect(jsonPath("$[0].watchSeconds").value(90));
+    }
+
+    @Test
+    void platformActivityAndBackfillAreForAdminsOnly() throws Exception {
+        when(userService.getCurrentUser()).thenReturn(user("INSTRUCTOR"));
+
+        mockMvc.perform(get("/api/analytics/platform"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Access denied. Admin role required."));
+        mockMvc.perform(post("/api/analytics/backfill"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Access denied. Admin role required."));
+        verify(analyticsService, never()).backfill();
+
+        when(userService.getCurrentUser()).thenReturn(user("ADMIN"));
+        when(analyticsService.backfill()).thenReturn(Map.of("bucketsWritten", 4));
+        mockMvc.perform(post("/api/analytics/backfill"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.bucketsWritten").value(4));
+    }
+
+    private static User user(String roleName) {
+        Role role = new Role();
+        role.setRoleName(roleName);
+        User user = new User();
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,116 @@
+package com.skillhub.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.service.DashboardService;
+import com.skillhub.service.DashboardStreamService;
+import com.skillhub.service.UserService;
+import com.skillhub.util.DashboardStreamTokenUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class DashboardControllerTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final DashboardService dashboardService = new DashboardService();
+    private final UserService userService = mock(UserService.class);
+    private final DashboardStreamService streamService = new DashboardStreamService();
+    private final DashboardStreamTokenUtil streamTokens = new DashboardStreamTokenUtil("test-secret", 60);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dashboardService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(dashboardService, "courseRepository", courseRepository);
+        DashboardController controller = new DashboardController();
+        ReflectionTestUtils.setField(controller, "dashboardService", dashboardService);
+        ReflectionTestUtils.setField(controller, "userService", userService);
+        ReflectionTestUtils.setField(controller, "dashboardStreamService", streamService);
+        ReflectionTestUtils.setField(controller, "dashboardStreamTokenUtil", streamTokens);
+        ReflectionTestUtils.setField(streamService, "emitterTimeoutMs", 60_000L);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void publicStatsAreUnavailableUntilTheDatabaseHasAnswered() throws Exception {
+        when(userRepository.countUsersByRole()).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        mockMvc.perform(get("/api/stats")).andExpect(status().isServiceUnavailable());
+
+        doReturn(List.<Object[]>of(new Object[]{"STUDENT", 12L})).when(userRepository).countUsersByRole();
+        when(courseRepository.count()).thenReturn(3L);
+        mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalStudents").value(12))
+                .andExpect(jsonPath("$.totalCourses").value(3));
+
+        // Once there is a snapshot, an outage keeps serving it
+        doThrow(new DataAccessResourceFailureException("Connection refused")).when(userRepository).countUsersByRole();
+        dashboardService.refreshPublicStats();
+        mockMvc.perform(get("/api/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalStudents").value(12));
+    }
+
+    @Test
+    void browserOpensTheStreamWithATokenInsteadOfTheHeader() throws Exception {
+        User instructor = user(7L, "INSTRUCTOR");
+        when(userService.getCurrentUser()).thenReturn(instructor);
+        when(userService.getUserById(7L)).thenReturn(instructor);
+
+        MvcResult issued = mockMvc.perform(get("/api/dashboard/stream-token"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String token = new ObjectMapper().readTree(issued.getResponse().getContentAsString()).get("token").asText();
+
+        MvcResult stream = mockMvc.perform(get("/api/dashboard/stream").param("token", token))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, streamService.getSubscriberCount());
+        stream.getRequest().getAsyncContext().complete();
+    }
+
+    @Test
+    void streamRejectsForgedExpiredAndStudentTokens() throws Exception {
+        when(userService.getUserById(8L)).thenReturn(user(8L, "STUDENT"));
+
+        mockMvc.perform(get("/api/dashboard/stream").param("token", "7.9999999999.forged"))
+                .andExpect(status().isUnauthorized());
+        String expired = new DashboardStreamTokenUtil("test-secret", -1).issue(7L);
+        mockMvc.perform(get("/api/dashboard/stream").param("token", expired))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/api/dashboard/stream").param("token", streamTokens.issue(8L)))
+                .andExpect(status().isForbidden());
+        assertEquals(0, streamService.getSubscriberCount());
+    }
+
+    private static User user(Long id, String roleName) {
+        Role role = new Role();
+        role.setRoleName(roleName);
+        User user = new User();
+        user.setId(id);
+        user.setRole(role);
+        return user;
+    }
+}
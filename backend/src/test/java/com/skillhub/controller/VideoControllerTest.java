@@ -0,0 +1,56 @@
+package com.skillhub.controller;
+
+import com.skillhub.service.VideoStreamService;
+import com.skillhub.util.VideoAccessTokenUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.file.Path;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class VideoControllerTest {
+
+    private final VideoAccessTokenUtil tokens = new VideoAccessTokenUtil("test-secret", 3600);
+    private final VideoStreamService streamService = mock(VideoStreamService.class);
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        VideoController controller = new VideoController();
+        ReflectionTestUtils.setField(controller, "videoAccessTokenUtil", tokens);
+        ReflectionTestUtils.setField(controller, "videoStreamService", streamService);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        when(streamService.resolveVideo(anyString())).thenAnswer(invocation -> Path.of(invocation.<String>getArgument(0)));
+    }
+
+    @Test
+    void courseTokenOnlyOpensItsOwnVideo() throws Exception {
+        String tokenA = tokens.issue(1L, "a-lesson.mp4");
+
+        mockMvc.perform(get("/api/video/courses/1/a-lesson.mp4").param("token", tokenA))
+                .andExpect(status().isOk());
+        verify(streamService).serve(any(Path.class), any(HttpServletRequest.class), any(HttpServletResponse.class));
+
+        // Course B's video, through course A's path or course B's
+        mockMvc.perform(get("/api/video/courses/1/b-lesson.mp4").param("token", tokenA))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/video/courses/2/b-lesson.mp4").param("token", tokenA))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(get("/api/video/courses/2/b-lesson.mp4"))
+                .andExpect(status().isForbidden());
+        verify(streamService, never()).resolveVideo("b-lesson.mp4");
+    }
+}
@@ -0,0 +1,38 @@
+package com.skillhub.entity;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LessonTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void localVideoFilenameOnlyGoesToUsersWithAStreamUrl() throws Exception {
+        Lesson lesson = new Lesson();
+        lesson.setVideoFilename("lesson.mp4");
+
+        assertTrue(json(lesson).get("videoFilename").isNull());
+
+        lesson.setVideoStreamUrl("http://localhost/api/video/courses/1/lesson.mp4?token=t");
+        assertEquals("lesson.mp4", json(lesson).get("videoFilename").asText());
+
+        lesson.setVideoStreamUrl(null);
+        lesson.setVideoFilename("https://skillhub-videos.s3.amazonaws.com/videos/a.mp4");
+        assertEquals("https://skillhub-videos.s3.amazonaws.com/videos/a.mp4", json(lesson).get("videoFilename").asText());
+
+        Lesson read = objectMapper.readValue("{\"videoFilename\":\"other.mp4\"}", Lesson.class);
+        assertEquals("other.mp4", read.getVideoFilename());
+    }
+
+    private JsonNode json(Lesson lesson) throws Exception {
+        JsonNode node = objectMapper.readTree(objectMapper.writeValueAsString(lesson));
+        assertFalse(node.has("visibleVideoFilename"));
+        return node;
+    }
+}
@@ -0,0 +1,241 @@
+package com.skillhub.service;
+
+import com.skillhub.dto.ActivityBucketResponse;
+import com.skillhub.entity.Certificate;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.CourseActivityBucket;
+import com.skillhub.entity.CourseActivityBucket.Granularity;
+import com.skillhub.entity.Enrollment;
+import com.skillhub.entity.Lesson;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.entity.VideoProgress;
+import com.skillhub.event.LearningActivityEvent;
+import com.skillhub.repository.CertificateRepository;
+import com.skillhub.repository.CourseActivityBucketRepository;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.LessonRepository;
+import com.skillhub.repository.RoleRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.repository.VideoProgressRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Rollups, flushes and the backfill against an embedded database, without the usual test
+ * transaction so that events are published the way the write paths do: after their commit.
+ */
+@DataJpaTest
+@Import(AnalyticsService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AnalyticsServiceTest {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CourseActivityBucketRepository bucketRepository;
+
+    @Autowired
+    private CertificateRepository certificateRepository;
+
+    @Autowired
+    private VideoProgressRepository videoProgressRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @MockBean
+    private UserService userService;
+
+    private User instructor;
+    private User student;
+    private User otherStudent;
+    private Course course;
+    private Lesson lesson;
+
+    @BeforeEach
+    void setUp() {
+        bucketRepository.deleteAll();
+        certificateRepository.deleteAll();
+        videoProgressRepository.deleteAll();
+        enrollmentRepository.deleteAll();
+        lessonRepository.deleteAll();
+        courseRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+
+        Role studentRole = roleRepository.save(role("STUDENT"));
+        instructor = userRepository.save(user("instructor@example.com", roleRepository.save(role("INSTRUCTOR"))));
+        student = userRepository.save(user("student@example.com", studentRole));
+        otherStudent = userRepository.save(user("other@example.com", studentRole));
+
+        Course newCourse = new Course();
+        newCourse.setTitle("Rollups");
+        newCourse.setInstructor(instructor);
+        course = courseRepository.save(newCourse);
+        Lesson newLesson = new Lesson("Intro", null, null, 600, 1);
+        newLesson.setCourse(course);
+        lesson = lessonRepository.save(newLesson);
+
+        when(userService.getCurrentUser()).thenReturn(instructor);
+    }
+
+    @Test
+    void rollsUpCommittedActivityIntoHourAndDayBuckets() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(LearningActivityEvent.enrollment(student.getId(), course.getId(), instructor.getId()));
+            eventPublisher.publishEvent(LearningActivityEvent.lessonProgress(student.getId(), course.getId(),
+                    instructor.getId(), lesson.getId(), 30));
+            eventPublisher.publishEvent(LearningActivityEvent.lessonCompleted(student.getId(), course.getId(),
+                    instructor.getId(), lesson.getId()));
+        });
+        tx.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(LearningActivityEvent.certificateIssued(student.getId(), course.getId(), instructor.getId()));
+            status.setRollbackOnly();
+        });
+        analyticsService.flush();
+
+        // The second flush increments the buckets the first one created
+        eventPublisher.publishEvent(LearningActivityEvent.lessonProgress(student.getId(), course.getId(),
+                instructor.getId(), lesson.getId(), 15));
+        analyticsService.flush();
+
+        for (Granularity granularity : Granularity.values()) {
+            CourseActivityBucket total = total(granularity);
+            assertEquals(1, total.getEnrollments(), granularity.name());
+            assertEquals(1, total.getLessonCompletions(), granularity.name());
+            assertEquals(45, total.getWatchSeconds(), granularity.name());
+            assertEquals(0, total.getCertificates(), granularity.name());
+        }
+
+        List<ActivityBucketResponse> hourly = analyticsService.getCourseActivity(course.getId(), Granularity.HOUR,
+                null, LocalDateTime.now().plusHours(1));
+        assertEquals(45, hourly.stream().mapToLong(ActivityBucketResponse::getWatchSeconds).sum());
+    }
+
+    @Test
+    void backfillFillsOnlyHistoryBeforeTheLiveBuckets() {
+        LocalDateTime liveStart = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusDays(1);
+        LocalDateTime liveDay = liveStart.truncatedTo(ChronoUnit.DAYS);
+        bucketRepository.save(new CourseActivityBucket(null, course.getId(), Granularity.HOUR, liveStart, 7, 0, 0, 0));
+        bucketRepository.save(new CourseActivityBucket(null, course.getId(), Granularity.DAY, liveDay, 7, 0, 0, 0));
+
+        LocalDateTime before = liveStart.minusDays(2).plusMinutes(10);
+        enroll(student, before);
+        // Counted live already
+        enroll(otherStudent, liveStart.plusMinutes(30));
+        VideoProgress progress = new VideoProgress(student, lesson, 120, 600);
+        progress.setIsCompleted(true);
+        progress.setLastWatchedAt(before.plusMinutes(5));
+        videoProgressRepository.save(progress);
+        certificateRepository.save(new Certificate(null, student, course, before.plusMinutes(20), "SH-1", null, 100.0));
+
+        Map<String, Object> result = analyticsService.backfill();
+
+        assertEquals(2, result.get("bucketsWritten"));
+        assertEquals(liveStart, result.get("hourlyCutoff"));
+        assertEquals(liveDay, result.get("dailyCutoff"));
+        assertBackfilled(Granularity.HOUR, before.truncatedTo(ChronoUnit.HOURS));
+        assertBackfilled(Granularity.DAY, before.truncatedTo(ChronoUnit.DAYS));
+        assertEquals(7, bucket(Granularity.HOUR, liveStart).orElseThrow().getEnrollments());
+        assertEquals(7, bucket(Granularity.DAY, liveDay).orElseThrow().getEnrollments());
+        assertEquals(4, bucketRepository.count());
+
+        // Nothing before the earliest bucket is missing any more
+        assertEquals(0, analyticsService.backfill().get("bucketsWritten"));
+        assertEquals(4, bucketRepository.count());
+        assertBackfilled(Granularity.HOUR, before.truncatedTo(ChronoUnit.HOURS));
+    }
+
+    private void assertBackfilled(Granularity granularity, LocalDateTime start) {
+        CourseActivityBucket bucket = bucket(granularity, start).orElseThrow();
+        assertEquals(1, bucket.getEnrollments(), granularity.name());
+        assertEquals(1, bucket.getLessonCompletions(), granularity.name());
+        assertEquals(120, bucket.getWatchSeconds(), granularity.name());
+        assertEquals(1, bucket.getCertificates(), granularity.name());
+    }
+
+    private Optional<CourseActivityBucket> bucket(Granularity granularity, LocalDateTime start) {
+        return bucketRepository.findAll().stream()
+                .filter(bucket -> bucket.getGranularity() == granularity && bucket.getBucketStart().equals(start))
+                .findFirst();
+    }
+
+    /**
+     * Sum of a granularity's buckets, in case the test ran across the end of an hour
+     */
+    private CourseActivityBucket total(Granularity granularity) {
+        CourseActivityBucket total = new CourseActivityBucket();
+        for (CourseActivityBucket bucket : bucketRepository.findAll()) {
+            if (bucket.getGranularity() == granularity) {
+                total.setEnrollments(total.getEnrollments() + bucket.getEnrollments());
+                total.setLessonCompletions(total.getLessonCompletions() + bucket.getLessonCompletions());
+                total.setWatchSeconds(total.getWatchSeconds() + bucket.getWatchSeconds());
+                total.setCertificates(total.getCertificates() + bucket.getCertificates());
+            }
+        }
+        return total;
+    }
+
+    private void enroll(User enrolled, LocalDateTime at) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setCourse(course);
+        enrollment.setStudent(enrolled);
+        enrollment.setEnrolledAt(at);
+        enrollmentRepository.save(enrollment);
+    }
+
+    private static Role role(String name) {
+        Role role = new Role();
+        role.setRoleName(name);
+        return role;
+    }
+
+    private static User user(String email, Role role) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,205 @@
+package com.skillhub.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.Enrollment;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.entity.WaitlistEntry;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.CourseSeatStripeRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.RoleRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.repository.WaitlistEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs without the usual test transaction, since seats are taken in transactions of their own
+ */
+@DataJpaTest
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({BulkEnrollmentService.class, SeatAllocationService.class, EnrollmentMembershipIndex.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BulkEnrollmentServiceTest {
+
+    @Autowired
+    private BulkEnrollmentService bulkEnrollmentService;
+
+    @Autowired
+    private EnrollmentMembershipIndex membershipIndex;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    @Autowired
+    private CourseSeatStripeRepository stripeRepository;
+
+    @Autowired
+    private SeatAllocationService seatAllocationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockBean
+    private CourseService courseService;
+
+    @MockBean
+    private UserService userService;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        enrollmentRepository.deleteAll();
+        waitlistRepository.deleteAll();
+        stripeRepository.deleteAll();
+        courseRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+
+        Role student = roleRepository.save(role("STUDENT"));
+        Role instructorRole = roleRepository.save(role("INSTRUCTOR"));
+        User instructor = userRepository.save(user("teacher@example.com", instructorRole));
+        userRepository.save(user("ann@example.com", student));
+        userRepository.save(user("bob@example.com", student));
+        userRepository.save(user("dan@example.com", student));
+        User carol = userRepository.save(user("carol@example.com", student));
+
+        course = new Course();
+        course.setTitle("Course");
+        course.setInstructor(instructor);
+        course = courseRepository.save(course);
+
+        enroll(course, carol);
+    }
+
+    @Test
+    void csvImportReportsEveryRow() throws Exception {
+        String csv = "name,email\n" +
+                "Ann,ann@example.com\n" +
+                "Bob,\"Bob@Example.com\"\n" +
+                "Ann again,ANN@example.com\n" +
+                "Carol,carol@example.com\n" +
+                "Teacher,teacher@example.com\n" +
+                "Nobody,nobody@example.com\n" +
+                "Broken,not-an-email\n";
+
+        List<JsonNode> lines = runImport(csv, false);
+
+        assertEquals(List.of("ENROLLED", "ENROLLED", "DUPLICATE_IN_REQUEST", "ALREADY_ENROLLED",
+                "NOT_A_STUDENT", "USER_NOT_FOUND", "INVALID_EMAIL"), statuses(lines));
+        assertEquals(7, lines.get(7).get("summary").get("rows").asInt());
+        assertEquals(3, enrollmentRepository.countByCourseId(course.getId()));
+        Long bobId = userRepository.findByEmail("bob@example.com").orElseThrow().getId();
+        assertTrue(membershipIndex.isEnrolled(course.getId(), bobId));
+    }
+
+    @Test
+    void jsonImportAcceptsStringsAndObjects() throws Exception {
+        String json = "[\"ann@example.com\", {\"email\": \"bob@example.com\", \"name\": \"Bob\"}, {\"name\": \"none\"}]";
+
+        List<JsonNode> lines = runImport(json, true);
+
+        assertEquals(List.of("ENROLLED", "ENROLLED", "INVALID_EMAIL"), statuses(lines));
+        assertEquals(3, enrollmentRepository.countByCourseId(course.getId()));
+    }
+
+    @Test
+    void fullCourseWaitlistsTheOverflowInUploadOrder() throws Exception {
+        Course capped = new Course();
+        capped.setTitle("Cohort");
+        capped.setInstructor(course.getInstructor());
+        capped.setCapacity(2);
+        course = courseRepository.save(capped);
+        enroll(course, userRepository.findByEmail("carol@example.com").orElseThrow());
+        seatAllocationService.configure(course.getId(), 2);
+
+        List<JsonNode> lines = runImport("email\ndan@example.com\nann@example.com\nbob@example.com\n", false);
+
+        // Carol already holds one of the two seats
+        assertEquals(List.of("ENROLLED", "WAITLISTED", "WAITLISTED"), statuses(lines));
+        assertEquals(2, enrollmentRepository.countByCourseId(course.getId()));
+        assertEquals(2L, seatAllocationService.getSeatStatus(course.getId()).get("seatsTaken"));
+        assertEquals(List.of("ann@example.com", "bob@example.com"), waitlistRepository.findAll().stream()
+                .sorted(Comparator.comparing(WaitlistEntry::getId))
+                .map(entry -> userRepository.findById(entry.getStudentId()).orElseThrow().getEmail())
+                .toList());
+
+        // Importing the same list again keeps everyone's place
+        assertEquals(List.of("ALREADY_ENROLLED", "WAITLISTED", "WAITLISTED"),
+                statuses(runImport("email\ndan@example.com\nann@example.com\nbob@example.com\n", false)));
+        assertEquals(2, waitlistRepository.countByCourseId(course.getId()));
+    }
+
+    private List<JsonNode> runImport(String body, boolean json) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        bulkEnrollmentService.importEnrollments(course,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), json, output);
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+
+    private static List<String> statuses(List<JsonNode> lines) {
+        return lines.stream().filter(line -> line.has("status")).map(line -> line.get("status").asText()).toList();
+    }
+
+    private void enroll(Course course, User student) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setCourse(course);
+        enrollment.setStudent(student);
+        enrollment.setEnrolledAt(LocalDateTime.now());
+        enrollmentRepository.save(enrollment);
+    }
+
+    private static Role role(String name) {
+        Role role = new Role();
+        role.setRoleName(name);
+        return role;
+    }
+
+    private static User user(String email, Role role) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,247 @@
+package com.skillhub.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CachingStorageBackendTest {
+
+    @TempDir
+    Path bucketDir;
+
+    @TempDir
+    Path cacheDir;
+
+    // Stands in for the bucket, counting the downloads
+    private CountingBackend remote;
+
+    @BeforeEach
+    void setUp() {
+        remote = new CountingBackend(bucketDir);
+    }
+
+    @Test
+    void servesRepeatReadsFromDisk() throws Exception {
+        byte[] video = bytes(1000, 1);
+        remote.put("videos/a.mp4", new ByteArrayInputStream(video), video.length, "video/mp4");
+        CachingStorageBackend cache = cache(10_000);
+
+        // The miss only starts the download, which the direct executor finishes right away
+        assertEquals(Optional.empty(), cache.localPath("videos/a.mp4"));
+        Path first = cache.localPath("videos/a.mp4").orElseThrow();
+        Path second = cache.localPath("videos/a.mp4").orElseThrow();
+
+        assertEquals(first, second);
+        assertTrue(first.startsWith(cacheDir));
+        assertArrayEquals(video, Files.readAllBytes(first));
+        try (InputStream in = cache.open("videos/a.mp4")) {
+            assertArrayEquals(video, in.readAllBytes());
+        }
+        try (InputStream in = cache.open("videos/a.mp4", 100, 50)) {
+            assertArrayEquals(Arrays.copyOfRange(video, 100, 150), in.readAllBytes());
+        }
+        assertEquals(1, remote.opens.get());
+        assertEquals(0, remote.rangedOpens.get());
+        assertEquals(1, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1000, cache.size("videos/a.mp4"));
+
+        assertEquals(Optional.empty(), cache.localPath("videos/missing.mp4"));
+        assertThrows(NoSuchFileException.class, () -> cache.open("videos/missing.mp4"));
+        assertThrows(IllegalArgumentException.class, () -> cache.localPath("videos/../../etc/passwd"));
+    }
+
+    @Test
+    void rangesOfMissesAreReadFromRemoteStorage() throws Exception {
+        byte[] video = bytes(1000, 4);
+        remote.put("videos/a.mp4", new ByteArrayInputStream(video), video.length, null);
+        // Downloads never run, so the object stays remote
+        CachingStorageBackend cache = new CachingStorageBackend(remote, cacheDir, 10_000, task -> { }, 0);
+
+        assertEquals(Optional.empty(), cache.localPath("videos/a.mp4"));
+        try (InputStream in = cache.open("videos/a.mp4", 900, 100)) {
+            assertArrayEquals(Arrays.copyOfRange(video, 900, 1000), in.readAllBytes());
+        }
+        assertEquals(1, remote.rangedOpens.get());
+        assertEquals(0, remote.opens.get());
+        assertEquals(1000, cache.size("videos/a.mp4"));
+    }
+
+    @Test
+    void evictsLeastRecentlyReadBeyondBudget() throws Exception {
+        for (String name : new String[]{"a", "b", "c"}) {
+            remote.put("videos/" + name + ".mp4", new ByteArrayInputStream(bytes(100, name.charAt(0))), 100, null);
+        }
+        CachingStorageBackend cache = cache(250);
+
+        cache.localPath("videos/a.mp4");
+        cache.localPath("videos/b.mp4");
+        Path b = cache.localPath("videos/b.mp4").orElseThrow();
+        cache.localPath("videos/a.mp4");
+        cache.localPath("videos/c.mp4");
+
+        assertEquals(200, cache.getCachedBytes());
+        assertFalse(Files.exists(b));
+        assertEquals(3, remote.opens.get());
+
+        // a stayed, b has to be fetched again
+        assertTrue(cache.localPath("videos/a.mp4").isPresent());
+        assertEquals(3, remote.opens.get());
+        assertEquals(Optional.empty(), cache.localPath("videos/b.mp4"));
+        assertEquals(4, remote.opens.get());
+        assertTrue(cache.getCachedBytes() <= 250);
+    }
+
+    @Test
+    void evictedFilesOutliveTheGracePeriodForHandedOutPaths() throws Exception {
+        for (String name : new String[]{"a", "b"}) {
+            remote.put("videos/" + name + ".mp4", new ByteArrayInputStream(bytes(100, name.charAt(0))), 100, null);
+        }
+        CachingStorageBackend cache = new CachingStorageBackend(remote, cacheDir, 150, Runnable::run, 300);
+        try {
+            cache.localPath("videos/a.mp4");
+            Path a = cache.localPath("videos/a.mp4").orElseThrow();
+            cache.localPath("videos/b.mp4");
+
+            // Out of the index, but a response that was handed the path can still open it
+            assertEquals(100, cache.getCachedBytes());
+            assertTrue(Files.exists(a));
+            try (InputStream in = Files.newInputStream(a)) {
+                assertEquals(100, in.readAllBytes().length);
+            }
+
+            for (int i = 0; i < 100 && Files.exists(a); i++) {
+                Thread.sleep(50);
+            }
+            assertFalse(Files.exists(a));
+            assertTrue(cache.localPath("videos/b.mp4").isPresent());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    void concurrentMissesDownloadOnce() throws Exception {
+        byte[] video = bytes(50_000, 3);
+        remote.put("videos/hot.mp4", new ByteArrayInputStream(video), video.length, null);
+        CachingStorageBackend cache = new CachingStorageBackend(remote, cacheDir, 1_000_000, 4, 0);
+
+        ExecutorService viewers = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Path>>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 8; i++) {
+                results.add(viewers.submit(() -> {
+                    start.await();
+                    return cache.localPath("videos/hot.mp4");
+                }));
+            }
+            start.countDown();
+            for (Future<Optional<Path>> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+            Path file = null;
+            for (int i = 0; i < 200 && file == null; i++) {
+                Thread.sleep(50);
+                file = cache.localPath("videos/hot.mp4").orElse(null);
+            }
+            assertArrayEquals(video, Files.readAllBytes(file));
+        } finally {
+            viewers.shutdownNow();
+            cache.close();
+        }
+        assertEquals(1, remote.opens.get());
+    }
+
+    @Test
+    void writesGoThroughAndDropTheCachedCopy() throws Exception {
+        remote.put("videos/a.mp4", new ByteArrayInputStream(bytes(100, 1)), 100, null);
+        CachingStorageBackend cache = cache(1000);
+        cache.localPath("videos/a.mp4");
+        assertEquals(100, cache.getCachedBytes());
+
+        byte[] replaced = bytes(120, 2);
+        cache.put("videos/a.mp4", new ByteArrayInputStream(replaced), replaced.length, null);
+        assertEquals(0, cache.getCachedBytes());
+        cache.localPath("videos/a.mp4");
+        assertArrayEquals(replaced, Files.readAllBytes(cache.localPath("videos/a.mp4").orElseThrow()));
+
+        cache.delete("videos/a.mp4");
+        assertFalse(remote.exists("videos/a.mp4"));
+        assertFalse(cache.exists("videos/a.mp4"));
+    }
+
+    @Test
+    void keepsCachedFilesAcrossRestarts() throws Exception {
+        remote.put("videos/a.mp4", new ByteArrayInputStream(bytes(100, 1)), 100, null);
+        cache(1000).localPath("videos/a.mp4");
+        Files.write(cacheDir.resolve("videos/b.mp4.1234.tmp"), new byte[10]);
+
+        CachingStorageBackend restarted = cache(1000);
+
+        assertEquals(100, restarted.getCachedBytes());
+        assertFalse(Files.exists(cacheDir.resolve("videos/b.mp4.1234.tmp")));
+        assertTrue(restarted.localPath("videos/a.mp4").isPresent());
+        assertEquals(1, remote.opens.get());
+    }
+
+    /**
+     * A cache that downloads on the calling thread and deletes evicted files right away
+     */
+    private CachingStorageBackend cache(long maxBytes) throws IOException {
+        return new CachingStorageBackend(remote, cacheDir, maxBytes, Runnable::run, 0);
+    }
+
+    private static byte[] bytes(int count, long seed) {
+        byte[] data = new byte[count];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static class CountingBackend extends LocalStorageBackend {
+        private final AtomicInteger opens = new AtomicInteger();
+        private final AtomicInteger rangedOpens = new AtomicInteger();
+
+        CountingBackend(Path root) {
+            super(root);
+        }
+
+        @Override
+        public InputStream open(String key) throws IOException {
+            InputStream in = super.open(key);
+            opens.incrementAndGet();
+            return in;
+        }
+
+        @Override
+        public InputStream open(String key, long start, long length) throws IOException {
+            InputStream in = super.open(key, start, length);
+            rangedOpens.incrementAndGet();
+            return in;
+        }
+    }
+}
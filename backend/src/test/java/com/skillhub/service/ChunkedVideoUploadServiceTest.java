@@ -0,0 +1,128 @@
+package com.skillhub.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.skillhub.config.StorageConfig;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.entity.VideoUploadSession;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({ChunkedVideoUploadService.class, VideoMetadataService.class, VideoStorageService.class, StorageConfig.class})
+class ChunkedVideoUploadServiceTest {
+
+    @TempDir
+    static Path uploadDir;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.upload.dir", () -> uploadDir.toString());
+        registry.add("app.upload.video.max-bytes", () -> 100_000);
+        registry.add("app.upload.video.max-chunk-bytes", () -> 4096);
+        registry.add("aws.s3.bucket.videos", () -> "videos");
+    }
+
+    @Autowired
+    private ChunkedVideoUploadService uploadService;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private AmazonS3 s3Client;
+
+    private byte[] video;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setRoleName("INSTRUCTOR");
+        User instructor = new User();
+        instructor.setId(1L);
+        instructor.setRole(role);
+        when(userService.getCurrentUser()).thenReturn(instructor);
+
+        video = new byte[10_000];
+        new Random(11).nextBytes(video);
+    }
+
+    @Test
+    void resumesFromLastAcknowledgedOffset() throws Exception {
+        VideoUploadSession session = uploadService.start("lesson.mp4", "video/mp4", video.length, null);
+        String id = session.getId();
+
+        assertEquals(4096, chunk(id, 0, 4096).getReceivedBytes());
+
+        // A corrupted chunk is rejected and leaves the offset where it was
+        byte[] corrupted = Arrays.copyOfRange(video, 4096, 8192);
+        corrupted[10] ^= 1;
+        assertThrows(RuntimeException.class, () -> uploadService.appendChunk(id, 4096, corrupted.length,
+                sha256(Arrays.copyOfRange(video, 4096, 8192)), new ByteArrayInputStream(corrupted)));
+
+        // So is a chunk at the wrong offset; the client learns where to continue
+        ChunkedVideoUploadService.OffsetMismatchException conflict = assertThrows(
+                ChunkedVideoUploadService.OffsetMismatchException.class, () -> chunk(id, 8192, 1808));
+        assertEquals(4096, conflict.getCurrentOffset());
+        assertEquals(4096, uploadService.getSession(id).getReceivedBytes());
+
+        chunk(id, 4096, 4096);
+        assertThrows(RuntimeException.class, () -> uploadService.complete(id));
+        chunk(id, 8192, 1808);
+        uploadService.complete(id);
+
+        String filename = uploadService.getSession(id).getFilename();
+        assertEquals(sha256(video) + ".mp4", filename);
+        assertArrayEquals(video, Files.readAllBytes(uploadDir.resolve("videos").resolve(filename)));
+        assertTrue(uploadService.getSession(id).isCompleted());
+
+        // Announcing the same content again finishes without a single chunk
+        VideoUploadSession again = uploadService.start("copy.mp4", "video/mp4", video.length, sha256(video));
+        assertTrue(again.isCompleted());
+        assertEquals(filename, again.getFilename());
+        uploadService.complete(again.getId());
+        assertEquals(filename, uploadService.getSession(again.getId()).getFilename());
+    }
+
+    @Test
+    void rejectsOversizedUploadsBeforeReadingData() throws Exception {
+        assertThrows(RuntimeException.class, () -> uploadService.start("big.mp4", "video/mp4", 100_001, null));
+        assertThrows(RuntimeException.class, () -> uploadService.start("notes.pdf", "application/pdf", 10, null));
+
+        String id = uploadService.start("lesson.mp4", "video/mp4", video.length, null).getId();
+        assertThrows(RuntimeException.class, () -> uploadService.appendChunk(id, 0, 8192, sha256(new byte[0]),
+                new ByteArrayInputStream(new byte[0])));
+        assertThrows(RuntimeException.class, () -> uploadService.appendChunk(id, 0, -1, sha256(new byte[0]),
+                new ByteArrayInputStream(new byte[0])));
+    }
+
+    private VideoUploadSession chunk(String id, int offset, int length) throws Exception {
+        byte[] data = Arrays.copyOfRange(video, offset, offset + length);
+        return uploadService.appendChunk(id, offset, length, sha256(data), new ByteArrayInputStream(data));
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+    }
+}
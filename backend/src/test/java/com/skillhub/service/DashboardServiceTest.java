@@ -0,0 +1,101 @@
+package com.skillhub.service;
+
+import com.skillhub.entity.User;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.LessonRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DashboardServiceTest {
+
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+    private final LessonRepository lessonRepository = mock(LessonRepository.class);
+    private final EnrollmentRepository enrollmentRepository = mock(EnrollmentRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final DashboardService dashboardService = new DashboardService();
+    private final ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+    private final User instructor = new User();
+
+    @BeforeEach
+    void setUp() {
+        pool.setCorePoolSize(4);
+        pool.initialize();
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ReflectionTestUtils.setField(dashboardService, "courseRepository", courseRepository);
+        ReflectionTestUtils.setField(dashboardService, "lessonRepository", lessonRepository);
+        ReflectionTestUtils.setField(dashboardService, "enrollmentRepository", enrollmentRepository);
+        ReflectionTestUtils.setField(dashboardService, "transactionManager", transactionManager);
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", pool);
+        ReflectionTestUtils.setField(dashboardService, "sectionTimeoutMs", 200L);
+        instructor.setId(7L);
+        instructor.setName("Ada");
+        when(courseRepository.findCourseSummariesByInstructorId(7L)).thenReturn(List.of());
+        when(lessonRepository.countLessonsPerCourseByInstructorId(7L)).thenReturn(List.of());
+        when(enrollmentRepository.countEnrollmentsPerCourseByInstructorId(7L)).thenReturn(List.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void slowSectionFallsBackAndItsQueriesCarryATimeout() {
+        when(enrollmentRepository.countDistinctStudentsByInstructorId(anyLong())).thenAnswer(inv -> {
+            Thread.sleep(1500);
+            return 42L;
+        });
+
+        long started = System.nanoTime();
+        Map<String, Object> dashboard = dashboardService.getInstructorDashboard(instructor);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertTrue(elapsedMs < 1000, "took " + elapsedMs + " ms");
+        assertEquals(0L, dashboard.get("totalStudents"));
+        assertEquals(List.of("totalStudents"), dashboard.get("unavailableSections"));
+        // 200 ms rounds up to the one-second minimum the transaction timeout allows
+        verify(transactionManager, atLeastOnce()).getTransaction(argThat(definition ->
+                definition.isReadOnly() && definition.getTimeout() == 1));
+    }
+
+    @Test
+    void fullPoolServesFallbacksWithoutRunningOnTheRequestThread() {
+        AtomicInteger submitted = new AtomicInteger();
+        Executor full = task -> {
+            submitted.incrementAndGet();
+            throw new TaskRejectedException("Dashboard pool is full");
+        };
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", full);
+
+        Map<String, Object> dashboard = dashboardService.getInstructorDashboard(instructor);
+
+        assertEquals(4, submitted.get());
+        assertEquals(List.of(), dashboard.get("myCourses"));
+        assertEquals(4, ((List<?>) dashboard.get("unavailableSections")).size());
+        verify(courseRepository, never()).findCourseSummariesByInstructorId(anyLong());
+        verify(enrollmentRepository, never()).countDistinctStudentsByInstructorId(anyLong());
+    }
+}
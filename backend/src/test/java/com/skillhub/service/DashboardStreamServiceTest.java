@@ -0,0 +1,94 @@
+package com.skillhub.service;
+
+import com.skillhub.event.LearningActivityEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@DataJpaTest
+@Import(DashboardStreamService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DashboardStreamServiceTest {
+
+    @Autowired
+    private DashboardStreamService streamService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MvcResult stream;
+
+    @AfterEach
+    void tearDown() {
+        if (stream != null) {
+            stream.getRequest().getAsyncContext().complete();
+        }
+    }
+
+    @Test
+    void countsActivityOnlyOnceItCommits() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AdminStream(streamService)).build();
+        stream = mockMvc.perform(get("/stream")).andExpect(request().asyncStarted()).andReturn();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        tx.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(LearningActivityEvent.enrollment(10L, 1L, 2L));
+            status.setRollbackOnly();
+        });
+        streamService.flush();
+        assertTrue(content().contains("\"newEnrollments\":0"), content());
+
+        tx.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(LearningActivityEvent.enrollment(11L, 1L, 2L));
+            // Not counted before the commit either
+            streamService.flush();
+            assertFalse(content().contains("\"newEnrollments\":1"), content());
+        });
+        streamService.flush();
+        assertTrue(content().contains("\"newEnrollments\":1"), content());
+    }
+
+    private String content() {
+        try {
+            return stream.getResponse().getContentAsString();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @RestController
+    public static class AdminStream {
+        private final DashboardStreamService streamService;
+
+        AdminStream(DashboardStreamService streamService) {
+            this.streamService = streamService;
+        }
+
+        @GetMapping("/stream")
+        public ResponseEntity<SseEmitter> stream() {
+            return ResponseEntity.ok(streamService.subscribeAdmin());
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.skillhub.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.skillhub.config.StorageConfig;
+import com.skillhub.dto.LessonOwnership;
+import com.skillhub.entity.Lesson;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import({DirectVideoUploadService.class, VideoStorageService.class, VideoMetadataService.class, StorageConfig.class})
+class DirectVideoUploadServiceTest {
+
+    private static final String HASH = "ab".repeat(32);
+    private static final String KEY = "videos/" + HASH + ".mp4";
+    private static final String OBJECT_URL = "https://videos.s3.eu-west-1.amazonaws.com/" + KEY;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.upload.dir", () -> "target/direct-upload-test");
+        registry.add("aws.s3.bucket.videos", () -> "videos");
+    }
+
+    @Autowired
+    private DirectVideoUploadService uploadService;
+
+    @MockBean
+    private AmazonS3 s3Client;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private LessonService lessonService;
+
+    private User instructor;
+    private byte[] video;
+    private final AtomicLong downloadedBytes = new AtomicLong();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Role role = new Role();
+        role.setRoleName("INSTRUCTOR");
+        instructor = new User();
+        instructor.setId(1L);
+        instructor.setRole(role);
+        when(userService.getCurrentUser()).thenReturn(instructor);
+
+        // An ftyp box, then a large mdat that the metadata reader should never download
+        video = new byte[2_000_032];
+        ByteBuffer boxes = ByteBuffer.wrap(video);
+        boxes.putInt(16).put("ftyp".getBytes(StandardCharsets.ISO_8859_1)).put("isom".getBytes(StandardCharsets.ISO_8859_1)).putInt(0);
+        boxes.putInt(2_000_008).put("mdat".getBytes(StandardCharsets.ISO_8859_1));
+        boxes.position(video.length - 8);
+        boxes.putInt(8).put("free".getBytes(StandardCharsets.ISO_8859_1));
+
+        when(s3Client.getUrl("videos", KEY)).thenReturn(new URL(OBJECT_URL));
+        when(s3Client.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+                .thenReturn(new URL(OBJECT_URL + "?X-Amz-Signature=abc"));
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> ranged(invocation.getArgument(0)));
+    }
+
+    @Test
+    void presignsPutWithChecksumAndCompletesWithoutDownloadingTheVideo() {
+        Map<String, Object> presigned = uploadService.presign("lesson.mp4", "video/mp4", video.length, HASH);
+
+        assertEquals("PUT", presigned.get("method"));
+        assertEquals(OBJECT_URL, presigned.get("videoUrl"));
+        @SuppressWarnings("unchecked")
+        Map<String, String> headers = (Map<String, String>) presigned.get("headers");
+        assertEquals("q6urq6urq6urq6urq6urq6urq6urq6urq6urq6urq6s=", headers.get("x-amz-checksum-sha256"));
+        verify(s3Client).generatePresignedUrl(any(GeneratePresignedUrlRequest.class));
+
+        // Nothing has arrived yet
+        when(lessonService.getLessonOwnership(7L)).thenReturn(Optional.of(new LessonOwnership(7L, 3L, 1L)));
+        assertThrows(RuntimeException.class, () -> uploadService.complete(HASH, 7L));
+
+        when(s3Client.doesObjectExist("videos", KEY)).thenReturn(true);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(video.length);
+        metadata.setLastModified(new Date());
+        when(s3Client.getObjectMetadata("videos", KEY)).thenReturn(metadata);
+        Lesson lesson = new Lesson();
+        lesson.setVideoFilename("old.mp4");
+        when(lessonService.getLessonById(7L)).thenReturn(Optional.of(lesson));
+        when(lessonService.updateLesson(lesson)).thenReturn(lesson);
+
+        uploadService.complete(HASH, 7L);
+
+        assertEquals(OBJECT_URL, lesson.getVideoUrl());
+        assertNull(lesson.getVideoFilename());
+        verify(lessonService).updateLesson(lesson);
+        // Only the box headers were read
+        assertTrue(downloadedBytes.get() < 1024, "downloaded " + downloadedBytes.get() + " bytes");
+
+        // The same content again needs no upload at all
+        Map<String, Object> again = uploadService.presign("copy.mp4", "video/mp4", video.length, HASH);
+        assertEquals(true, again.get("deduplicated"));
+        assertEquals(OBJECT_URL, again.get("videoUrl"));
+    }
+
+    @Test
+    void rejectsUploadsThatDoNotMatch() {
+        assertThrows(RuntimeException.class, () -> uploadService.presign("lesson.mp4", "video/mp4", 10, null));
+        assertThrows(RuntimeException.class, () -> uploadService.presign("notes.pdf", "application/pdf", 10, HASH));
+
+        uploadService.presign("lesson.mp4", "video/mp4", video.length, HASH);
+        when(s3Client.doesObjectExist("videos", KEY)).thenReturn(true);
+        ObjectMetadata truncated = new ObjectMetadata();
+        truncated.setContentLength(video.length - 1);
+        truncated.setLastModified(new Date());
+        when(s3Client.getObjectMetadata("videos", KEY)).thenReturn(truncated);
+
+        // Someone else's lesson
+        when(lessonService.getLessonOwnership(8L)).thenReturn(Optional.of(new LessonOwnership(8L, 4L, 2L)));
+        assertThrows(RuntimeException.class, () -> uploadService.complete(HASH, 8L));
+        verify(s3Client, never()).getObjectMetadata(anyString(), eq(KEY));
+
+        when(lessonService.getLessonOwnership(7L)).thenReturn(Optional.of(new LessonOwnership(7L, 3L, 1L)));
+        assertThrows(RuntimeException.class, () -> uploadService.complete(HASH, 7L));
+        verify(lessonService, never()).updateLesson(any());
+    }
+
+    @Test
+    void knowingTheHashIsNotEnoughToAttachSomeoneElsesVideo() {
+        // The owner uploads and attaches the video a while ago
+        uploadService.presign("lesson.mp4", "video/mp4", video.length, HASH);
+        when(s3Client.doesObjectExist("videos", KEY)).thenReturn(true);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(video.length);
+        metadata.setLastModified(new Date());
+        when(s3Client.getObjectMetadata("videos", KEY)).thenReturn(metadata);
+        when(lessonService.getLessonOwnership(7L)).thenReturn(Optional.of(new LessonOwnership(7L, 3L, 1L)));
+        Lesson lesson = new Lesson();
+        when(lessonService.getLessonById(7L)).thenReturn(Optional.of(lesson));
+        uploadService.complete(HASH, 7L);
+        metadata.setLastModified(new Date(System.currentTimeMillis() - 3_600_000));
+
+        // Another instructor reads the hash off the lesson's video URL
+        Role role = new Role();
+        role.setRoleName("INSTRUCTOR");
+        User other = new User();
+        other.setId(2L);
+        other.setRole(role);
+        when(userService.getCurrentUser()).thenReturn(other);
+        when(lessonService.getLessonOwnership(9L)).thenReturn(Optional.of(new LessonOwnership(9L, 5L, 2L)));
+
+        assertThrows(RuntimeException.class, () -> uploadService.complete(HASH, 9L));
+        // Asking for an upload URL gets one, not the stored copy
+        Map<String, Object> presigned = uploadService.presign("lesson.mp4", "video/mp4", video.length, HASH);
+        assertEquals(false, presigned.get("deduplicated"));
+        assertEquals("PUT", presigned.get("method"));
+        // and completing without uploading finds only the owner's older object
+        assertThrows(RuntimeException.class, () -> uploadService.complete(HASH, 9L));
+        verify(lessonService, never()).getLessonById(9L);
+
+        // An actual upload of the same bytes is accepted
+        metadata.setLastModified(new Date());
+        when(lessonService.getLessonById(9L)).thenReturn(Optional.of(new Lesson()));
+        uploadService.complete(HASH, 9L);
+        verify(lessonService).getLessonById(9L);
+    }
+
+    private S3Object ranged(GetObjectRequest request) {
+        long[] range = request.getRange();
+        int start = (int) range[0];
+        int end = (int) Math.min(range[1], video.length - 1);
+        S3Object object = new S3Object();
+        object.setObjectContent(new S3ObjectInputStream(new FilterInputStream(
+                new ByteArrayInputStream(Arrays.copyOfRange(video, start, end + 1))) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = super.read(buffer, offset, length);
+                downloadedBytes.addAndGet(Math.max(0, read));
+                return read;
+            }
+        }, null));
+        return object;
+    }
+}
@@ -0,0 +1,108 @@
+package com.skillhub.service;
+
+import com.skillhub.repository.EnrollmentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnrollmentMembershipIndexTest {
+
+    private final EnrollmentRepository repository = mock(EnrollmentRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    void loadsCourseOnceAndAnswersFromMemory() {
+        when(repository.findStudentIdsByCourseId(1L)).thenReturn(List.of(10L, 11L));
+        EnrollmentMembershipIndex index = new EnrollmentMembershipIndex(repository, transactionManager, 1 << 20, 600_000);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(index.isEnrolled(1L, 10L));
+            assertFalse(index.isEnrolled(1L, 12L));
+        }
+        verify(repository, times(1)).findStudentIdsByCourseId(1L);
+    }
+
+    @Test
+    void tracksEnrollmentsAndRemovals() {
+        when(repository.findStudentIdsByCourseId(1L)).thenReturn(List.of(10L));
+        EnrollmentMembershipIndex index = new EnrollmentMembershipIndex(repository, transactionManager, 1 << 20, 600_000);
+
+        assertFalse(index.isEnrolled(1L, 12L));
+        index.added(1L, 12L);
+        assertTrue(index.isEnrolled(1L, 12L));
+        index.removed(1L, 10L);
+        assertFalse(index.isEnrolled(1L, 10L));
+        verify(repository, times(1)).findStudentIdsByCourseId(1L);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedCoursesOverBudget() {
+        for (long courseId = 1; courseId <= 20; courseId++) {
+            long base = courseId * 1_000_000;
+            when(repository.findStudentIdsByCourseId(courseId))
+                    .thenReturn(LongStream.range(0, 5_000).map(i -> base + i * 7).boxed().toList());
+        }
+        EnrollmentMembershipIndex index = new EnrollmentMembershipIndex(repository, transactionManager, 32 * 1024, 600_000);
+
+        for (long courseId = 1; courseId <= 20; courseId++) {
+            assertTrue(index.isEnrolled(courseId, courseId * 1_000_000));
+            assertTrue(index.getTotalBytes() <= 32 * 1024 || index.getLoadedCourseCount() == 1);
+        }
+        // Most recent course is kept, the oldest were dropped and reload on demand
+        assertTrue(index.getLoadedCourseCount() < 20);
+        assertTrue(index.isEnrolled(1L, 1_000_000L));
+        verify(repository, times(2)).findStudentIdsByCourseId(1L);
+    }
+
+    @Test
+    void evictCourseForcesReload() {
+        when(repository.findStudentIdsByCourseId(1L)).thenReturn(List.of(10L));
+        EnrollmentMembershipIndex index = new EnrollmentMembershipIndex(repository, transactionManager, 1 << 20, 600_000);
+
+        index.isEnrolled(1L, 10L);
+        index.evictCourse(1L);
+        assertEquals(0, index.getLoadedCourseCount());
+        index.isEnrolled(1L, 10L);
+        verify(repository, times(2)).findStudentIdsByCourseId(1L);
+    }
+
+    @Test
+    void loadsFromThePrimary() {
+        when(repository.findStudentIdsByCourseId(1L)).thenReturn(List.of(10L));
+        EnrollmentMembershipIndex index = new EnrollmentMembershipIndex(repository, transactionManager, 1 << 20, 600_000);
+
+        index.isEnrolled(1L, 10L);
+        // A read-write transaction, so the routing datasource does not send the load to a lagging replica
+        verify(transactionManager).getTransaction(argThat((TransactionDefinition definition) -> !definition.isReadOnly()));
+    }
+
+    @Test
+    void removedEverywhereKeepsOtherStudents() {
+        when(repository.findStudentIdsByCourseId(1L)).thenReturn(List.of(10L, 11L));
+        when(repository.findStudentIdsByCourseId(2L)).thenReturn(List.of(10L, 12L));
+        EnrollmentMembershipIndex index = new EnrollmentMembershipIndex(repository, transactionManager, 1 << 20, 600_000);
+        index.isEnrolled(1L, 10L);
+        index.isEnrolled(2L, 10L);
+
+        index.removedEverywhere(10L);
+
+        assertFalse(index.isEnrolled(1L, 10L));
+        assertFalse(index.isEnrolled(2L, 10L));
+        assertTrue(index.isEnrolled(1L, 11L));
+        assertTrue(index.isEnrolled(2L, 12L));
+        assertEquals(2, index.getLoadedCourseCount());
+        verify(repository, times(1)).findStudentIdsByCourseId(1L);
+    }
+}
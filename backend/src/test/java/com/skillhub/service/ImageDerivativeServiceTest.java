@@ -0,0 +1,175 @@
+package com.skillhub.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.RoleRepository;
+import com.skillhub.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@Import(ImageDerivativeService.class)
+class ImageDerivativeServiceTest {
+
+    private static final String BUCKET_URL = "https://thumbs.s3.eu-west-1.amazonaws.com/";
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("aws.s3.bucket.thumbnails", () -> "thumbs");
+    }
+
+    @Autowired
+    private ImageDerivativeService derivativeService;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @MockBean
+    private AmazonS3 s3Client;
+
+    // Stand-in for the thumbnails bucket
+    private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+
+    private User instructor;
+
+    @BeforeEach
+    void setUp() {
+        when(s3Client.getUrl(eq("thumbs"), anyString()))
+                .thenAnswer(invocation -> new URL(BUCKET_URL + invocation.getArgument(1)));
+        when(s3Client.putObject(any(PutObjectRequest.class))).thenAnswer(invocation -> {
+            PutObjectRequest request = invocation.getArgument(0);
+            objects.put(request.getKey(), request.getInputStream().readAllBytes());
+            return null;
+        });
+        when(s3Client.doesObjectExist(eq("thumbs"), anyString()))
+                .thenAnswer(invocation -> objects.containsKey(invocation.<String>getArgument(1)));
+        when(s3Client.getObject(eq("thumbs"), anyString())).thenAnswer(invocation -> {
+            byte[] data = objects.get(invocation.<String>getArgument(1));
+            if (data == null) {
+                throw new AmazonS3Exception("NoSuchKey");
+            }
+            S3Object object = new S3Object();
+            object.setObjectContent(new ByteArrayInputStream(data));
+            return object;
+        });
+
+        Role role = new Role();
+        role.setRoleName("INSTRUCTOR");
+        instructor = new User();
+        instructor.setName("Teacher");
+        instructor.setEmail("teacher@example.com");
+        instructor.setPassword("secret");
+        instructor.setRole(roleRepository.save(role));
+        instructor = userRepository.save(instructor);
+    }
+
+    @Test
+    void storesResizedJpegsNextToTheOriginal() throws Exception {
+        byte[] original = png(2400, 1200);
+
+        assertEquals(List.of(320, 640, 1280), derivativeService.generate("thumbnails/cover.png", original));
+
+        for (int width : new int[]{320, 640, 1280}) {
+            byte[] jpeg = objects.get("thumbnails/cover-" + width + "w.jpg");
+            BufferedImage copy = ImageIO.read(new ByteArrayInputStream(jpeg));
+            assertEquals(width, copy.getWidth());
+            assertEquals(width / 2, copy.getHeight());
+        }
+        assertTrue(objects.get("thumbnails/cover-640w.jpg").length * 4 < original.length,
+                "card copy is " + objects.get("thumbnails/cover-640w.jpg").length + " bytes");
+
+        // Small originals are not enlarged
+        derivativeService.generate("thumbnails/icon.png", png(200, 100));
+        assertEquals(200, ImageIO.read(new ByteArrayInputStream(objects.get("thumbnails/icon-1280w.jpg"))).getWidth());
+
+        assertEquals("320,640,1280", derivativeService.availableWidths(BUCKET_URL + "thumbnails/cover.png"));
+        assertNull(derivativeService.availableWidths(BUCKET_URL + "thumbnails/other.png"));
+        assertEquals("", derivativeService.availableWidths("https://example.com/cover.png"));
+    }
+
+    @Test
+    void backfillResizesOldThumbnailsAndCatalogPicksTheCardSize() throws Exception {
+        objects.put("thumbnails/old.jpg", png(1600, 900));
+        Course old = course(BUCKET_URL + "thumbnails/old.jpg");
+        Course external = course("https://example.com/cover.png");
+        Course missing = course(BUCKET_URL + "thumbnails/gone.jpg");
+
+        assertEquals(1, derivativeService.backfill());
+
+        old = courseRepository.findById(old.getId()).orElseThrow();
+        assertEquals("320,640,1280", old.getThumbnailWidths());
+        assertEquals(BUCKET_URL + "thumbnails/old-640w.jpg",
+                derivativeService.catalogThumbnail(old.getThumbnail(), old.getThumbnailWidths()));
+
+        external = courseRepository.findById(external.getId()).orElseThrow();
+        assertEquals("", external.getThumbnailWidths());
+        assertEquals("https://example.com/cover.png",
+                derivativeService.catalogThumbnail(external.getThumbnail(), external.getThumbnailWidths()));
+
+        // Tried again on the next run
+        assertNull(courseRepository.findById(missing.getId()).orElseThrow().getThumbnailWidths());
+        assertEquals(0, derivativeService.backfill());
+
+        assertEquals(BUCKET_URL + "thumbnails/a-320w.jpg", derivativeService.catalogThumbnail(
+                BUCKET_URL + "thumbnails/a.png", "320"));
+    }
+
+    private Course course(String thumbnail) {
+        Course course = new Course();
+        course.setTitle("Course");
+        course.setThumbnail(thumbnail);
+        course.setInstructor(instructor);
+        return courseRepository.save(course);
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        // Noise compresses badly, like a photo
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Random random = new Random(5);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
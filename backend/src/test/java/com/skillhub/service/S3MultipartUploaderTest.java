@@ -0,0 +1,152 @@
+package com.skillhub.service;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3MultipartUploaderTest {
+
+    private final FakeS3 s3 = new FakeS3();
+    private final S3MultipartUploader uploader = new S3MultipartUploader(s3, 1000, 300, 3, 3, 1);
+    private final byte[] video = new byte[2000];
+
+    S3MultipartUploaderTest() {
+        new Random(9).nextBytes(video);
+    }
+
+    @AfterEach
+    void tearDown() {
+        uploader.shutdown();
+    }
+
+    @Test
+    void uploadsPartsInParallelAndRetriesFailedOnes() throws Exception {
+        s3.failuresLeft.put(3, new AtomicInteger(2));
+        AtomicLong reported = new AtomicLong();
+
+        uploader.upload("videos", "videos/a.mp4", new ObjectMetadata(), video.length,
+                () -> new ByteArrayInputStream(video), (uploaded, total) -> reported.accumulateAndGet(uploaded, Math::max));
+
+        assertArrayEquals(video, s3.objects.get("videos/a.mp4"));
+        assertEquals(7, s3.partsUploaded.get());
+        assertEquals(video.length, reported.get());
+        assertTrue(s3.aborted.isEmpty());
+    }
+
+    @Test
+    void abortsWhenAPartKeepsFailing() {
+        s3.failuresLeft.put(2, new AtomicInteger(10));
+
+        IOException error = assertThrows(IOException.class, () -> uploader.upload("videos", "videos/b.mp4",
+                new ObjectMetadata(), video.length, () -> new ByteArrayInputStream(video), (uploaded, total) -> { }));
+
+        assertTrue(error.getMessage().contains("videos/b.mp4"));
+        assertEquals(Set.of("videos/b.mp4"), s3.aborted);
+        assertTrue(s3.objects.isEmpty());
+    }
+
+    @Test
+    void smallObjectsAreSentInOnePut() throws Exception {
+        byte[] small = new byte[999];
+        uploader.upload("videos", "videos/c.mp4", new ObjectMetadata(), small.length,
+                () -> new ByteArrayInputStream(small), (uploaded, total) -> { });
+
+        assertArrayEquals(small, s3.objects.get("videos/c.mp4"));
+        assertEquals(0, s3.partsUploaded.get());
+    }
+
+    /**
+     * Just enough of S3 to run multipart uploads, failing chosen parts a number of times
+     */
+    private static class FakeS3 extends AbstractAmazonS3 {
+        final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        final Map<Integer, AtomicInteger> failuresLeft = new ConcurrentHashMap<>();
+        final Set<String> aborted = ConcurrentHashMap.newKeySet();
+        final AtomicInteger partsUploaded = new AtomicInteger();
+        private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+        @Override
+        public PutObjectResult putObject(PutObjectRequest request) {
+            objects.put(request.getKey(), read(request.getInputStream(), request.getMetadata().getContentLength()));
+            return new PutObjectResult();
+        }
+
+        @Override
+        public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+            InitiateMultipartUploadResult result = new InitiateMultipartUploadResult();
+            result.setUploadId(request.getKey() + "#upload");
+            uploads.put(result.getUploadId(), new ConcurrentHashMap<>());
+            return result;
+        }
+
+        @Override
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            AtomicInteger failures = failuresLeft.get(request.getPartNumber());
+            if (failures != null && failures.getAndDecrement() > 0) {
+                throw new AmazonServiceException("Simulated failure of part " + request.getPartNumber());
+            }
+            byte[] data = read(request.getInputStream(), request.getPartSize());
+            uploads.get(request.getUploadId()).put(request.getPartNumber(), data);
+            partsUploaded.incrementAndGet();
+            UploadPartResult result = new UploadPartResult();
+            result.setPartNumber(request.getPartNumber());
+            result.setETag("etag-" + request.getPartNumber());
+            return result;
+        }
+
+        @Override
+        public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            Map<Integer, byte[]> parts = uploads.remove(request.getUploadId());
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            int expected = 1;
+            for (PartETag etag : request.getPartETags()) {
+                assertEquals(expected++, etag.getPartNumber());
+                object.writeBytes(parts.get(etag.getPartNumber()));
+            }
+            objects.put(request.getKey(), object.toByteArray());
+            return new CompleteMultipartUploadResult();
+        }
+
+        @Override
+        public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+            uploads.remove(request.getUploadId());
+            aborted.add(request.getKey());
+        }
+
+        private static byte[] read(InputStream in, long length) {
+            try {
+                return in.readNBytes((int) length);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
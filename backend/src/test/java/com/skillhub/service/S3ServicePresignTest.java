@@ -0,0 +1,82 @@
+package com.skillhub.service;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class S3ServicePresignTest {
+
+    private S3Service s3Service;
+
+    @BeforeEach
+    void setUp() {
+        s3Service = new S3Service();
+        ReflectionTestUtils.setField(s3Service, "s3Client", AmazonS3ClientBuilder.standard()
+                .withRegion(Regions.US_EAST_1)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("test", "test")))
+                .build());
+        ReflectionTestUtils.setField(s3Service, "videosBucket", "skillhub-videos");
+        ReflectionTestUtils.setField(s3Service, "presignedUrlExpiration", 3600L);
+        ReflectionTestUtils.setField(s3Service, "presignedUrlRefreshFraction", 0.5);
+        ReflectionTestUtils.setField(s3Service, "presignedCacheMaxEntries", 100);
+    }
+
+    @Test
+    void reusesSignatureForSameObject() {
+        String virtualHosted = "https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/a.mp4";
+        String pathStyle = "https://s3.us-east-1.amazonaws.com/skillhub-videos/videos/a.mp4";
+
+        String first = s3Service.generatePresignedUrl(virtualHosted);
+        assertTrue(first.contains("X-Amz-Signature"));
+        assertSame(first, s3Service.generatePresignedUrl(virtualHosted));
+        // Both URL styles name the same (bucket, key)
+        assertSame(first, s3Service.generatePresignedUrl(pathStyle));
+        assertNotEquals(first, s3Service.generatePresignedUrl(
+                "https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/b.mp4"));
+    }
+
+    @Test
+    void signsAgainOnceRefreshPointHasPassed() {
+        ReflectionTestUtils.setField(s3Service, "presignedUrlRefreshFraction", 0.0);
+        String url = "https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/a.mp4";
+
+        String first = s3Service.generatePresignedUrl(url);
+        String second = s3Service.generatePresignedUrl(url);
+        assertNotSame(first, second);
+    }
+
+    @Test
+    void dropsOldestSignaturesOnceFull() throws InterruptedException {
+        ReflectionTestUtils.setField(s3Service, "presignedCacheMaxEntries", 10);
+        String first = s3Service.generatePresignedUrl("https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/0.mp4");
+        Thread.sleep(5);
+        for (int i = 1; i < 50; i++) {
+            s3Service.generatePresignedUrl("https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/" + i + ".mp4");
+        }
+        String last = s3Service.generatePresignedUrl("https://skillhub-videos.s3.us-east-1.amazonaws.com/videos/49.mp4");
+
+        Map<?, ?> cached = (Map<?, ?>) ReflectionTestUtils.getField(s3Service, "presignedUrls");
+        assertTrue(cached.size() <= 10, "cached " + cached.size());
+        // None of them was due for a refresh, the newest stays and the oldest went
+        assertTrue(cached.values().stream().anyMatch(entry -> entry.toString().contains(last)));
+        assertFalse(cached.values().stream().anyMatch(entry -> entry.toString().contains(first)));
+    }
+
+    @Test
+    void leavesUnparseableUrlsAlone() {
+        assertEquals("https://example.com/", s3Service.generatePresignedUrl("https://example.com/"));
+    }
+}
@@ -0,0 +1,242 @@
+package com.skillhub.service;
+
+import com.skillhub.dto.EnrollmentAttempt;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.User;
+import com.skillhub.entity.WaitlistEntry;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.CourseSeatStripeRepository;
+import com.skillhub.repository.EnrollmentRepository;
+import com.skillhub.repository.RoleRepository;
+import com.skillhub.repository.UserRepository;
+import com.skillhub.repository.WaitlistEntryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+/**
+ * Students hitting enroll on one seat-limited course at the same moment. Runs against an
+ * embedded database without the usual test transaction, so every enrollment commits on its own,
+ * as it would in production. For throughput at scale, see SeatAllocationBenchmark.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:seat-allocation;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=20000",
+    "spring.datasource.hikari.maximum-pool-size=32"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({EnrollmentService.class, SeatAllocationService.class, EnrollmentMembershipIndex.class})
+class SeatAllocationServiceTest {
+
+    private static final int STUDENTS = 200;
+    private static final int CAPACITY = 25;
+    private static final int THREADS = 32;
+
+    @Autowired
+    private EnrollmentService enrollmentService;
+
+    @Autowired
+    private SeatAllocationService seatAllocationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    private WaitlistEntryRepository waitlistRepository;
+
+    @Autowired
+    private CourseSeatStripeRepository stripeRepository;
+
+    @MockBean
+    private CourseService courseService;
+
+    @MockBean
+    private UserService userService;
+
+    private final ThreadLocal<User> currentUser = new ThreadLocal<>();
+
+    private Course course;
+    private List<User> students;
+
+    @BeforeEach
+    void setUp() {
+        enrollmentRepository.deleteAll();
+        waitlistRepository.deleteAll();
+        stripeRepository.deleteAll();
+        courseRepository.deleteAll();
+        userRepository.deleteAll();
+        roleRepository.deleteAll();
+
+        Role studentRole = roleRepository.save(role("STUDENT"));
+        Role instructorRole = roleRepository.save(role("INSTRUCTOR"));
+        User instructor = userRepository.save(user("instructor@example.com", instructorRole));
+
+        List<User> newStudents = new ArrayList<>();
+        for (int i = 0; i < STUDENTS; i++) {
+            newStudents.add(user("student" + i + "@example.com", studentRole));
+        }
+        students = userRepository.saveAll(newStudents);
+
+        Course newCourse = new Course();
+        newCourse.setTitle("Live cohort");
+        newCourse.setInstructor(instructor);
+        newCourse.setCapacity(CAPACITY);
+        course = courseRepository.save(newCourse);
+        seatAllocationService.configure(course.getId(), CAPACITY);
+
+        when(courseService.getCourseById(anyLong())).thenAnswer(inv -> courseRepository.findById(inv.getArgument(0)));
+        when(userService.getCurrentUser()).thenAnswer(inv -> currentUser.get());
+    }
+
+    @Test
+    void concurrentEnrollmentsNeverOverbook() throws Exception {
+        AtomicInteger enrolled = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (User student : students) {
+            results.add(pool.submit(() -> {
+                start.await();
+                currentUser.set(student);
+                EnrollmentAttempt attempt = enrollmentService.enrollStudent(course.getId());
+                (attempt.isWaitlisted() ? waitlisted : enrolled).incrementAndGet();
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        assertEquals(CAPACITY, enrolled.get());
+        assertEquals(STUDENTS - CAPACITY, waitlisted.get());
+        assertEquals(CAPACITY, enrollmentRepository.countByCourseId(course.getId()));
+        assertEquals(STUDENTS - CAPACITY, waitlistRepository.countByCourseId(course.getId()));
+        assertEquals(CAPACITY, stripeRepository.sumTakenByCourseId(course.getId()));
+    }
+
+    @Test
+    void withdrawalPromotesWaitlistInOrder() {
+        for (int i = 0; i < CAPACITY + 3; i++) {
+            currentUser.set(students.get(i));
+            enrollmentService.enrollStudent(course.getId());
+        }
+        List<WaitlistEntry> queue = waitlistRepository.findAll(Sort.by("id"));
+        assertEquals(3, queue.size());
+
+        currentUser.set(students.get(0));
+        assertEquals(1, enrollmentService.withdrawStudent(course.getId()));
+
+        Long promoted = queue.get(0).getStudentId();
+        assertTrue(enrollmentRepository.existsByCourseIdAndStudentId(course.getId(), promoted));
+        assertTrue(enrollmentService.isUserEnrolledInCourse(course.getId(), promoted));
+        assertEquals(2, waitlistRepository.countByCourseId(course.getId()));
+        assertEquals(Optional.of(queue.get(1).getId()),
+                waitlistRepository.findAll(Sort.by("id")).stream().findFirst().map(WaitlistEntry::getId));
+        assertEquals(CAPACITY, stripeRepository.sumTakenByCourseId(course.getId()));
+    }
+
+    @Test
+    void doubleSubmittedEnrollmentTakesOneSeat() throws Exception {
+        User student = students.get(0);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                currentUser.set(student);
+                return enrollmentService.enrollStudent(course.getId());
+            }));
+        }
+
+        start.countDown();
+        int failed = 0;
+        for (Future<?> result : results) {
+            try {
+                result.get(1, TimeUnit.MINUTES);
+            } catch (ExecutionException e) {
+                assertEquals("You are already enrolled in this course", e.getCause().getMessage());
+                failed++;
+            }
+        }
+        pool.shutdown();
+
+        assertEquals(7, failed);
+        assertEquals(1, enrollmentRepository.countByCourseId(course.getId()));
+        assertEquals(1, stripeRepository.sumTakenByCourseId(course.getId()));
+    }
+
+    @Test
+    void newcomersQueueBehindTheWaitlistEvenWhenASeatIsFree() {
+        for (int i = 0; i < CAPACITY + 1; i++) {
+            currentUser.set(students.get(i));
+            enrollmentService.enrollStudent(course.getId());
+        }
+        // A seat freed without being handed over, e.g. by a cascading delete
+        seatAllocationService.release(course.getId());
+
+        currentUser.set(students.get(CAPACITY + 1));
+        EnrollmentAttempt attempt = enrollmentService.enrollStudent(course.getId());
+
+        assertTrue(attempt.isWaitlisted());
+        assertEquals(CAPACITY, enrollmentRepository.countByCourseId(course.getId()));
+        assertEquals(1, seatAllocationService.promoteFromWaitlist(course.getId()));
+        assertTrue(enrollmentRepository.existsByCourseIdAndStudentId(course.getId(), students.get(CAPACITY).getId()));
+        assertFalse(enrollmentRepository.existsByCourseIdAndStudentId(course.getId(), students.get(CAPACITY + 1).getId()));
+    }
+
+    private static Role role(String name) {
+        Role role = new Role();
+        role.setRoleName(name);
+        return role;
+    }
+
+    private static User user(String email, Role role) {
+        User user = new User();
+        user.setName(email);
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+}
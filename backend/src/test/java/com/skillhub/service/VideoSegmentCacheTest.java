@@ -0,0 +1,82 @@
+package com.skillhub.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VideoSegmentCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private Path video;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[10 * 1024];
+        new Random(3).nextBytes(content);
+        video = Files.write(dir.resolve("lesson.mp4"), content);
+    }
+
+    @Test
+    void mapsEdgeSegmentsAtOnceAndOthersWhenHot() throws Exception {
+        VideoSegmentCache cache = new VideoSegmentCache(1024, 1024 * 1024, 3);
+
+        assertNotNull(segment(cache, 0));
+        assertNotNull(segment(cache, 9));
+        assertNull(segment(cache, 4));
+        assertNull(segment(cache, 4));
+
+        ByteBuffer hot = segment(cache, 4);
+        assertNotNull(hot);
+        assertEquals(1024, hot.remaining());
+        for (int i = 0; i < 1024; i++) {
+            assertEquals(content[4 * 1024 + i], hot.get(i));
+        }
+        assertEquals(3, cache.getSegmentCount());
+        assertEquals(3 * 1024, cache.getTotalBytes());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedOverBudget() throws Exception {
+        VideoSegmentCache cache = new VideoSegmentCache(1024, 2048, 1);
+
+        segment(cache, 1);
+        segment(cache, 2);
+        segment(cache, 1);
+        segment(cache, 3);
+
+        assertEquals(2, cache.getSegmentCount());
+        assertTrue(cache.getTotalBytes() <= 2048);
+        long hits = cache.getHits();
+        segment(cache, 1);
+        assertEquals(hits + 1, cache.getHits());
+    }
+
+    @Test
+    void ignoresMappingsOfReplacedFile() throws Exception {
+        VideoSegmentCache cache = new VideoSegmentCache(1024, 1024 * 1024, 1);
+        segment(cache, 0);
+
+        ByteBuffer replaced = cache.getSegment(video, Files.size(video), Files.getLastModifiedTime(video).toMillis() + 1000, 0);
+
+        assertNotNull(replaced);
+        assertEquals(2, cache.getSegmentCount());
+        assertEquals(0, cache.getHits());
+    }
+
+    private ByteBuffer segment(VideoSegmentCache cache, long index) throws Exception {
+        return cache.getSegment(video, Files.size(video), Files.getLastModifiedTime(video).toMillis(), index);
+    }
+}
@@ -0,0 +1,197 @@
+package com.skillhub.service;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.skillhub.config.StorageConfig;
+import com.skillhub.entity.Course;
+import com.skillhub.entity.Lesson;
+import com.skillhub.entity.Role;
+import com.skillhub.entity.StoredVideo;
+import com.skillhub.entity.StoredVideo.Location;
+import com.skillhub.entity.User;
+import com.skillhub.repository.CourseRepository;
+import com.skillhub.repository.LessonRepository;
+import com.skillhub.repository.RoleRepository;
+import com.skillhub.repository.StoredVideoRepository;
+import com.skillhub.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.verify;
+
+@DataJpaTest
+@Import({VideoStorageService.class, StorageConfig.class})
+class VideoStorageServiceTest {
+
+    @TempDir
+    static Path uploadDir;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("app.upload.dir", () -> uploadDir.toString());
+        registry.add("aws.s3.bucket.videos", () -> "videos");
+        // Collect unreferenced videos straight away
+        registry.add("app.video.storage.orphan-grace-ms", () -> 0);
+    }
+
+    @Autowired
+    private VideoStorageService storageService;
+
+    @Autowired
+    private StoredVideoRepository storedVideoRepository;
+
+    @Autowired
+    private LessonRepository lessonRepository;
+
+    @Autowired
+    private CourseRepository courseRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @MockBean
+    private AmazonS3 s3Client;
+
+    private Course course;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setRoleName("INSTRUCTOR");
+        User instructor = new User();
+        instructor.setName("Teacher");
+        instructor.setEmail("teacher@example.com");
+        instructor.setPassword("secret");
+        instructor.setRole(roleRepository.save(role));
+
+        course = new Course();
+        course.setTitle("Course");
+        course.setInstructor(userRepository.save(instructor));
+        course = courseRepository.save(course);
+    }
+
+    @Test
+    void identicalUploadsAreStoredOnce() throws Exception {
+        byte[] video = new byte[5000];
+        new Random(3).nextBytes(video);
+
+        VideoStorageService.StoreResult first = storageService.storeLocal(new ByteArrayInputStream(video), ".MP4");
+        VideoStorageService.StoreResult second = storageService.storeLocal(new ByteArrayInputStream(video), ".mp4");
+
+        assertTrue(first.created());
+        assertFalse(second.created());
+        assertEquals(first.video().getStorageKey(), second.video().getStorageKey());
+        assertEquals(VideoStorageService.sha256Hex(new ByteArrayInputStream(video)) + ".mp4",
+                first.video().getStorageKey());
+        try (Stream<Path> files = Files.list(uploadDir.resolve("videos"))) {
+            assertEquals(List.of(first.video().getStorageKey()),
+                    files.map(file -> file.getFileName().toString()).toList());
+        }
+    }
+
+    @Test
+    void unreferencedVideosAreCollected() throws Exception {
+        byte[] video = new byte[3000];
+        new Random(5).nextBytes(video);
+        String key = storageService.storeLocal(new ByteArrayInputStream(video), ".mp4").video().getStorageKey();
+        Path file = uploadDir.resolve("videos").resolve(key);
+
+        Lesson lesson = new Lesson();
+        lesson.setTitle("Lesson");
+        lesson.setCourse(course);
+        lesson.setVideoFilename(key);
+        lesson = lessonRepository.save(lesson);
+        storageService.recountReferences(lesson.getVideoReferences());
+        assertEquals(1, storedVideoRepository.findByStorageKey(key).orElseThrow().getRefCount());
+
+        storageService.collectGarbage();
+        assertTrue(Files.exists(file));
+
+        // The sweep that notices the lost reference starts the grace period, the next one collects
+        lessonRepository.delete(lesson);
+        storageService.collectGarbage();
+        assertTrue(Files.exists(file));
+        storageService.collectGarbage();
+        assertFalse(Files.exists(file));
+        assertTrue(storedVideoRepository.findByStorageKey(key).isEmpty());
+    }
+
+    @Test
+    void unreferencedS3VideosAreDeletedFromTheBucket() {
+        storageService.register("ab".repeat(32), Location.S3, "https://videos.s3.amazonaws.com/videos/x.mp4",
+                "videos/x.mp4", 10);
+
+        storageService.collectGarbage();
+
+        verify(s3Client).deleteObject("videos", "videos/x.mp4");
+        assertEquals(List.<StoredVideo>of(), storedVideoRepository.findAll());
+    }
+
+    @Test
+    void withBucketStorageUploadsGoToTheBucketAndDirectUploadsStreamFromIt(@TempDir Path bucketDir,
+                                                                           @TempDir Path cacheDir) throws Exception {
+        Object localStorage = ReflectionTestUtils.getField(storageService, "videoStorage");
+        CachingStorageBackend bucket = new CachingStorageBackend(new LocalStorageBackend(bucketDir), cacheDir,
+                1 << 20, Runnable::run, 0);
+        ReflectionTestUtils.setField(storageService, "videoStorage", bucket);
+        ReflectionTestUtils.setField(storageService, "videosBackend", "s3");
+        try {
+            byte[] video = new byte[4000];
+            new Random(7).nextBytes(video);
+            String key = storageService.storeLocal(new ByteArrayInputStream(video), ".mp4").video().getStorageKey();
+
+            assertArrayEquals(video, Files.readAllBytes(bucketDir.resolve("videos").resolve(key)));
+            assertFalse(Files.exists(uploadDir.resolve("videos").resolve(key)));
+            try (InputStream stored = storageService.openLocal(key)) {
+                assertArrayEquals(video, stored.readAllBytes());
+            }
+
+            // A direct upload of the same content lands on the same object
+            String hash = key.substring(0, key.indexOf('.'));
+            String url = "https://videos.s3.amazonaws.com/videos/" + key;
+            storageService.register(hash, Location.S3, url, "videos/" + key, video.length);
+            assertEquals(Optional.of(key), storageService.streamFilename(url));
+
+            storageService.collectGarbage();
+            assertEquals(List.<StoredVideo>of(), storedVideoRepository.findAll());
+            verify(s3Client).deleteObject("videos", "videos/" + key);
+            // Only the bucket client deletes it, once the last record is gone
+            assertTrue(Files.exists(bucketDir.resolve("videos").resolve(key)));
+        } finally {
+            ReflectionTestUtils.setField(storageService, "videoStorage", localStorage);
+            ReflectionTestUtils.setField(storageService, "videosBackend", "local");
+        }
+    }
+
+    @Test
+    void withLocalStorageDirectUploadsAreNotStreamed() {
+        String url = "https://videos.s3.amazonaws.com/videos/x.mp4";
+        storageService.register("cd".repeat(32), Location.S3, url, "videos/x.mp4", 10);
+
+        assertEquals(Optional.empty(), storageService.streamFilename(url));
+        assertEquals(Optional.of("abc.mp4"), storageService.streamFilename("abc.mp4"));
+    }
+}
@@ -0,0 +1,407 @@
+package com.skillhub.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VideoStreamServiceTest {
+
+    private static final int FILE_SIZE = 10_000;
+
+    @TempDir
+    Path uploadDir;
+
+    private VideoStreamService streamService;
+    private VideoSegmentCache segmentCache;
+    private byte[] content;
+    private Path video;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        streamService = new VideoStreamService();
+        ReflectionTestUtils.setField(streamService, "videoStorage", new LocalStorageBackend(uploadDir));
+        ReflectionTestUtils.setField(streamService, "maxChunkBytes", 4096L);
+        segmentCache = new VideoSegmentCache(1024, 4096, 2);
+        ReflectionTestUtils.setField(streamService, "segmentCache", segmentCache);
+        ReflectionTestUtils.setField(streamService, "fileIndex", new VideoFileIndex(100));
+        ReflectionTestUtils.setField(streamService, "bandwidthShaper", new BandwidthShaper(0, 0, 0, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(streamService, "pacingChunkBytes", 1000L);
+        ReflectionTestUtils.setField(streamService, "asyncWriter", new AsyncVideoWriter(1500, 60_000));
+
+        content = new byte[FILE_SIZE];
+        new Random(7).nextBytes(content);
+        Files.createDirectories(uploadDir.resolve("videos"));
+        video = Files.write(uploadDir.resolve("videos/lesson.mp4"), content);
+    }
+
+    @Test
+    void servesWholeFileWithoutRange() throws Exception {
+        MockHttpServletResponse response = serve(null);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(FILE_SIZE, response.getContentLengthLong());
+        assertArrayEquals(content, response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesExactBytesOfSingleRange() throws Exception {
+        MockHttpServletResponse response = serve("bytes=100-1099");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-1099/10000", response.getHeader("Content-Range"));
+        assertEquals(1000, response.getContentLengthLong());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 1100), response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesSuffixAndClampsEnd() throws Exception {
+        MockHttpServletResponse suffix = serve("bytes=-500");
+        assertEquals("bytes 9500-9999/10000", suffix.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 9500, FILE_SIZE), suffix.getContentAsByteArray());
+
+        MockHttpServletResponse clamped = serve("bytes=9990-20000");
+        assertEquals("bytes 9990-9999/10000", clamped.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 9990, FILE_SIZE), clamped.getContentAsByteArray());
+    }
+
+    @Test
+    void capsOpenEndedRange() throws Exception {
+        MockHttpServletResponse response = serve("bytes=0-");
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 0-4095/10000", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(content, 0, 4096), response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesMultipleRangesAsMultipart() throws Exception {
+        MockHttpServletResponse response = serve("bytes=0-9, 5000-5019, -5");
+
+        assertEquals(206, response.getStatus());
+        String contentType = response.getContentType();
+        assertTrue(contentType.startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLengthLong());
+
+        byte[] expected = concat(
+                part(boundary, "bytes 0-9/10000", Arrays.copyOfRange(content, 0, 10)),
+                part(boundary, "bytes 5000-5019/10000", Arrays.copyOfRange(content, 5000, 5020)),
+                part(boundary, "bytes 9995-9999/10000", Arrays.copyOfRange(content, 9995, FILE_SIZE)),
+                ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(expected, body);
+    }
+
+    @Test
+    void rejectsInvalidOrUnsatisfiableRanges() throws Exception {
+        for (String range : new String[]{"bytes=10000-", "bytes=500-100", "bytes=abc", "bytes=-", "bytes=-0", "bytes=1-2,x"}) {
+            MockHttpServletResponse response = serve(range);
+            assertEquals(416, response.getStatus(), range);
+            assertEquals("bytes */10000", response.getHeader("Content-Range"), range);
+            assertEquals(0, response.getContentAsByteArray().length, range);
+        }
+    }
+
+    @Test
+    void handsSingleRangeToContainerSendfile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        request.addHeader("Range", "bytes=5000-5099");
+        request.setAttribute(VideoStreamService.SENDFILE_SUPPORT, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamService.serve(video, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals(100, response.getContentLengthLong());
+        assertEquals(video.toAbsolutePath().toString(), request.getAttribute(VideoStreamService.SENDFILE_FILENAME));
+        assertEquals(5000L, request.getAttribute(VideoStreamService.SENDFILE_START));
+        assertEquals(5100L, request.getAttribute(VideoStreamService.SENDFILE_END));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void servesHotSegmentsFromCache() throws Exception {
+        serve("bytes=5000-5099");
+        assertEquals(0, segmentCache.getSegmentCount());
+
+        // Second request makes segment 4 hot; it spans into segment 5, which is still cold
+        MockHttpServletResponse second = serve("bytes=5000-5199");
+        assertEquals(1, segmentCache.getSegmentCount());
+        assertArrayEquals(Arrays.copyOfRange(content, 5000, 5200), second.getContentAsByteArray());
+
+        MockHttpServletResponse third = serve("bytes=5100-5119");
+        assertArrayEquals(Arrays.copyOfRange(content, 5100, 5120), third.getContentAsByteArray());
+        assertTrue(segmentCache.getHits() > 0);
+
+        // Unpaced ranges still go to sendfile when it is available, cached or not
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        request.addHeader("Range", "bytes=5100-5119");
+        request.setAttribute(VideoStreamService.SENDFILE_SUPPORT, Boolean.TRUE);
+        long hits = segmentCache.getHits();
+        streamService.serve(video, request, new MockHttpServletResponse());
+
+        assertEquals(5100L, request.getAttribute(VideoStreamService.SENDFILE_START));
+        assertEquals(hits, segmentCache.getHits());
+    }
+
+    @Test
+    void fullDownloadsAndLargeRangesBypassTheCache() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(content, serve(null).getContentAsByteArray());
+            assertArrayEquals(Arrays.copyOfRange(content, 0, 5000), serve("bytes=0-4999").getContentAsByteArray());
+        }
+        assertEquals(0, segmentCache.getMisses());
+        assertEquals(0, segmentCache.getSegmentCount());
+
+        // Full downloads still go out with sendfile
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/lesson.mp4");
+        request.setAttribute(VideoStreamService.SENDFILE_SUPPORT, Boolean.TRUE);
+        streamService.serve(video, request, new MockHttpServletResponse());
+        assertEquals(0L, request.getAttribute(VideoStreamService.SENDFILE_START));
+        assertEquals((long) FILE_SIZE, request.getAttribute(VideoStreamService.SENDFILE_END));
+        assertEquals(0, segmentCache.getMisses());
+    }
+
+    @Test
+    void revalidatesWithEtagAndLastModified() throws Exception {
+        MockHttpServletResponse first = serve(null);
+        String etag = first.getHeader("ETag");
+        String lastModified = first.getHeader("Last-Modified");
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertNotNull(lastModified);
+
+        MockHttpServletResponse byEtag = serve(null, "If-None-Match", "\"other\", W/" + etag);
+        assertEquals(304, byEtag.getStatus());
+        assertEquals(etag, byEtag.getHeader("ETag"));
+        assertEquals(0, byEtag.getContentAsByteArray().length);
+
+        assertEquals(304, serve("bytes=0-99", "If-Modified-Since", lastModified).getStatus());
+        // If-None-Match wins over If-Modified-Since
+        assertEquals(200, serve(null, "If-None-Match", "\"other\"", "If-Modified-Since", lastModified).getStatus());
+
+        // Replacing the file changes the validators
+        Files.write(video, Arrays.copyOf(content, FILE_SIZE - 1));
+        Files.setLastModifiedTime(video, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        MockHttpServletResponse changed = serve(null, "If-None-Match", etag);
+        assertEquals(200, changed.getStatus());
+        assertNotEquals(etag, changed.getHeader("ETag"));
+    }
+
+    @Test
+    void ifRangeFallsBackToFullFileWhenStale() throws Exception {
+        String etag = serve(null).getHeader("ETag");
+        String lastModified = serve(null).getHeader("Last-Modified");
+
+        MockHttpServletResponse current = serve("bytes=100-199", "If-Range", etag);
+        assertEquals(206, current.getStatus());
+        assertEquals(206, serve("bytes=100-199", "If-Range", lastModified).getStatus());
+
+        for (String validator : new String[]{"\"stale\"", "W/" + etag, "Thu, 01 Jan 2015 00:00:00 GMT"}) {
+            MockHttpServletResponse stale = serve("bytes=100-199", "If-Range", validator);
+            assertEquals(200, stale.getStatus(), validator);
+            assertArrayEquals(content, stale.getContentAsByteArray(), validator);
+        }
+    }
+
+    @Test
+    void contentAddressedFilesUseTheirHashAsEtag() {
+        String hash = "0123456789abcdef".repeat(4);
+        assertEquals("\"" + hash + "\"", VideoFileIndex.etag(hash + ".mp4", 10, 20));
+        assertEquals("\"14-a\"", VideoFileIndex.etag("lesson.mp4", 10, 20));
+    }
+
+    @Test
+    void pacesClientsOverTheirBudget() throws Exception {
+        BandwidthShaper shaper = new BandwidthShaper(100_000, 0, 1000, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(streamService, "bandwidthShaper", shaper);
+
+        // Within the burst: no pacing, so sendfile is still used
+        MockHttpServletRequest small = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        small.addHeader("Range", "bytes=5000-5499");
+        small.setAttribute(VideoStreamService.SENDFILE_SUPPORT, Boolean.TRUE);
+        streamService.serve(video, small, new MockHttpServletResponse());
+        assertEquals(5000L, small.getAttribute(VideoStreamService.SENDFILE_START));
+        assertEquals(1, shaper.getSendfileResponses());
+
+        // The whole file is 9.5 KB over the remaining burst, which takes about 95 ms at 100 KB/s
+        MockHttpServletRequest full = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        full.setAttribute(VideoStreamService.SENDFILE_SUPPORT, Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        long started = System.nanoTime();
+        streamService.serve(video, full, response);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertNull(full.getAttribute(VideoStreamService.SENDFILE_FILENAME));
+        assertArrayEquals(content, response.getContentAsByteArray());
+        assertTrue(elapsedMs >= 70, "took " + elapsedMs + " ms");
+        assertTrue(shaper.getThrottledBytes() > 0);
+        assertEquals(1, shaper.getSendfileResponses());
+        assertEquals(0, shaper.getActiveStreams());
+    }
+
+    @Test
+    void writesWithNonBlockingIoWhenRequestIsAsync() throws Exception {
+        BandwidthShaper shaper = new BandwidthShaper(0, 0, 0, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(streamService, "bandwidthShaper", shaper);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        request.setAsyncSupported(true);
+        request.addHeader("Range", "bytes=0-9, 5000-8999");
+        // A socket that fills up after every 1000 bytes
+        NonBlockingOutputStream out = new NonBlockingOutputStream(1000);
+        MockHttpServletResponse mock = new MockHttpServletResponse();
+        HttpServletResponseWrapper response = new HttpServletResponseWrapper(mock) {
+            @Override
+            public ServletOutputStream getOutputStream() {
+                return out;
+            }
+        };
+
+        streamService.serve(video, request, response);
+
+        // The request thread is free before anything has been written
+        assertTrue(request.isAsyncStarted());
+        assertEquals(1, shaper.getActiveStreams());
+        int callbacks = 0;
+        while (request.isAsyncStarted() && callbacks++ < 100) {
+            out.drain();
+        }
+        assertTrue(callbacks > 2);
+        assertEquals(0, shaper.getActiveStreams());
+
+        String contentType = mock.getContentType();
+        String boundary = contentType.substring(contentType.indexOf('=') + 1);
+        byte[] expected = concat(
+                part(boundary, "bytes 0-9/10000", Arrays.copyOfRange(content, 0, 10)),
+                part(boundary, "bytes 5000-8999/10000", Arrays.copyOfRange(content, 5000, 9000)),
+                ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        assertArrayEquals(expected, out.written.toByteArray());
+        assertEquals(expected.length, mock.getContentLengthLong());
+    }
+
+    @Test
+    void refusesPathsOutsideVideosDirectory() throws Exception {
+        Files.write(uploadDir.resolve("secret.txt"), new byte[]{1});
+
+        assertNull(streamService.resolveVideo("../secret.txt"));
+        assertNull(streamService.resolveVideo("missing.mp4"));
+        assertEquals(video.toAbsolutePath().normalize(), streamService.resolveVideo("lesson.mp4"));
+    }
+
+    @Test
+    void servesVideosWithoutALocalFileFromRangedReads() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        request.addHeader("Range", "bytes=100-199, 300-349");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertTrue(streamService.serveRemote("lesson.mp4", request, response));
+
+        // Both ranges in one spanning range
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-349/10000", response.getHeader("Content-Range"));
+        assertEquals("video/mp4", response.getContentType());
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 350), response.getContentAsByteArray());
+
+        MockHttpServletResponse open = new MockHttpServletResponse();
+        MockHttpServletRequest openRequest = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        openRequest.addHeader("Range", "bytes=9000-");
+        streamService.serveRemote("lesson.mp4", openRequest, open);
+        assertArrayEquals(Arrays.copyOfRange(content, 9000, FILE_SIZE), open.getContentAsByteArray());
+
+        assertFalse(streamService.serveRemote("missing.mp4", request, new MockHttpServletResponse()));
+        assertFalse(streamService.serveRemote("../secret.txt", request, new MockHttpServletResponse()));
+    }
+
+    private MockHttpServletResponse serve(String range, String... headers) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/video/stream/lesson.mp4");
+        if (range != null) {
+            request.addHeader("Range", range);
+        }
+        for (int i = 0; i < headers.length; i += 2) {
+            request.addHeader(headers[i], headers[i + 1]);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamService.serve(video, request, response);
+        return response;
+    }
+
+    /**
+     * Output stream of a non-blocking socket that can take a fixed number of bytes per drain
+     */
+    private static class NonBlockingOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final int capacity;
+        private int free;
+        private WriteListener listener;
+
+        NonBlockingOutputStream(int capacity) {
+            this.capacity = capacity;
+        }
+
+        void drain() throws Exception {
+            free = capacity;
+            listener.onWritePossible();
+        }
+
+        @Override
+        public boolean isReady() {
+            return free > 0;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            assertTrue(free > 0, "written while not ready");
+            written.write(b, off, len);
+            free -= len;
+        }
+    }
+
+    private static byte[] part(String boundary, String contentRange, byte[] data) {
+        byte[] header = ("\r\n--" + boundary + "\r\nContent-Type: video/mp4\r\nContent-Range: " + contentRange + "\r\n\r\n")
+                .getBytes(StandardCharsets.US_ASCII);
+        return concat(header, data);
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        int length = Arrays.stream(arrays).mapToInt(a -> a.length).sum();
+        byte[] result = new byte[length];
+        int offset = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        return result;
+    }
+}
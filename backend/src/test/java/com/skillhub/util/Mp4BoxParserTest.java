@@ -0,0 +1,142 @@
+package com.skillhub.util;
+
+import com.skillhub.util.Mp4BoxParser.Mp4Info;
+import com.skillhub.util.Mp4BoxParser.SeekPoint;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class Mp4BoxParserTest {
+
+    private static final int SAMPLES = 300;
+    private static final int SAMPLES_PER_CHUNK = 10;
+
+    @Test
+    void readsDurationAndKeyframesWithMoovAfterMdat() throws Exception {
+        byte[] ftyp = box("ftyp", ascii("isom"), int32(512), ascii("isomiso2mp41"));
+        int mdatDataStart = ftyp.length + 8;
+        byte[] mdat = box("mdat", new byte[totalSampleBytes()]);
+        byte[] file = concat(ftyp, mdat, moov(mdatDataStart));
+
+        Mp4Info info = Mp4BoxParser.parse(new ByteArrayInputStream(file), 1000);
+
+        assertEquals(10_000, info.durationMs());
+        // Keyframes every 30 samples (one second), plus one at sample 46 that is too close to index
+        List<SeekPoint> expected = new ArrayList<>();
+        for (int sample = 1; sample <= SAMPLES; sample += 30) {
+            expected.add(new SeekPoint((sample - 1) * 1000L / 30, mdatDataStart + bytesBefore(sample)));
+        }
+        assertEquals(expected, info.keyframes());
+    }
+
+    @Test
+    void returnsNullWithoutMoov() throws Exception {
+        byte[] file = concat(box("ftyp", ascii("isom"), int32(0)), box("mdat", new byte[64]));
+
+        assertNull(Mp4BoxParser.parse(new ByteArrayInputStream(file), 1000));
+    }
+
+    @Test
+    void seekIndexRoundTrips() {
+        List<SeekPoint> points = List.of(new SeekPoint(0, 48), new SeekPoint(1000, 90_000),
+                new SeekPoint(2002, 85_000), new SeekPoint(3_600_000, 5_000_000_000L));
+
+        byte[] encoded = Mp4BoxParser.encodeSeekIndex(points);
+
+        assertEquals(points, Mp4BoxParser.decodeSeekIndex(encoded));
+    }
+
+    private static byte[] moov(int mdatDataStart) {
+        byte[] mvhd = box("mvhd", int32(0), int32(0), int32(0), int32(1000), int32(10_000), new byte[80]);
+        return box("moov", mvhd, track("soun", 44100, new int[0], mdatDataStart), track("vide", 30, syncSamples(), mdatDataStart));
+    }
+
+    private static byte[] track(String handler, int timescale, int[] sync, int mdatDataStart) {
+        byte[] mdhd = box("mdhd", int32(0), int32(0), int32(0), int32(timescale), int32(SAMPLES), int32(0));
+        byte[] hdlr = box("hdlr", int32(0), int32(0), ascii(handler), new byte[12], new byte[]{0});
+
+        ByteArrayOutputStream stss = new ByteArrayOutputStream();
+        write(stss, int32(0), int32(sync.length));
+        for (int sample : sync) {
+            write(stss, int32(sample));
+        }
+        ByteArrayOutputStream stsz = new ByteArrayOutputStream();
+        write(stsz, int32(0), int32(0), int32(SAMPLES));
+        for (int sample = 1; sample <= SAMPLES; sample++) {
+            write(stsz, int32(sampleSize(sample)));
+        }
+        ByteArrayOutputStream stco = new ByteArrayOutputStream();
+        write(stco, int32(0), int32(SAMPLES / SAMPLES_PER_CHUNK));
+        for (int chunk = 0; chunk < SAMPLES / SAMPLES_PER_CHUNK; chunk++) {
+            write(stco, int32(mdatDataStart + bytesBefore(chunk * SAMPLES_PER_CHUNK + 1)));
+        }
+
+        byte[] stbl = box("stbl",
+                box("stts", int32(0), int32(1), int32(SAMPLES), int32(1)),
+                box("stss", stss.toByteArray()),
+                box("stsc", int32(0), int32(1), int32(1), int32(SAMPLES_PER_CHUNK), int32(1)),
+                box("stsz", stsz.toByteArray()),
+                box("stco", stco.toByteArray()));
+        return box("trak", box("mdia", mdhd, hdlr, box("minf", stbl)));
+    }
+
+    private static int[] syncSamples() {
+        List<Integer> sync = new ArrayList<>();
+        for (int sample = 1; sample <= SAMPLES; sample += 30) {
+            sync.add(sample);
+            if (sample == 31) {
+                sync.add(46);
+            }
+        }
+        return sync.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int sampleSize(int sample) {
+        return 100 + sample % 7;
+    }
+
+    private static long bytesBefore(int sample) {
+        long total = 0;
+        for (int i = 1; i < sample; i++) {
+            total += sampleSize(i);
+        }
+        return total;
+    }
+
+    private static int totalSampleBytes() {
+        return (int) bytesBefore(SAMPLES + 1);
+    }
+
+    private static byte[] box(String type, byte[]... parts) {
+        byte[] body = concat(parts);
+        return concat(int32(body.length + 8), ascii(type), body);
+    }
+
+    private static byte[] int32(long value) {
+        return ByteBuffer.allocate(4).putInt((int) value).array();
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static void write(ByteArrayOutputStream out, byte[]... parts) {
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(out, parts);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,47 @@
+package com.skillhub.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void burstIsAvailableAtOnceThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(1000, 500, 0);
+
+        assertTrue(bucket.tryTake(500, 0));
+        assertFalse(bucket.tryTake(1, 0));
+        assertTrue(bucket.tryTake(100, SECOND / 10));
+        assertFalse(bucket.isFull(SECOND / 10));
+        // Refills stop at the burst size
+        assertTrue(bucket.isFull(10 * SECOND));
+        assertFalse(bucket.tryTake(501, 10 * SECOND));
+    }
+
+    @Test
+    void reservationsQueueUpAsDebt() {
+        TokenBucket bucket = new TokenBucket(1000, 100, 0);
+
+        assertEquals(0, bucket.reserve(100, 0));
+        assertEquals(SECOND / 2, bucket.reserve(500, 0));
+        // The next caller waits behind the first one
+        assertEquals(SECOND, bucket.reserve(500, 0));
+        assertEquals(SECOND / 2, bucket.reserve(0, SECOND / 2));
+    }
+
+    @Test
+    void zeroRateIsUnlimited() {
+        TokenBucket bucket = new TokenBucket(0, 1, 0);
+
+        assertTrue(bucket.tryTake(Long.MAX_VALUE / 2, 0));
+        assertEquals(0, bucket.reserve(1_000_000, 0));
+
+        bucket.setRate(1000, 0);
+        assertEquals(SECOND, bucket.reserve(1001, 0));
+    }
+}
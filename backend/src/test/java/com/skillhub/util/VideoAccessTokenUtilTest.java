@@ -0,0 +1,43 @@
+package com.skillhub.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VideoAccessTokenUtilTest {
+
+    private final VideoAccessTokenUtil tokens = new VideoAccessTokenUtil("test-secret", 3600);
+
+    @Test
+    void acceptsTokenForItsCourseAndVideoOnly() {
+        String token = tokens.issue(42L, "intro.mp4");
+
+        assertTrue(tokens.verify(token, 42L, "intro.mp4"));
+        assertFalse(tokens.verify(token, 43L, "intro.mp4"));
+        assertFalse(tokens.verify(token, 42L, "other.mp4"));
+        assertFalse(tokens.verify(token, 42L, null));
+        assertEquals(token, tokens.issue(42L, "intro.mp4"));
+    }
+
+    @Test
+    void rejectsTamperedOrForeignTokens() {
+        String token = tokens.issue(42L, "intro.mp4");
+        String[] parts = token.split("\\.");
+
+        assertFalse(tokens.verify("43." + parts[1] + "." + parts[2], 43L, "intro.mp4"));
+        assertFalse(tokens.verify(parts[0] + "." + (Long.parseLong(parts[1]) + 3600) + "." + parts[2], 42L, "intro.mp4"));
+        assertFalse(tokens.verify(token + "x", 42L, "intro.mp4"));
+        assertFalse(tokens.verify(new VideoAccessTokenUtil("other-secret", 3600).issue(42L, "intro.mp4"), 42L, "intro.mp4"));
+        assertFalse(tokens.verify("garbage", 42L, "intro.mp4"));
+        assertFalse(tokens.verify(null, 42L, "intro.mp4"));
+    }
+
+    @Test
+    void rejectsExpiredTokens() {
+        VideoAccessTokenUtil expired = new VideoAccessTokenUtil("test-secret", -7200);
+
+        assertFalse(tokens.verify(expired.issue(42L, "intro.mp4"), 42L, "intro.mp4"));
+    }
+}
@@ -1,6 +1,7 @@
 // src/app/components/dashboard/dashboard.component.ts
-import { Component, OnInit } from '@angular/core';
+import { Component, OnInit, OnDestroy } from '@angular/core';
 import { Router } from '@angular/router';
+import { Subscription } from 'rxjs';
 import { AuthService } from '../../services/auth.service';
 import { UserService } from '../../services/user.service';
 import { CourseService } from '../../services/course.service';
@@ -12,7 +13,7 @@ import { User } from '../../models/user.model';
   templateUrl: './dashboard.component.html',
   styleUrls: ['./dashboard.component.css']
 })
-export class DashboardComponent implements OnInit {
+export class DashboardComponent implements OnInit, OnDestroy {
   
   // Helper method to cap progress at 100%
   capProgress(progress: number): number {
@@ -22,6 +23,10 @@ export class DashboardComponent implements OnInit {
   dashboardData: any = null;
   completedCourses = 0;
   certificates: any[] = [];
+  // Live counters pushed over the dashboard stream (instructors and admins)
+  activeLearners: number | null = null;
+  liveEnrollments = 0;
+  private liveSubscription: Subscription | null = null;
   chartType: 'donut' | 'bar' = 'donut'; // Default to donut chart
   
   // Make Math available in template
@@ -127,6 +132,25 @@ export class DashboardComponent implements OnInit {
     // Initialize donut chart with default data
     this.initializeDonutChart();
     this.loadDashboardData();
+    this.startLiveCounters();
+  }
+
+  ngOnDestroy(): void {
+    this.liveSubscription?.unsubscribe();
+  }
+
+  startLiveCounters(): void {
+    if (this.currentUser?.role !== 'INSTRUCTOR' && this.currentUser?.role !== 'ADMIN') {
+      return;
+    }
+    this.liveSubscription = this.userService.getDashboardStream().subscribe(delta => {
+      this.activeLearners = delta.activeLearners;
+      if (this.currentUser?.role === 'ADMIN' && this.dashboardData) {
+        this.dashboardData.totalEnrollments = (this.dashboardData.totalEnrollments || 0) + delta.newEnrollments;
+      } else {
+        this.liveEnrollments += delta.newEnrollments;
+      }
+    });
   }
 
   initializeDonutChart(): void {
@@ -163,6 +187,7 @@ export class DashboardComponent implements OnInit {
       this.userService.getInstructorDashboard().subscribe({
         next: (data) => {
           this.dashboardData = data;
+          this.liveEnrollments = 0;
           this.updateDonutChartData();
         },
         error: (error) => {
@@ -271,7 +296,7 @@ export class DashboardComponent implements OnInit {
     if (this.currentUser?.role === 'INSTRUCTOR' && this.dashboardData?.myCourses) {
       return this.dashboardData.myCourses.reduce(
         (sum: number, course: any) => sum + (course.enrollmentCount || 0), 0
-      );
+      ) + this.liveEnrollments;
     }
     return 0;
   }
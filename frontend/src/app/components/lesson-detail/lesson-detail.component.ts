@@ -12,6 +12,7 @@ interface Lesson {
   description: string;
   videoUrl: string;
   videoFilename?: string;
+  videoStreamUrl?: string;
   videoDuration: number;
   lessonOrder: number;
   createdAt: string;
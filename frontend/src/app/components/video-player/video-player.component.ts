@@ -12,6 +12,7 @@ import { environment } from '../../../environments/environment';
 export class VideoPlayerComponent implements OnInit, OnDestroy {
   @Input() videoFilename?: string;
   @Input() videoUrl?: string;  // Add videoUrl input for S3 URLs
+  @Input() videoStreamUrl?: string;  // Signed stream URL for locally stored videos
   @Input() lessonId!: number;
   @Output() progressUpdate = new EventEmitter<number>();
   
@@ -47,6 +48,14 @@ export class VideoPlayerComponent implements OnInit, OnDestroy {
   loadVideo(): void {
     console.log('Loading video with videoFilename:', this.videoFilename, 'videoUrl:', this.videoUrl);
     
+    // Locally stored videos come with a signed stream URL, so the browser can fetch ranges directly
+    if (this.videoStreamUrl) {
+      this.actualVideoUrl = this.videoStreamUrl;
+      this.isLoading = false;
+      this.setupVideoElement();
+      return;
+    }
+
     // Check if we have a direct URL (S3 URL) in either videoUrl or videoFilename
     if (this.videoUrl && this.videoUrl.startsWith('http')) {
       console.log('Using direct video URL from videoUrl (S3):', this.videoUrl);
@@ -78,6 +78,52 @@ export class UserService {
     });
   }
 
+  // Live counter deltas for the admin or instructor dashboard. EventSource cannot send the
+  // Authorization header, so every connection first fetches a short-lived stream token and
+  // puts it in the URL; when the connection drops it reconnects with a fresh one.
+  getDashboardStream(): Observable<any> {
+    return new Observable(observer => {
+      let source: EventSource | null = null;
+      let retry: any = null;
+      let closed = false;
+
+      const reconnectLater = () => {
+        if (!closed && retry === null) {
+          retry = setTimeout(() => {
+            retry = null;
+            connect();
+          }, 5000);
+        }
+      };
+      const connect = () => {
+        this.http.get<any>(`${this.apiUrl}/dashboard/stream-token`, {
+          headers: this.getHeaders()
+        }).subscribe({
+          next: (response) => {
+            if (closed) {
+              return;
+            }
+            source = new EventSource(`${this.apiUrl}/dashboard/stream?token=${encodeURIComponent(response.token)}`);
+            source.addEventListener('counters', (event: MessageEvent) => observer.next(JSON.parse(event.data)));
+            source.onerror = () => {
+              // The browser would retry with the same, soon expired token
+              source?.close();
+              reconnectLater();
+            };
+          },
+          error: () => reconnectLater()
+        });
+      };
+
+      connect();
+      return () => {
+        closed = true;
+        clearTimeout(retry);
+        source?.close();
+      };
+    });
+  }
+
   // Platform statistics for admin analytics
   getPlatformStats(): Observable<any> {
     return this.http.get<any>(`${this.apiUrl}/admin/stats`, {